@@ -1,3 +1,24 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * public class AVLTree
  * <p>
@@ -7,77 +28,1008 @@
  * @author Sharon Tadmor
  */
 
-public class AVLTree {
-	final public AVLNode VIRTUAL = new AVLNode();
-	public AVLNode root;
-	public AVLNode min;
-	public AVLNode max;
-	public int size;
-	final public int EMPTY = 0;
-	final public int INVALID = -1;
-	final public int ILLEGAL_BF = 2;
+public class AVLTree implements IntBooleanTree {
+	final public AVLNode VIRTUAL = new AVLNode();
+	public AVLNode root;
+	public AVLNode min;
+	public AVLNode max;
+	public int size;
+	private AVLNode finger = VIRTUAL;
+	private boolean fingerSearch = true;
+	private boolean threaded = false;
+	private TreeMetrics metrics = null;
+	private TraceRecorder trace = null;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public int ILLEGAL_BF = 2;
+	final public static int SNAPSHOT_MAGIC = 0x544C5641; // "AVLT" in little-endian order.
+	final public static int SNAPSHOT_VERSION = 1;
+	private static final int SNAPSHOT_HEADER_SIZE = 3 * Integer.BYTES;
+	private static final int SNAPSHOT_BUFFER_SIZE = 1 << 20;
+	private static final int FINGER_CLIMB_LIMIT = 6;
+
+	/**
+	 * This constructor creates an empty AVLTree.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public AVLTree() {
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int[] keys, boolean[] values)
+	 * <p>
+	 * builds a perfectly balanced AVL tree from keys given in strictly increasing
+	 * order, where values[i] is the info of keys[i]. each subtree is built from
+	 * the middle item of its range, so no searches or rotations are needed.
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length or the keys
+	 *                                  are not strictly increasing.
+	 *
+	 *                                  time complexity: O(n)
+	 */
+	public static AVLTree fromSorted(int[] keys, boolean[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+			}
+		}
+		AVLTree tree = new AVLTree();
+		if (keys.length == 0) {
+			return tree;
+		}
+		tree.setRoot(tree.buildSubtree(keys, values, 0, keys.length - 1, tree.VIRTUAL));
+		tree.size = keys.length;
+		tree.setTreeMin(tree.findMinimumOfSubtree(tree.getRoot()));
+		tree.setTreeMax(tree.findMaximumOfSubtree(tree.getRoot()));
+		return tree;
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int[] keys, long[] valueBits)
+	 * <p>
+	 * same as fromSorted(keys, values), where the info of keys[i] is bit i % 64 of
+	 * valueBits[i / 64], as written by infoToBitmap().
+	 *
+	 * @throws IllegalArgumentException if valueBits has less than (keys.length +
+	 *                                  63) / 64 words or the keys are not strictly
+	 *                                  increasing.
+	 *
+	 *                                  time complexity: O(n)
+	 */
+	public static AVLTree fromSorted(int[] keys, long[] valueBits) {
+		if (valueBits.length < (keys.length + 63) >>> 6) {
+			throw new IllegalArgumentException("valueBits has too few words for " + keys.length + " keys");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+			}
+		}
+		AVLTree tree = new AVLTree();
+		if (keys.length == 0) {
+			return tree;
+		}
+		tree.setRoot(tree.buildSubtree(keys, valueBits, 0, keys.length - 1, tree.VIRTUAL));
+		tree.size = keys.length;
+		tree.setTreeMin(tree.findMinimumOfSubtree(tree.getRoot()));
+		tree.setTreeMax(tree.findMaximumOfSubtree(tree.getRoot()));
+		return tree;
+	}
+
+	/**
+	 * builds a balanced subtree from the items in keys[lo...hi], whose info are
+	 * the bits lo...hi of valueBits.
+	 *
+	 * @pre lo <= hi
+	 * @return the root of the new subtree, whose fields are maintained.
+	 *
+	 *         time complexity: O(hi - lo)
+	 */
+	private AVLNode buildSubtree(int[] keys, long[] valueBits, int lo, int hi, AVLNode parent) {
+		int mid = (lo + hi) >>> 1;
+		AVLNode node = new AVLNode(keys[mid], (valueBits[mid >>> 6] >>> mid & 1L) != 0);
+		node.setParent(parent);
+		if (lo < mid) {
+			node.setLeft(buildSubtree(keys, valueBits, lo, mid - 1, node));
+		}
+		if (mid < hi) {
+			node.setRight(buildSubtree(keys, valueBits, mid + 1, hi, node));
+		}
+		node.maintainFields();
+		return node;
+	}
+
+	/**
+	 * builds a balanced subtree from the items in keys[lo...hi] and values[lo...hi].
+	 *
+	 * @pre lo <= hi
+	 * @return the root of the new subtree, whose fields are maintained.
+	 *
+	 *         time complexity: O(hi - lo)
+	 */
+	private AVLNode buildSubtree(int[] keys, boolean[] values, int lo, int hi, AVLNode parent) {
+		int mid = (lo + hi) >>> 1;
+		AVLNode node = new AVLNode(keys[mid], values[mid]);
+		node.setParent(parent);
+		if (lo < mid) {
+			node.setLeft(buildSubtree(keys, values, lo, mid - 1, node));
+		}
+		if (mid < hi) {
+			node.setRight(buildSubtree(keys, values, mid + 1, hi, node));
+		}
+		node.maintainFields();
+		return node;
+	}
+
+	/**
+	 * public AVLTree[] split(int k)
+	 * <p>
+	 * splits the tree at k into two trees: the first holds the items whose keys are
+	 * smaller than k, and the second the items whose keys are greater or equal to
+	 * k. k does not have to be a key in the tree. the nodes are moved, not copied,
+	 * so this tree is empty afterwards. the two trees are threaded if this tree
+	 * is, and only the link between them is cut.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public AVLTree[] split(int k) {
+		AVLNode[] parts = splitSubtree(getRoot(), k);
+		if (parts[1].isRealNode()) {
+			parts[2] = joinSubtrees(VIRTUAL, parts[1], parts[2]);
+		}
+		AVLTree[] trees = { wrapSubtree(parts[0]), wrapSubtree(parts[2]) };
+		trees[0].metrics = metrics;
+		trees[1].metrics = metrics;
+		if (threaded) {
+			trees[0].threaded = true;
+			trees[1].threaded = true;
+			if (!trees[0].empty()) {
+				trees[0].getTreeMax().next = null;
+			}
+			if (!trees[1].empty()) {
+				trees[1].getTreeMin().prev = null;
+			}
+		}
+		clear();
+		return trees;
+	}
+
+	/**
+	 * splits node's subtree at k, by joining the subtrees hanging off the search
+	 * path for k on each side of it. the heights of the joined trees grow along
+	 * the path, so the joins take O(log n) together.
+	 *
+	 * @param node
+	 * @return the root of the items smaller than k, the node with key k (or a
+	 *         virtual node if there is none), and the root of the items greater
+	 *         than k. the roots have virtual parents.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private AVLNode[] splitSubtree(AVLNode node, int k) {
+		if (!node.isRealNode()) {
+			return new AVLNode[] { VIRTUAL, VIRTUAL, VIRTUAL };
+		}
+		AVLNode left = node.getLeft();
+		AVLNode right = node.getRight();
+		if (k == node.getKey()) {
+			return new AVLNode[] { detach(left), node, detach(right) };
+		}
+		if (k < node.getKey()) {
+			AVLNode[] parts = splitSubtree(left, k);
+			parts[2] = joinSubtrees(parts[2], node, right);
+			return parts;
+		}
+		AVLNode[] parts = splitSubtree(right, k);
+		parts[0] = joinSubtrees(left, node, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * gives node a virtual parent, so that it is the root of a subtree of its own.
+	 *
+	 * @param node
+	 * @return node
+	 *
+	 *         time complexity: O(1)
+	 */
+	private AVLNode detach(AVLNode node) {
+		if (node.isRealNode()) {
+			node.setParent(VIRTUAL);
+		}
+		return node;
+	}
+
+	/**
+	 * public static AVLTree join(AVLTree left, int k, boolean i, AVLTree right)
+	 * <p>
+	 * returns a tree with the items of left, an item with key k and info i, and the
+	 * items of right. all keys in left must be smaller than k, and all keys in
+	 * right greater than k. the nodes are moved, not copied, so left and right are
+	 * empty afterwards. the tree is threaded if left or right is; if the other one
+	 * is neither threaded nor empty, its nodes are linked with a walk over the new
+	 * tree.
+	 *
+	 * @throws IllegalArgumentException if the keys are not in this order.
+	 *
+	 *                                  time complexity: O(log n), and O(n) to link
+	 *                                  an unthreaded tree to a threaded one.
+	 */
+	public static AVLTree join(AVLTree left, int k, boolean i, AVLTree right) {
+		if ((!left.empty() && left.getTreeMax().getKey() >= k) || (!right.empty() && right.getTreeMin().getKey() <= k)) {
+			throw new IllegalArgumentException("keys of left tree, " + k + " and keys of right tree are not increasing");
+		}
+		AVLTree tree = new AVLTree();
+		tree.metrics = left.metrics != null ? left.metrics : right.metrics;
+		AVLNode pivot = tree.new AVLNode(k, i);
+		AVLNode root = tree.joinSubtrees(left.getRoot(), pivot, right.getRoot());
+		tree.setRoot(root);
+		tree.size = root.getSubtreeSize();
+		tree.setTreeMin(left.empty() ? pivot : left.getTreeMin());
+		tree.setTreeMax(right.empty() ? pivot : right.getTreeMax());
+		if (left.threaded || right.threaded) {
+			tree.threaded = true;
+			if ((left.threaded || left.empty()) && (right.threaded || right.empty())) {
+				linkBetween(pivot, left.empty() ? null : left.getTreeMax(), right.empty() ? null : right.getTreeMin());
+			} else {
+				tree.relink();
+			}
+		}
+		left.clear();
+		right.clear();
+		return tree;
+	}
+
+	/**
+	 * public static AVLTree join(AVLTree left, AVLTree right)
+	 * <p>
+	 * returns a tree with the items of left and right, where all keys in left must
+	 * be smaller than all keys in right. the smallest item of right joins the two
+	 * trees. the nodes are moved, not copied, so left and right are empty
+	 * afterwards.
+	 *
+	 * @throws IllegalArgumentException if the key ranges overlap.
+	 *
+	 *                                  time complexity: O(log n)
+	 */
+	public static AVLTree join(AVLTree left, AVLTree right) {
+		if (right.empty()) {
+			AVLTree tree = wrapSubtree(left.getRoot());
+			tree.metrics = left.metrics != null ? left.metrics : right.metrics;
+			tree.threaded = left.threaded;
+			tree.setThreaded(left.threaded || right.threaded);
+			left.clear();
+			return tree;
+		}
+		AVLNode pivot = right.getTreeMin();
+		if (!left.empty() && left.getTreeMax().getKey() >= pivot.getKey()) {
+			throw new IllegalArgumentException("key ranges of the trees overlap");
+		}
+		int k = pivot.getKey();
+		boolean i = pivot.getValue();
+		TraceRecorder trace = right.trace; // the pivot's removal is not an operation on right.
+		right.trace = null;
+		right.delete(k);
+		right.trace = trace;
+		return join(left, k, i, right);
+	}
+
+	/**
+	 * public static AVLTree union(AVLTree t1, AVLTree t2)
+	 * <p>
+	 * returns a tree with the items of both trees. a key that is in both trees
+	 * keeps its info from t1. the work is split between the threads of the common
+	 * ForkJoinPool. the nodes are moved, not copied, so t1 and t2 are empty
+	 * afterwards.
+	 *
+	 * time complexity: O(m log(n/m + 1)), m <= n being the sizes of the trees, and
+	 * O(log^2 n) on enough threads.
+	 */
+	public static AVLTree union(AVLTree t1, AVLTree t2) {
+		return union(t1, t2, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * public static AVLTree union(AVLTree t1, AVLTree t2, ForkJoinPool pool)
+	 * <p>
+	 * same as union(t1, t2), on the threads of the given pool.
+	 */
+	public static AVLTree union(AVLTree t1, AVLTree t2, ForkJoinPool pool) {
+		return combine(SetOperation.UNION, t1, t2, pool);
+	}
+
+	/**
+	 * public static AVLTree intersection(AVLTree t1, AVLTree t2)
+	 * <p>
+	 * returns a tree with the items of t1 whose keys are also in t2. the work is
+	 * split between the threads of the common ForkJoinPool. the nodes are moved,
+	 * not copied, so t1 and t2 are empty afterwards.
+	 *
+	 * time complexity: O(m log(n/m + 1)), m <= n being the sizes of the trees, and
+	 * O(log^2 n) on enough threads.
+	 */
+	public static AVLTree intersection(AVLTree t1, AVLTree t2) {
+		return intersection(t1, t2, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * public static AVLTree intersection(AVLTree t1, AVLTree t2, ForkJoinPool pool)
+	 * <p>
+	 * same as intersection(t1, t2), on the threads of the given pool.
+	 */
+	public static AVLTree intersection(AVLTree t1, AVLTree t2, ForkJoinPool pool) {
+		return combine(SetOperation.INTERSECTION, t1, t2, pool);
+	}
+
+	/**
+	 * public static AVLTree difference(AVLTree t1, AVLTree t2)
+	 * <p>
+	 * returns a tree with the items of t1 whose keys are not in t2. the work is
+	 * split between the threads of the common ForkJoinPool. the nodes are moved,
+	 * not copied, so t1 and t2 are empty afterwards.
+	 *
+	 * time complexity: O(m log(n/m + 1)), m <= n being the sizes of the trees, and
+	 * O(log^2 n) on enough threads.
+	 */
+	public static AVLTree difference(AVLTree t1, AVLTree t2) {
+		return difference(t1, t2, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * public static AVLTree difference(AVLTree t1, AVLTree t2, ForkJoinPool pool)
+	 * <p>
+	 * same as difference(t1, t2), on the threads of the given pool.
+	 */
+	public static AVLTree difference(AVLTree t1, AVLTree t2, ForkJoinPool pool) {
+		return combine(SetOperation.DIFFERENCE, t1, t2, pool);
+	}
+
+	/**
+	 * runs a set operation on the roots of two trees in the given pool, and moves
+	 * the result into a new tree. the result is threaded if t1 or t2 is, and its
+	 * nodes are then linked with a walk over it, since the operation drops and
+	 * regroups nodes anywhere in the trees.
+	 *
+	 * @throws IllegalArgumentException if t1 and t2 are the same tree.
+	 *
+	 *                                  time complexity: O(m log(n/m + 1)), and
+	 *                                  O(n) for a threaded result.
+	 */
+	private static AVLTree combine(int operation, AVLTree t1, AVLTree t2, ForkJoinPool pool) {
+		if (t1 == t2) {
+			throw new IllegalArgumentException("a tree cannot be combined with itself");
+		}
+		AVLNode root = pool.invoke(new SetOperation(operation, t1.getRoot(), t2.getRoot()));
+		AVLTree tree = wrapSubtree(root);
+		if (root.isRealNode()) {
+			root.setParent(tree.VIRTUAL);
+		}
+		tree.setThreaded(t1.threaded || t2.threaded);
+		tree.metrics = t1.metrics != null ? t1.metrics : t2.metrics;
+		t1.clear();
+		t2.clear();
+		return tree;
+	}
+
+	/**
+	 * joins two subtrees and a pivot node between them. the root of the shorter
+	 * subtree and the pivot replace a node of about the same height on the spine
+	 * of the taller subtree, which is then rebalanced from there up to its root
+	 * (using this tree's root as scratch for the rotations).
+	 *
+	 * @pre all keys in left < pivot.getKey() < all keys in right
+	 * @return the root of the joined subtree, with a virtual parent.
+	 *
+	 *         time complexity: O(|left.getHeight() - right.getHeight()| + 1)
+	 */
+	private AVLNode joinSubtrees(AVLNode left, AVLNode pivot, AVLNode right) {
+		int leftHeight = left.getHeight();
+		int rightHeight = right.getHeight();
+		if (Math.abs(leftHeight - rightHeight) < ILLEGAL_BF) {
+			linkChildren(pivot, left, right);
+			pivot.setParent(VIRTUAL);
+			pivot.maintainFields();
+			return pivot;
+		}
+		AVLNode taller = leftHeight > rightHeight ? left : right;
+		AVLNode parent = taller;
+		AVLNode curr;
+		if (taller == left) { // descend the right spine of left.
+			curr = left.getRight();
+			while (curr.getHeight() > rightHeight + 1) {
+				parent = curr;
+				curr = curr.getRight();
+			}
+			linkChildren(pivot, curr, right);
+			parent.setRight(pivot);
+		} else { // descend the left spine of right.
+			curr = right.getLeft();
+			while (curr.getHeight() > leftHeight + 1) {
+				parent = curr;
+				curr = curr.getLeft();
+			}
+			linkChildren(pivot, left, curr);
+			parent.setLeft(pivot);
+		}
+		pivot.setParent(parent);
+		pivot.maintainFields();
+		taller.setParent(VIRTUAL);
+		setRoot(taller);
+		rebalanceTree(parent);
+		return getRoot();
+	}
+
+	/**
+	 * joins two subtrees, where all keys in left are smaller than all keys in
+	 * right. the largest node of left is cut out of it and joins the two.
+	 *
+	 * @return the root of the joined subtree, with a virtual parent.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private AVLNode joinSubtrees(AVLNode left, AVLNode right) {
+		if (!left.isRealNode()) {
+			return detach(right);
+		}
+		if (!right.isRealNode()) {
+			return detach(left);
+		}
+		AVLNode[] parts = splitLast(left);
+		return joinSubtrees(parts[0], parts[1], right);
+	}
+
+	/**
+	 * cuts the node with the largest key out of a non-empty subtree.
+	 *
+	 * @param node
+	 * @return the root of the rest of the subtree, with a virtual parent, and the
+	 *         node with the largest key.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private AVLNode[] splitLast(AVLNode node) {
+		if (!node.getRight().isRealNode()) {
+			return new AVLNode[] { detach(node.getLeft()), node };
+		}
+		AVLNode[] parts = splitLast(node.getRight());
+		parts[0] = joinSubtrees(node.getLeft(), node, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * sets left and right as the children of node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void linkChildren(AVLNode node, AVLNode left, AVLNode right) {
+		node.setLeft(left);
+		node.setRight(right);
+		if (left.isRealNode()) {
+			left.setParent(node);
+		}
+		if (right.isRealNode()) {
+			right.setParent(node);
+		}
+	}
+
+	/**
+	 * @param root
+	 * @return a new tree whose root is the given node, which has a virtual parent.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private static AVLTree wrapSubtree(AVLNode root) {
+		AVLTree tree = new AVLTree();
+		if (root.isRealNode()) {
+			tree.setRoot(root);
+			tree.size = root.getSubtreeSize();
+			tree.setTreeMin(tree.findMinimumOfSubtree(root));
+			tree.setTreeMax(tree.findMaximumOfSubtree(root));
+		}
+		return tree;
+	}
+
+	/**
+	 * empties the tree, after its nodes were moved to other trees.
+	 *
+	 * time complexity: O(1)
+	 */
+	private void clear() {
+		this.finger = VIRTUAL;
+		setRoot(VIRTUAL);
+		setTreeMin(VIRTUAL);
+		setTreeMax(VIRTUAL);
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public void writeSnapshot(Path path)
+	 * <p>
+	 * writes the items of the tree to a binary file, in increasing order of keys.
+	 * the file holds a header of three little-endian ints, SNAPSHOT_MAGIC,
+	 * SNAPSHOT_VERSION and the number of items n, then the n keys as ints, and
+	 * then the n values packed as in infoToBitmap(), as (n + 63) / 64 longs. it
+	 * is written through a large direct buffer to a temporary file, which then
+	 * replaces the given path, so a crash leaves the previous snapshot whole.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 *
+	 *                     time complexity: O(n)
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		long[] valueBits = new long[(size() + 63) >>> 6];
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(size());
+			// the keys are written during an in-order traversal, which also packs the
+			// values.
+			AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+			int depth = 0;
+			int idx = 0;
+			AVLNode node = getRoot();
+			while (node.isRealNode() || depth > 0) {
+				if (node.isRealNode()) {
+					stack[depth++] = node;
+					node = node.left;
+				} else {
+					node = stack[--depth];
+					if (!buffer.hasRemaining()) {
+						drain(channel, buffer);
+					}
+					buffer.putInt(node.key);
+					if (node.value) {
+						valueBits[idx >>> 6] |= 1L << idx;
+					}
+					idx++;
+					node = node.right;
+				}
+			}
+			for (long word : valueBits) {
+				if (buffer.remaining() < Long.BYTES) {
+					drain(channel, buffer);
+				}
+				buffer.putLong(word);
+			}
+			drain(channel, buffer);
+			channel.force(true);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * public static AVLTree readSnapshot(Path path)
+	 * <p>
+	 * reads a file written by writeSnapshot, and builds a perfectly balanced tree
+	 * from it with fromSorted, without any searches or rotations.
+	 *
+	 * @throws IOException if the file cannot be read, or it is not a snapshot of
+	 *                     this version, or it is truncated or corrupt.
+	 *
+	 *                     time complexity: O(n)
+	 */
+	public static AVLTree readSnapshot(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			fill(channel, buffer, SNAPSHOT_HEADER_SIZE);
+			if (buffer.getInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(path + " is not an AVLTree snapshot");
+			}
+			int version = buffer.getInt();
+			if (version != SNAPSHOT_VERSION) {
+				throw new IOException(path + " has snapshot version " + version + ", expected " + SNAPSHOT_VERSION);
+			}
+			int n = buffer.getInt();
+			int words = (n + 63) >>> 6;
+			if (n < 0 || channel.size() != SNAPSHOT_HEADER_SIZE + 4L * n + 8L * words) {
+				throw new IOException(path + " does not have the length of a snapshot of " + n + " items");
+			}
+			int[] keys = new int[n];
+			for (int idx = 0; idx < n;) {
+				int count = Math.min(n - idx, SNAPSHOT_BUFFER_SIZE / Integer.BYTES);
+				fill(channel, buffer, count * Integer.BYTES);
+				buffer.asIntBuffer().get(keys, idx, count);
+				idx += count;
+			}
+			long[] valueBits = new long[words];
+			for (int idx = 0; idx < words;) {
+				int count = Math.min(words - idx, SNAPSHOT_BUFFER_SIZE / Long.BYTES);
+				fill(channel, buffer, count * Long.BYTES);
+				buffer.asLongBuffer().get(valueBits, idx, count);
+				idx += count;
+			}
+			try {
+				return fromSorted(keys, valueBits);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(path + " is corrupt", e);
+			}
+		}
+	}
+
+	/**
+	 * writes the buffer's content to the channel, and clears the buffer.
+	 *
+	 * time complexity: O(buffer.position())
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * reads the next bytes bytes of the channel into the buffer, and flips the
+	 * buffer for reading them.
+	 *
+	 * @throws EOFException if the channel ends before.
+	 *
+	 *                      time complexity: O(bytes)
+	 */
+	private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		buffer.clear().limit(bytes);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("snapshot ends after " + channel.position() + " bytes");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 * 
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == EMPTY ? true : false;
+	}
+
+	/**
+	 * public boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 * 
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		if (metrics != null) {
+			metrics.recordSearch();
+		}
+		if (trace != null) {
+			trace.recordSearch(k);
+		}
+		AVLNode node = searchNode(k);
+		if (node != null && k == node.getKey()) {
+			return node.getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent.
+	 * 
+	 *         time complexity: O(log n)
+	 */
+	public AVLNode searchNode(int k) {
+		return searchNodeFrom(this.root, k);
+	}
+
+	/**
+	 * @param start - the root of a subtree whose key range contains k.
+	 * @param k
+	 * @return the node with key k if k is in the subtree. otherwise, return the
+	 *         node that would be k's parent (null if start is virtual).
+	 * 
+	 *         time complexity: O(height of start)
+	 */
+	private AVLNode searchNodeFrom(AVLNode start, int k) {
+		if (metrics != null) {
+			return recordedSearchNode(start, k);
+		}
+		AVLNode prev = null;
+		AVLNode curr = start;
+		while (curr.isRealNode()) {
+			if (k == curr.getKey()) {
+				return curr;
+			}
+			prev = curr;
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				curr = curr.getRight();
+			}
+		}
+		return prev;
+	}
+
+	/**
+	 * the search of searchNode, which also records the number of nodes it visits
+	 * as the search depth. it is a loop of its own, so that the search without
+	 * metrics stays as it was.
+	 * 
+	 * @pre metrics != null
+	 * @param start - the root of a subtree whose key range contains k.
+	 * @param k
+	 * @return the node with key k if k is in the subtree. otherwise, return the
+	 *         node that would be k's parent (null if start is virtual).
+	 * 
+	 *         time complexity: O(height of start)
+	 */
+	private AVLNode recordedSearchNode(AVLNode start, int k) {
+		AVLNode prev = null;
+		AVLNode curr = start;
+		int depth = 0;
+		while (curr.isRealNode()) {
+			depth++;
+			if (k == curr.getKey()) {
+				break;
+			}
+			prev = curr;
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				curr = curr.getRight();
+			}
+		}
+		metrics.recordSearchDepth(depth);
+		return curr.isRealNode() ? curr : prev;
+	}
+
+	/**
+	 * finds the node searchNode(k) would find, without starting from the root: a
+	 * key beyond the minimum or maximum goes right below it, and any other key is
+	 * searched from the last inserted node (the finger). the search climbs from
+	 * the finger only while the parent is on the same side of k, so it stops at
+	 * the lowest ancestor whose key range contains k, and descends from there.
+	 * 
+	 * @pre the tree is not empty
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent.
+	 * 
+	 *         time complexity: O(1) for a new minimum or maximum, and otherwise
+	 *         O(h), h being the height of the lowest common ancestor of the finger
+	 *         and the place of k.
+	 */
+	private AVLNode fingerSearchNode(int k) {
+		if (k > getTreeMax().getKey()) {
+			return getTreeMax();
+		}
+		if (k < getTreeMin().getKey()) {
+			return getTreeMin();
+		}
+		AVLNode curr = finger.isRealNode() ? finger : getRoot();
+		int climb = 0;
+		if (k > curr.getKey()) {
+			while (curr.getParent().isRealNode() && curr.getParent().getKey() <= k) {
+				curr = curr.getParent();
+				if (++climb == FINGER_CLIMB_LIMIT) { // k is far from the finger.
+					return searchNode(k);
+				}
+			}
+		} else if (k < curr.getKey()) {
+			while (curr.getParent().isRealNode() && curr.getParent().getKey() >= k) {
+				curr = curr.getParent();
+				if (++climb == FINGER_CLIMB_LIMIT) { // k is far from the finger.
+					return searchNode(k);
+				}
+			}
+		}
+		return searchNodeFrom(curr, k);
+	}
+
+	/**
+	 * public void setFingerSearch(boolean enabled)
+	 * <p>
+	 * turns the finger search of insert on or off. it is on by default. with it
+	 * off, every insertion searches from the root.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public void setFingerSearch(boolean enabled) {
+		this.fingerSearch = enabled;
+		this.finger = VIRTUAL;
+	}
+
+	/**
+	 * public boolean isFingerSearch()
+	 * <p>
+	 * returns true if insert starts its search from the last inserted node.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public boolean isFingerSearch() {
+		return this.fingerSearch;
+	}
+
+	/**
+	 * public void setThreaded(boolean enabled)
+	 * <p>
+	 * turns the threaded mode of the tree on or off. it is off by default. in
+	 * threaded mode every node keeps links to the nodes before and after it in
+	 * increasing order of keys (node.prev and node.next, null at the ends), which
+	 * insert, delete, split and join maintain. successor, predecessor, the update
+	 * of the minimum and maximum on deletion and the steps of the cursors and
+	 * spliterators then take O(1). the two links are fields of every AVLNode, so
+	 * every tree pays for them, threaded or not (8 bytes per node with compressed
+	 * references, 16 without). turning it on links the nodes with a walk over the
+	 * tree, and turning it off unlinks them.
+	 * 
+	 * time complexity: O(n) if the mode changes, and O(1) otherwise.
+	 */
+	public void setThreaded(boolean enabled) {
+		if (enabled != this.threaded) {
+			this.threaded = enabled;
+			relink();
+		}
+	}
+
+	/**
+	 * public boolean isThreaded()
+	 * <p>
+	 * returns true if the nodes of the tree are linked to their successors and
+	 * predecessors.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public boolean isThreaded() {
+		return this.threaded;
+	}
 
 	/**
-	 * This constructor creates an empty AVLTree.
+	 * public void setMetrics(TreeMetrics metrics)
+	 * <p>
+	 * makes the tree record its operations, rotations, rebalancing climbs and
+	 * search depths into the given metrics, or stops it with null, the default.
+	 * the trees that split, join and the set operations return record into the
+	 * metrics of their input trees.
 	 * 
 	 * time complexity: O(1)
 	 */
-	public AVLTree() {
-		this.root = VIRTUAL;
-		this.min = VIRTUAL;
-		this.max = VIRTUAL;
-		this.size = EMPTY;
+	public void setMetrics(TreeMetrics metrics) {
+		this.metrics = metrics;
 	}
 
 	/**
-	 * public boolean empty()
+	 * public TreeMetrics getMetrics()
 	 * <p>
-	 * returns true if and only if the tree is empty
+	 * returns the metrics the tree records into, or null if there are none.
 	 * 
 	 * time complexity: O(1)
 	 */
-	public boolean empty() {
-		return size() == EMPTY ? true : false;
+	public TreeMetrics getMetrics() {
+		return this.metrics;
 	}
 
 	/**
-	 * public boolean search(int k)
+	 * public void setTrace(TraceRecorder trace)
 	 * <p>
-	 * returns the info of an item with key k if it exists in the tree otherwise,
-	 * returns null
+	 * makes the tree record the operations applied to it (insert, delete, search,
+	 * prefixXor and succPrefixXor, and insertAll and deleteAll as their keys one
+	 * by one) into the given trace, or stops it with null, the default. the trees
+	 * that split, join and the set operations return are not traced. a traced
+	 * tree cannot be wrapped in a ConcurrentAVLTree.
 	 * 
-	 * time complexity: O(log n)
+	 * time complexity: O(1)
 	 */
-	public Boolean search(int k) {
-		AVLNode node = searchNode(k);
-		if (node != null && k == node.getKey()) {
-			return node.getValue();
-		}
-		return null;
+	public void setTrace(TraceRecorder trace) {
+		this.trace = trace;
 	}
 
 	/**
-	 * @param k
-	 * @return the node with key k if k is in the tree. otherwise, return the node
-	 *         that would be k's parent.
+	 * public TraceRecorder getTrace()
+	 * <p>
+	 * returns the trace the tree records into, or null if there is none.
 	 * 
-	 *         time complexity: O(log n)
+	 * time complexity: O(1)
 	 */
-	public AVLNode searchNode(int k) {
-		AVLNode prev = null;
-		AVLNode curr = this.root;
-		while (curr.isRealNode()) {
-			if (k == curr.getKey()) {
-				return curr;
-			}
-			prev = curr;
-			if (k < curr.getKey()) {
-				curr = curr.getLeft();
+	public TraceRecorder getTrace() {
+		return this.trace;
+	}
+
+	/**
+	 * sets the prev and next links of every node to its neighbors in increasing
+	 * order of keys if the tree is threaded, and to null otherwise, with an
+	 * in-order walk.
+	 * 
+	 * time complexity: O(n)
+	 */
+	private void relink() {
+		AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+		int depth = 0;
+		AVLNode node = getRoot();
+		AVLNode last = null;
+		while (node.isRealNode() || depth > 0) {
+			if (node.isRealNode()) {
+				stack[depth++] = node;
+				node = node.left;
 			} else {
-				curr = curr.getRight();
+				node = stack[--depth];
+				node.prev = threaded ? last : null;
+				node.next = null;
+				if (threaded && last != null) {
+					last.next = node;
+				}
+				last = node;
+				node = node.right;
 			}
 		}
-		return prev;
+	}
+
+	/**
+	 * links a new leaf between its neighbors in increasing order of keys. the
+	 * parent of a leaf is its successor if the leaf is a left child, and its
+	 * predecessor otherwise.
+	 * 
+	 * @pre node is a child of parent.
+	 * @param node
+	 * @param parent
+	 * 
+	 *               time complexity: O(1)
+	 */
+	private void linkLeaf(AVLNode node, AVLNode parent) {
+		if (node == parent.getLeft()) {
+			linkBetween(node, parent.prev, parent);
+		} else {
+			linkBetween(node, parent, parent.next);
+		}
+	}
+
+	/**
+	 * links a node between two neighbors, either of which may be null at an end.
+	 * 
+	 * @param node
+	 * @param prev
+	 * @param next
+	 * 
+	 *             time complexity: O(1)
+	 */
+	private static void linkBetween(AVLNode node, AVLNode prev, AVLNode next) {
+		node.prev = prev;
+		node.next = next;
+		if (prev != null) {
+			prev.next = node;
+		}
+		if (next != null) {
+			next.prev = node;
+		}
+	}
+
+	/**
+	 * removes a node from the chain of prev and next links, by linking its
+	 * neighbors to each other.
+	 * 
+	 * @param node
+	 * 
+	 *             time complexity: O(1)
+	 */
+	private void unlink(AVLNode node) {
+		if (node.prev != null) {
+			node.prev.next = node.next;
+		}
+		if (node.next != null) {
+			node.next.prev = node.prev;
+		}
+		node.prev = null;
+		node.next = null;
 	}
 
 	/**
@@ -108,11 +1060,21 @@ public class AVLTree {
 	 * (keep its invariants). returns the number of nodes which require rebalancing
 	 * operations (i.e. promotions or rotations). This always includes the
 	 * newly-created node. returns -1 if an item with key k already exists in the
-	 * tree.
+	 * tree. unless setFingerSearch(false) was called, the search for k starts at
+	 * the minimum, the maximum or the last inserted node, so keys that arrive in
+	 * increasing or decreasing order, or close to the previous one, are placed
+	 * without a descent from the root.
 	 * 
-	 * time complexity: O(log n)
+	 * time complexity: O(log n), and O(1) for the search of a new minimum or
+	 * maximum, not counting the update of the ancestors' fields.
 	 */
 	public int insert(int k, boolean i) {
+		if (metrics != null) {
+			metrics.recordInserts(1);
+		}
+		if (trace != null) {
+			trace.recordInsert(k, i);
+		}
 		int count = 1; // 1 stands for the node we inserted.
 		AVLNode newNode = new AVLNode(k, i);
 		if (size() == 0) { // tree is empty
@@ -122,18 +1084,24 @@ public class AVLTree {
 			setTreeMax(newNode);
 			return count;
 		}
-		AVLNode parent = searchNode(k);
+		AVLNode parent = fingerSearch ? fingerSearchNode(k) : searchNode(k);
 		if (k == parent.getKey()) { // k already in tree.
 			return INVALID;
 		}
 		setEdge(parent, newNode);
+		if (threaded) {
+			linkLeaf(newNode, parent);
+		}
 		if (k < getTreeMin().getKey()) { // new minimum in the tree.
 			setTreeMin(newNode);
 		} else if (k > getTreeMax().getKey()) { // new max in the tree.
 			setTreeMax(newNode);
 		}
 		this.size++;
-		count += rebalanceTree(parent);
+		count += rebalanceAfterInsert(parent, i);
+		if (fingerSearch) {
+			this.finger = newNode;
+		}
 		return count;
 	}
 
@@ -148,6 +1116,12 @@ public class AVLTree {
 	 * time complexity: O(log n)
 	 */
 	public int delete(int k) {
+		if (metrics != null) {
+			metrics.recordDeletes(1);
+		}
+		if (trace != null) {
+			trace.recordDelete(k);
+		}
 		if (size() == 0) { // tree is empty
 			return INVALID;
 		}
@@ -161,11 +1135,224 @@ public class AVLTree {
 		if (node.getKey() == getTreeMax().getKey()) {
 			deleteTreeMax(node);
 		}
+		if (node == finger) {
+			this.finger = VIRTUAL;
+		}
 		AVLNode curr = deleteNode(node);
+		if (threaded) { // after deleteNode, which may still need node's successor.
+			unlink(node);
+		}
 		this.size--;
 		return rebalanceTree(curr);
 	}
 
+	/**
+	 * public int[] insertAll(int[] keys, boolean[] values)
+	 * <p>
+	 * inserts the items keys[j] with info values[j] to the AVL tree, as a batch.
+	 * the batch is sorted once and merged into the tree in a single pass: a node
+	 * is visited once for all the new keys below it, and the subtrees that
+	 * received keys are joined back at each of their ancestors once, with the
+	 * rotations of join. returns, for each j, the result of insert(keys[j],
+	 * values[j]) if the items were inserted one by one in the given order: -1 if
+	 * keys[j] was already in the tree or appeared earlier in the batch, and
+	 * otherwise 1 for the newly-created node. the ancestors are rebalanced once
+	 * for the whole batch, so their rebalancing is not counted for single keys. a
+	 * threaded tree inserts the items one by one, with the same results.
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length.
+	 *
+	 *                                  time complexity: O(m log(n/m + 1) + m log m),
+	 *                                  m being the size of the batch, and O(m log n)
+	 *                                  in a threaded tree.
+	 */
+	public int[] insertAll(int[] keys, boolean[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		int[] results = new int[keys.length];
+		if (threaded) { // the merge would have to relink the whole tree.
+			for (int j = 0; j < keys.length; j++) {
+				results[j] = insert(keys[j], values[j]) == INVALID ? INVALID : 1;
+			}
+			return results;
+		}
+		if (metrics != null) {
+			metrics.recordInserts(keys.length);
+		}
+		if (trace != null) {
+			for (int j = 0; j < keys.length; j++) {
+				trace.recordInsert(keys[j], values[j]);
+			}
+		}
+		long[] order = sortedBatch(keys);
+		Arrays.fill(results, INVALID);
+		int[] batchKeys = new int[keys.length];
+		boolean[] batchValues = new boolean[keys.length];
+		int[] positions = new int[keys.length];
+		int count = 0;
+		for (int j = 0; j < order.length; j++) {
+			int k = (int) (order[j] >> 32);
+			if (count > 0 && batchKeys[count - 1] == k) { // repeated in the batch.
+				continue;
+			}
+			batchKeys[count] = k;
+			positions[count] = (int) order[j];
+			batchValues[count] = values[positions[count]];
+			results[positions[count]] = 1;
+			count++;
+		}
+		if (count == 0) {
+			return results;
+		}
+		resetTree(insertSorted(getRoot(), batchKeys, batchValues, positions, 0, count, results));
+		return results;
+	}
+
+	/**
+	 * merges the new items in batchKeys[lo...hi-1] into node's subtree. an item
+	 * whose key is already in the subtree is marked -1 in results.
+	 *
+	 * @param node
+	 * @return the root of the merged subtree, with a virtual parent.
+	 *
+	 *         time complexity: O(m log(n/m + 1)), m = hi - lo
+	 */
+	private AVLNode insertSorted(AVLNode node, int[] batchKeys, boolean[] batchValues, int[] positions, int lo,
+			int hi, int[] results) {
+		if (lo == hi) {
+			return detach(node);
+		}
+		if (!node.isRealNode()) {
+			return buildSubtree(batchKeys, batchValues, lo, hi - 1, VIRTUAL);
+		}
+		int mid = Arrays.binarySearch(batchKeys, lo, hi, node.getKey());
+		int leftEnd = mid >= 0 ? mid : -mid - 1;
+		int rightStart = leftEnd;
+		if (mid >= 0) { // already in the tree.
+			results[positions[mid]] = INVALID;
+			rightStart++;
+		}
+		AVLNode right = node.getRight();
+		AVLNode left = insertSorted(node.getLeft(), batchKeys, batchValues, positions, lo, leftEnd, results);
+		right = insertSorted(right, batchKeys, batchValues, positions, rightStart, hi, results);
+		return joinSubtrees(left, node, right);
+	}
+
+	/**
+	 * public int[] deleteAll(int[] keys)
+	 * <p>
+	 * deletes the items with the given keys from the AVL tree, as a batch. the
+	 * batch is sorted once and merged into the tree in a single pass, like in
+	 * insertAll. returns, for each j, the result of delete(keys[j]) if the keys
+	 * were deleted one by one in the given order: -1 if keys[j] was not in the
+	 * tree or appeared earlier in the batch, and otherwise 0. the ancestors are
+	 * rebalanced once for the whole batch, so their rebalancing is not counted for
+	 * single keys. a threaded tree deletes the keys one by one, with the same
+	 * results.
+	 *
+	 * time complexity: O(m log(n/m + 1) + m log m), m being the size of the batch,
+	 * and O(m log n) in a threaded tree.
+	 */
+	public int[] deleteAll(int[] keys) {
+		int[] results = new int[keys.length];
+		if (threaded) { // the merge would have to relink the whole tree.
+			for (int j = 0; j < keys.length; j++) {
+				results[j] = delete(keys[j]) == INVALID ? INVALID : 0;
+			}
+			return results;
+		}
+		if (metrics != null) {
+			metrics.recordDeletes(keys.length);
+		}
+		if (trace != null) {
+			for (int k : keys) {
+				trace.recordDelete(k);
+			}
+		}
+		long[] order = sortedBatch(keys);
+		Arrays.fill(results, INVALID);
+		int[] batchKeys = new int[keys.length];
+		int[] positions = new int[keys.length];
+		int count = 0;
+		for (int j = 0; j < order.length; j++) {
+			int k = (int) (order[j] >> 32);
+			if (count > 0 && batchKeys[count - 1] == k) { // repeated in the batch.
+				continue;
+			}
+			batchKeys[count] = k;
+			positions[count] = (int) order[j];
+			count++;
+		}
+		if (count == 0 || empty()) {
+			return results;
+		}
+		resetTree(deleteSorted(getRoot(), batchKeys, positions, 0, count, results));
+		return results;
+	}
+
+	/**
+	 * removes the nodes whose keys are in batchKeys[lo...hi-1] from node's
+	 * subtree, and marks them 0 in results.
+	 *
+	 * @param node
+	 * @return the root of the remaining subtree, with a virtual parent.
+	 *
+	 *         time complexity: O(m log(n/m + 1)), m = hi - lo
+	 */
+	private AVLNode deleteSorted(AVLNode node, int[] batchKeys, int[] positions, int lo, int hi, int[] results) {
+		if (lo == hi || !node.isRealNode()) {
+			return detach(node);
+		}
+		int mid = Arrays.binarySearch(batchKeys, lo, hi, node.getKey());
+		int leftEnd = mid >= 0 ? mid : -mid - 1;
+		int rightStart = mid >= 0 ? mid + 1 : leftEnd;
+		AVLNode right = node.getRight();
+		AVLNode left = deleteSorted(node.getLeft(), batchKeys, positions, lo, leftEnd, results);
+		right = deleteSorted(right, batchKeys, positions, rightStart, hi, results);
+		if (mid >= 0) {
+			results[positions[mid]] = 0;
+			return joinSubtrees(left, right);
+		}
+		return joinSubtrees(left, node, right);
+	}
+
+	/**
+	 * sorts a batch of keys, keeping the order of equal keys.
+	 *
+	 * @return for each key in increasing order, the key in the upper 32 bits and
+	 *         its index in keys in the lower 32 bits.
+	 *
+	 *         time complexity: O(m log m)
+	 */
+	private static long[] sortedBatch(int[] keys) {
+		long[] order = new long[keys.length];
+		for (int j = 0; j < keys.length; j++) {
+			order[j] = ((long) keys[j] << 32) | j;
+		}
+		Arrays.sort(order);
+		return order;
+	}
+
+	/**
+	 * makes the given subtree the whole tree, and updates its size, min and max.
+	 *
+	 * @param root
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private void resetTree(AVLNode root) {
+		this.finger = VIRTUAL;
+		setRoot(root);
+		if (!root.isRealNode()) {
+			clear();
+			return;
+		}
+		this.size = root.getSubtreeSize();
+		setTreeMin(findMinimumOfSubtree(root));
+		setTreeMax(findMaximumOfSubtree(root));
+	}
+
 	/**
 	 * sets new minimum to the tree upon minimum deletion.
 	 * 
@@ -311,7 +1498,9 @@ public class AVLTree {
 	 */
 	private int rebalanceTree(AVLNode node) {
 		int count = 0;
+		int length = 0;
 		while (node.isRealNode()) {
+			length++;
 			int prevHeight = node.getHeight();
 			node.maintainFields();
 			boolean heightChanged = prevHeight != node.getHeight();
@@ -324,6 +1513,51 @@ public class AVLTree {
 			}
 			node = node.getParent();
 		}
+		if (metrics != null) {
+			metrics.recordClimb(length);
+		}
+		return count;
+	}
+
+	/**
+	 * rebalances the tree after the insertion of a leaf with the given value below
+	 * node, like rebalanceTree. once a node keeps its height, the heights and
+	 * balance factors above it do not change, so the rest of the way up only adds
+	 * the new item to the subtree sizes and true counts, without reading the
+	 * children.
+	 * 
+	 * @param node  - the parent of the new leaf.
+	 * @param value - the value of the new leaf.
+	 * @return number of nodes which require rebalancing operations (i.e. promotions
+	 *         or rotations).
+	 * 
+	 *         time complexity: O(log n)
+	 */
+	private int rebalanceAfterInsert(AVLNode node, boolean value) {
+		int count = 0;
+		int length = 0;
+		while (node.isRealNode()) {
+			length++;
+			int prevHeight = node.getHeight();
+			node.maintainFields();
+			boolean heightChanged = prevHeight != node.getHeight();
+			boolean legalBF = Math.abs(node.getBalanceFactor()) < ILLEGAL_BF;
+			if (!heightChanged && legalBF) {
+				node = node.getParent();
+				break;
+			}
+			count++;
+			if (!legalBF) {
+				rotate(node);
+			}
+			node = node.getParent();
+		}
+		for (; node.isRealNode(); node = node.getParent()) {
+			node.addToCounts(value);
+		}
+		if (metrics != null) {
+			metrics.recordClimb(length);
+		}
 		return count;
 	}
 
@@ -335,17 +1569,23 @@ public class AVLTree {
 	 *             time complexity: O(1)
 	 */
 	private void rotate(AVLNode node) {
+		boolean doubleRotation = false;
 		if (node.getBalanceFactor() == ILLEGAL_BF) {
 			if (node.getLeft().getBalanceFactor() == -1) {
 				rotateLeft(node.getLeft());
+				doubleRotation = true;
 			}
 			rotateRight(node);
 		} else if (node.getBalanceFactor() == (-1) * ILLEGAL_BF) {
 			if (node.getRight().getBalanceFactor() == 1) {
 				rotateRight(node.getRight());
+				doubleRotation = true;
 			}
 			rotateLeft(node);
 		}
+		if (metrics != null) {
+			metrics.recordRotation(doubleRotation);
+		}
 	}
 
 	/**
@@ -487,86 +1727,227 @@ public class AVLTree {
 	 * 
 	 *            time complexity: O(1)
 	 */
-	private void setTreeMax(AVLNode max) {
-		this.max = max;
+	private void setTreeMax(AVLNode max) {
+		this.max = max;
+	}
+
+	/**
+	 * @return item with the largest key in the tree.
+	 * 
+	 *         time complexity: O(1)
+	 */
+	public AVLNode getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 * 
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+		int depth = 0;
+		AVLNode node = getRoot();
+		while (node.isRealNode() || depth > 0) {
+			if (node.isRealNode()) {
+				stack[depth++] = node;
+				node = node.left;
+			} else {
+				node = stack[--depth];
+				arr[idx++] = node.key;
+				node = node.right;
+			}
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 * 
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		int idx = 0;
+		AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+		int depth = 0;
+		AVLNode node = getRoot();
+		while (node.isRealNode() || depth > 0) {
+			if (node.isRealNode()) {
+				stack[depth++] = node;
+				node = node.left;
+			} else {
+				node = stack[--depth];
+				arr[idx++] = node.value;
+				node = node.right;
+			}
+		}
+		return arr;
+	}
+
+	/**
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * performs the given action on the key and info of every item in the tree, in
+	 * increasing order of keys. the tree is walked in-order without recursion,
+	 * keeping the path in a stack as high as the tree, which is the only
+	 * allocation. a Cursor walks through the parent links and allocates nothing.
+	 * it is as fast on a threaded tree: the stack holds the next node without a
+	 * load, while a walk over the next links waits for every one of them.
+	 * 
+	 * time complexity: O(n)
+	 */
+	public void forEach(IntBooleanConsumer action) {
+		AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+		int depth = 0;
+		AVLNode node = getRoot();
+		while (node.isRealNode() || depth > 0) {
+			if (node.isRealNode()) {
+				stack[depth++] = node;
+				node = node.left;
+			} else {
+				node = stack[--depth];
+				action.accept(node.key, node.value);
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * public Cursor cursor()
+	 * <p>
+	 * returns a new cursor over the items of the tree, placed before the first
+	 * item.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public Cursor cursor() {
+		return new Cursor();
 	}
 
 	/**
-	 * @return item with the largest key in the tree.
+	 * public IntStream keys()
+	 * <p>
+	 * returns a stream of the keys in the tree, in increasing order. the stream
+	 * reads the nodes of the tree, without copying them to an array. its
+	 * spliterator splits by rank, using the subtree sizes, so every split halves
+	 * the remaining keys exactly, and both halves know their sizes. a parallel
+	 * stream can therefore give each core an equal share. the tree must not change
+	 * while the stream runs.
 	 * 
-	 *         time complexity: O(1)
+	 * time complexity: O(1), and O(n) for a full traversal.
 	 */
-	public AVLNode getTreeMax() {
-		return this.max;
+	public IntStream keys() {
+		return StreamSupport.intStream(new KeySpliterator(0, size()), false);
 	}
 
 	/**
-	 * public int[] keysToArray()
+	 * public Stream<AVLNode> entries()
 	 * <p>
-	 * Returns a sorted array which contains all keys in the tree, or an empty array
-	 * if the tree is empty.
+	 * returns a stream of the nodes in the tree, in increasing order of keys, with
+	 * the same spliterator as keys(). getKey() and getValue() read an item without
+	 * creating an entry object for it. the tree must not change while the stream
+	 * runs.
 	 * 
-	 * time complexity: O(n)
+	 * time complexity: O(1), and O(n) for a full traversal.
 	 */
-	public int[] keysToArray() {
-		int[] arr = new int[size()];
-		if (this.empty()) {
-			return arr;
-		}
-		getSortedKeysArray(getRoot(), arr, 0);
-		return arr;
+	public Stream<AVLNode> entries() {
+		return StreamSupport.stream(new EntrySpliterator(0, size()), false);
 	}
 
 	/**
-	 * Traverses the tree in-order, to create a sorted array which contains all keys
-	 * in the tree.
+	 * @param node
+	 * @return the node that follows the given node in increasing order of keys, or
+	 *         a virtual node if it has the largest key. this is successor(node),
+	 *         without the null. a walk over all the nodes crosses every edge twice,
+	 *         so a step takes O(1) amortized.
 	 * 
-	 * time complexity: O(n)
+	 *         time complexity: O(log n), and O(1) in a threaded tree.
 	 */
-	private int getSortedKeysArray(AVLNode node, int[] arr, int idx) {
-		if (node.getLeft().isRealNode()) {
-			idx = getSortedKeysArray(node.getLeft(), arr, idx);
+	private AVLNode nextNode(AVLNode node) {
+		if (threaded) {
+			return node.next != null ? node.next : VIRTUAL;
 		}
-		arr[idx++] = node.getKey();
-		if (node.getRight().isRealNode()) {
-			idx = getSortedKeysArray(node.getRight(), arr, idx);
+		AVLNode next = node.right;
+		if (next.isRealNode()) {
+			while (next.left.isRealNode()) {
+				next = next.left;
+			}
+			return next;
 		}
-		return idx;
+		next = node.parent;
+		while (next.isRealNode() && node == next.right) {
+			node = next;
+			next = node.parent;
+		}
+		return next;
 	}
 
 	/**
-	 * public boolean[] infoToArray()
+	 * public long[] infoToBitmap()
 	 * <p>
-	 * Returns an array which contains all info in the tree, sorted by their
-	 * respective keys, or an empty array if the tree is empty.
-	 * 
+	 * Returns the info in the tree, sorted by their respective keys, packed as a
+	 * bitmap: the info of the j-th smallest key is bit j % 64 of word j / 64, and
+	 * the bits after the last item are 0. This takes one bit per item instead of
+	 * the byte of infoToArray().
+	 *
 	 * time complexity: O(n)
 	 */
-	public boolean[] infoToArray() {
-		boolean[] arr = new boolean[size()];
-		if (this.empty()) {
-			return arr;
-		}
-		getSortedValuesArray(getRoot(), arr, 0);
-		return arr;
+	public long[] infoToBitmap() {
+		long[] bitmap = new long[(size() + 63) >>> 6];
+		infoToBitmap(bitmap);
+		return bitmap;
 	}
 
 	/**
-	 * Traverses the tree in-order, to create an array which contains the info of
-	 * all the nodes in the tree, according to sorted order of keys.
-	 * 
-	 * time complexity: O(n)
+	 * public int infoToBitmap(long[] bitmap)
+	 * <p>
+	 * Writes the info in the tree to the given buffer, packed as in
+	 * infoToBitmap(), so that repeated exports do not allocate. The words after
+	 * the ones the tree needs are left as they are. Returns the number of items
+	 * written, which is size().
+	 *
+	 * @throws IllegalArgumentException if the buffer has less than (size() + 63) /
+	 *                                  64 words.
+	 *
+	 *                                  time complexity: O(n)
 	 */
-	private int getSortedValuesArray(AVLNode node, boolean[] arr, int idx) {
-		if (node.getLeft().isRealNode()) {
-			idx = getSortedValuesArray(node.getLeft(), arr, idx);
+	public int infoToBitmap(long[] bitmap) {
+		int words = (size() + 63) >>> 6;
+		if (bitmap.length < words) {
+			throw new IllegalArgumentException("bitmap of " + bitmap.length + " words is too small for " + size()
+					+ " items");
 		}
-		arr[idx++] = node.getValue();
-		if (node.getRight().isRealNode()) {
-			idx = getSortedValuesArray(node.getRight(), arr, idx);
+		Arrays.fill(bitmap, 0, words, 0L);
+		// in-order traversal with an explicit stack of the path, no higher than the
+		// tree.
+		AVLNode[] stack = new AVLNode[getRoot().getHeight() + 1];
+		int depth = 0;
+		int idx = 0;
+		AVLNode node = getRoot();
+		while (node.isRealNode() || depth > 0) {
+			if (node.isRealNode()) {
+				stack[depth++] = node;
+				node = node.left;
+			} else {
+				node = stack[--depth];
+				if (node.value) {
+					bitmap[idx >>> 6] |= 1L << idx;
+				}
+				idx++;
+				node = node.right;
+			}
 		}
 		return idx;
-
 	}
 
 	/**
@@ -614,9 +1995,12 @@ public class AVLTree {
 	 * @param node - the node whose successor should be returned
 	 * @return the successor of 'node' if exists, null otherwise
 	 * 
-	 *         time complexity: O(log n)
+	 *         time complexity: O(log n), and O(1) in a threaded tree.
 	 */
 	public AVLNode successor(AVLNode node) {
+		if (threaded) {
+			return node.next;
+		}
 		if (node.getRight().isRealNode()) {
 			return findMinimumOfSubtree(node.getRight());
 		}
@@ -637,9 +2021,12 @@ public class AVLTree {
 	 * @param node - the node whose predecessor should be returned
 	 * @return the predecessor of 'node' if exists, null otherwise
 	 * 
-	 *         time complexity: O(log n)
+	 *         time complexity: O(log n), and O(1) in a threaded tree.
 	 */
 	public AVLNode predecessor(AVLNode node) {
+		if (threaded) {
+			return node.prev;
+		}
 		if (node.getLeft().isRealNode()) {
 			return findMaximumOfSubtree(node.getLeft());
 		}
@@ -654,31 +2041,131 @@ public class AVLTree {
 	/**
 	 * public boolean prefixXor(int k)
 	 *
-	 * Given an argument k which is a key in the tree, calculate the xor of the
-	 * values of nodes whose keys are smaller or equal to k.
-	 *
-	 * precondition: this.search(k) != null
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
 	 *
 	 * time complexity: O(log n)
 	 */
 	public boolean prefixXor(int k) {
+		if (trace != null) {
+			trace.recordPrefixXor(k);
+		}
+		int totalCount = prefixTrueCount(k);
+		if (totalCount % 2 == 0) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * public boolean rangeXor(int lo, int hi)
+	 *
+	 * calculates the xor of the values of nodes whose keys are between lo and hi
+	 * (inclusive). lo and hi do not have to be keys in the tree. returns false if
+	 * lo > hi.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean rangeXor(int lo, int hi) {
+		return countTrue(lo, hi) % 2 != 0;
+	}
+
+	/**
+	 * public int countTrue(int lo, int hi)
+	 *
+	 * returns the number of nodes with value true whose keys are between lo and hi
+	 * (inclusive). lo and hi do not have to be keys in the tree. returns 0 if lo >
+	 * hi.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int countTrue(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		int below = lo == Integer.MIN_VALUE ? 0 : prefixTrueCount(lo - 1);
+		return prefixTrueCount(hi) - below;
+	}
+
+	/**
+	 * descends once from the root towards k, adding the true count of every left
+	 * subtree (and node) passed on the right.
+	 * 
+	 * @param k
+	 * @return the number of nodes with value true whose keys are smaller or equal
+	 *         to k.
+	 * 
+	 *         time complexity: O(log n)
+	 */
+	private int prefixTrueCount(int k) {
 		int totalCount = 0;
-		AVLNode curr = searchNode(k);
-		AVLNode prev = null;
+		AVLNode curr = getRoot();
 		while (curr.isRealNode()) {
-			if (k == curr.getKey() || prev == curr.getRight()) {
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				totalCount += curr.getLeft().getTrueCount();
 				if (curr.getValue()) {
 					totalCount++;
 				}
-				totalCount += curr.getLeft().getTrueCount();
+				if (k == curr.getKey()) {
+					break;
+				}
+				curr = curr.getRight();
 			}
-			prev = curr;
-			curr = prev.getParent();
 		}
-		if (totalCount % 2 == 0) {
-			return false;
+		return totalCount;
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * returns the number of keys in the tree which are smaller or equal to k. k
+	 * does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int rank(int k) {
+		int rank = 0;
+		AVLNode curr = getRoot();
+		while (curr.isRealNode()) {
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				rank += curr.getLeft().getSubtreeSize() + 1;
+				if (k == curr.getKey()) {
+					break;
+				}
+				curr = curr.getRight();
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * public AVLNode select(int i)
+	 *
+	 * returns the node with the i-th smallest key in the tree, counting from 1, or
+	 * null if i is not between 1 and size().
+	 *
+	 * time complexity: O(log n)
+	 */
+	public AVLNode select(int i) {
+		if (i < 1 || i > size()) {
+			return null;
+		}
+		AVLNode curr = getRoot();
+		while (true) {
+			int leftSize = curr.getLeft().getSubtreeSize();
+			if (i <= leftSize) {
+				curr = curr.getLeft();
+			} else if (i == leftSize + 1) {
+				return curr;
+			} else {
+				i -= leftSize + 1;
+				curr = curr.getRight();
+			}
 		}
-		return true;
 	}
 
 	/**
@@ -688,15 +2175,16 @@ public class AVLTree {
 	 * However, the implementation of succPrefixXor is the following: starting from
 	 * the minimum-key node, iteratively call successor until you reach the node of
 	 * key k. Return the xor of all visited nodes.
-	 *
-	 * precondition: this.search(k) != null
 	 * 
 	 * time complexity: O(n)
 	 */
 	public boolean succPrefixXor(int k) {
+		if (trace != null) {
+			trace.recordSuccPrefixXor(k);
+		}
 		int totalCount = 0;
 		AVLNode curr = getTreeMin();
-		while (curr != null && curr.getKey() <= k) {
+		while (curr != null && curr.isRealNode() && curr.getKey() <= k) {
 			totalCount += curr.getValue() ? 1 : 0;
 			curr = successor(curr);
 		}
@@ -706,6 +2194,319 @@ public class AVLTree {
 		return true;
 	}
 
+	/**
+	 * a union, intersection or difference of two subtrees, as in Blelloch,
+	 * Ferizovic and Sun, "Just Join for Parallel Ordered Sets" (SPAA 2016). the
+	 * root of one subtree splits the other, the two sides are combined
+	 * recursively, and the results are joined back around the root. the left side
+	 * is forked to the pool while this task combines the right side, down to
+	 * SEQUENTIAL_CUTOFF items, below which both sides stay in this task.
+	 * <p>
+	 * every task splits and joins through a scratch tree of its own, since the
+	 * rotations set the root of the tree they run in. the subtrees of different
+	 * tasks share no nodes.
+	 */
+	private static class SetOperation extends RecursiveTask<AVLNode> {
+		private static final long serialVersionUID = 1L;
+		final static int UNION = 0, INTERSECTION = 1, DIFFERENCE = 2;
+		final static int SEQUENTIAL_CUTOFF = 1 << 12;
+		final int operation;
+		final AVLNode first;
+		final AVLNode second;
+		final AVLTree scratch = new AVLTree();
+
+		SetOperation(int operation, AVLNode first, AVLNode second) {
+			this.operation = operation;
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		protected AVLNode compute() {
+			return combine(first, second);
+		}
+
+		/**
+		 * @return the root of the result for the subtrees t1 and t2, with a virtual
+		 *         parent.
+		 *
+		 *         time complexity: O(m log(n/m + 1))
+		 */
+		private AVLNode combine(AVLNode t1, AVLNode t2) {
+			if (!t1.isRealNode() || !t2.isRealNode()) {
+				if (operation == UNION) {
+					return scratch.detach(t1.isRealNode() ? t1 : t2);
+				}
+				return operation == INTERSECTION ? scratch.VIRTUAL : scratch.detach(t1);
+			}
+			boolean sequential = t1.getSubtreeSize() + t2.getSubtreeSize() <= SEQUENTIAL_CUTOFF;
+			// union and intersection split t2 at the root of t1, whose info is kept.
+			// difference splits t1 at the root of t2, which is removed.
+			AVLNode pivot = operation == DIFFERENCE ? t2 : t1;
+			AVLNode[] parts = scratch.splitSubtree(operation == DIFFERENCE ? t1 : t2, pivot.getKey());
+			AVLNode pivotLeft = pivot.getLeft();
+			AVLNode pivotRight = pivot.getRight();
+			AVLNode[] firsts = operation == DIFFERENCE ? new AVLNode[] { parts[0], parts[2] }
+					: new AVLNode[] { pivotLeft, pivotRight };
+			AVLNode[] seconds = operation == DIFFERENCE ? new AVLNode[] { pivotLeft, pivotRight }
+					: new AVLNode[] { parts[0], parts[2] };
+			AVLNode left;
+			AVLNode right;
+			if (sequential) {
+				left = combine(firsts[0], seconds[0]);
+				right = combine(firsts[1], seconds[1]);
+			} else {
+				SetOperation leftTask = new SetOperation(operation, firsts[0], seconds[0]);
+				leftTask.fork();
+				right = combine(firsts[1], seconds[1]);
+				left = leftTask.join();
+			}
+			if (operation == UNION || (operation == INTERSECTION && parts[1].isRealNode())) {
+				return scratch.joinSubtrees(left, pivot, right);
+			}
+			return scratch.joinSubtrees(left, right);
+		}
+	}
+
+	/**
+	 * the nodes whose ranks, counted from 0, are lo...hi-1. the first node is
+	 * found with select() when the traversal starts, and each following one with
+	 * nextNode(). a split cuts the remaining ranks in half.
+	 */
+	private abstract class RankSpliterator {
+		final static int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+				| Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+		int lo;
+		final int hi;
+		AVLNode node; // the node of rank lo, or null before the traversal starts.
+
+		RankSpliterator(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/**
+		 * @return the node of rank lo, moving lo past it, or null if no ranks are left.
+		 * 
+		 *         time complexity: O(1) amortized, and O(log n) for the first node.
+		 */
+		AVLNode advance() {
+			if (lo >= hi) {
+				return null;
+			}
+			AVLNode curr = node == null ? select(lo + 1) : node;
+			lo++;
+			node = lo < hi ? nextNode(curr) : null;
+			return curr;
+		}
+
+		/**
+		 * moves lo to the middle of the remaining ranks.
+		 * 
+		 * @return the first rank of this spliterator before the split, or -1 if too
+		 *         few ranks are left to split.
+		 * 
+		 *         time complexity: O(1)
+		 */
+		int splitLow() {
+			int mid = (lo + hi) >>> 1;
+			if (mid <= lo) {
+				return INVALID;
+			}
+			int first = lo;
+			lo = mid;
+			node = null;
+			return first;
+		}
+
+		public long estimateSize() {
+			return hi - lo;
+		}
+
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+	}
+
+	/**
+	 * the spliterator of keys().
+	 */
+	private class KeySpliterator extends RankSpliterator implements Spliterator.OfInt {
+
+		KeySpliterator(int lo, int hi) {
+			super(lo, hi);
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			AVLNode curr = advance();
+			if (curr == null) {
+				return false;
+			}
+			action.accept(curr.key);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (AVLNode curr = advance(); curr != null; curr = advance()) {
+				action.accept(curr.key);
+			}
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			int first = splitLow();
+			return first == INVALID ? null : new KeySpliterator(first, lo);
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return null; // natural order of the keys.
+		}
+	}
+
+	/**
+	 * the spliterator of entries().
+	 */
+	private class EntrySpliterator extends RankSpliterator implements Spliterator<AVLNode> {
+
+		EntrySpliterator(int lo, int hi) {
+			super(lo, hi);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super AVLNode> action) {
+			AVLNode curr = advance();
+			if (curr == null) {
+				return false;
+			}
+			action.accept(curr);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super AVLNode> action) {
+			for (AVLNode curr = advance(); curr != null; curr = advance()) {
+				action.accept(curr);
+			}
+		}
+
+		@Override
+		public Spliterator<AVLNode> trySplit() {
+			int first = splitLow();
+			return first == INVALID ? null : new EntrySpliterator(first, lo);
+		}
+
+		@Override
+		public Comparator<? super AVLNode> getComparator() {
+			return (a, b) -> Integer.compare(a.key, b.key);
+		}
+	}
+
+	/**
+	 * public class Cursor
+	 * <p>
+	 * This class represents a position among the items of the tree, in increasing
+	 * order of keys. A new cursor is before the first item: next() moves it to the
+	 * following item, and seek(k) to the first item whose key is k or greater.
+	 * key() and value() read the item at the cursor. A cursor holds nothing but
+	 * its node, so it can be reused for any number of scans, and moving it
+	 * allocates nothing. After the tree changes, a cursor must be moved with
+	 * seek(k) or reset() before it is used again.
+	 * <p>
+	 */
+	public class Cursor {
+		private AVLNode node; // null before the first item, virtual after the last.
+
+		/**
+		 * places the cursor before the first item.
+		 * 
+		 * time complexity: O(1)
+		 */
+		public void reset() {
+			this.node = null;
+		}
+
+		/**
+		 * moves the cursor to the item with the smallest key which is greater or
+		 * equal to k.
+		 * 
+		 * @param k
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item.
+		 * 
+		 *         time complexity: O(log n)
+		 */
+		public boolean seek(int k) {
+			AVLNode ceiling = VIRTUAL;
+			AVLNode curr = getRoot();
+			while (curr.isRealNode() && k != curr.key) {
+				if (k < curr.key) {
+					ceiling = curr;
+					curr = curr.left;
+				} else {
+					curr = curr.right;
+				}
+			}
+			this.node = curr.isRealNode() ? curr : ceiling;
+			return node.isRealNode();
+		}
+
+		/**
+		 * moves the cursor to the next item.
+		 * 
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item.
+		 * 
+		 *         time complexity: O(1) amortized over a scan, O(log n)
+		 */
+		public boolean next() {
+			if (node == null) {
+				node = getTreeMin();
+			} else if (node.isRealNode()) {
+				node = nextNode(node);
+			}
+			return node.isRealNode();
+		}
+
+		/**
+		 * @return true if the cursor is at an item.
+		 * 
+		 *         time complexity: O(1)
+		 */
+		public boolean hasItem() {
+			return node != null && node.isRealNode();
+		}
+
+		/**
+		 * @return the key of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item.
+		 * 
+		 *                                time complexity: O(1)
+		 */
+		public int key() {
+			return item().key;
+		}
+
+		/**
+		 * @return the info of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item.
+		 * 
+		 *                                time complexity: O(1)
+		 */
+		public boolean value() {
+			return item().value;
+		}
+
+		private AVLNode item() {
+			if (!hasItem()) {
+				throw new NoSuchElementException("cursor is not at an item");
+			}
+			return node;
+		}
+	}
+
 	/**
 	 * public class AVLNode
 	 * <p>
@@ -718,10 +2519,13 @@ public class AVLTree {
 		public int height;
 		public int balanceFactor;
 		public int trueCount;
+		public int subtreeSize;
 		public boolean isRealNode;
 		public AVLNode parent;
 		public AVLNode left;
 		public AVLNode right;
+		public AVLNode prev; // set only in threaded mode, but allocated in every node.
+		public AVLNode next;
 		final public int LEAF_DATA = 0;
 
 		/**
@@ -743,6 +2547,7 @@ public class AVLTree {
 			this.height = LEAF_DATA;
 			this.balanceFactor = LEAF_DATA;
 			this.trueCount = value == true ? 1 : 0;
+			this.subtreeSize = 1;
 			this.isRealNode = true;
 
 		}
@@ -761,6 +2566,7 @@ public class AVLTree {
 			this.height = INVALID;
 			this.balanceFactor = INVALID;
 			this.trueCount = LEAF_DATA;
+			this.subtreeSize = LEAF_DATA;
 			this.isRealNode = false;
 		}
 
@@ -911,6 +2717,40 @@ public class AVLTree {
 			return this.trueCount;
 		}
 
+		/**
+		 * sets the number of nodes in this node's subtree, including itself.
+		 * 
+		 * time complexity: O(1)
+		 */
+		public void setSubtreeSize() {
+			this.subtreeSize = getLeft().getSubtreeSize() + getRight().getSubtreeSize() + 1;
+		}
+
+		/**
+		 * counts one more item, with the given value, in this node's subtree size and
+		 * true count, without reading its children.
+		 * 
+		 * @param value
+		 * 
+		 *              time complexity: O(1)
+		 */
+		public void addToCounts(boolean value) {
+			this.subtreeSize++;
+			if (value) {
+				this.trueCount++;
+			}
+		}
+
+		/**
+		 * @return the number of nodes in this node's subtree, including itself. 0 for
+		 *         virtual node.
+		 * 
+		 *         time complexity: O(1)
+		 */
+		public int getSubtreeSize() {
+			return this.subtreeSize;
+		}
+
 		/**
 		 * maintains this node's fields.
 		 * 
@@ -920,6 +2760,7 @@ public class AVLTree {
 			setHeight();
 			setBalanceFactor();
 			setTrueCount();
+			setSubtreeSize();
 
 		}
 
@@ -0,0 +1,762 @@
+import java.util.Arrays;
+
+/**
+ * public class BPlusTree
+ * <p>
+ * This class represents a B+ tree with integer keys and boolean values, with
+ * the same operations as class AVLTree. All the items are kept in leaves of up
+ * to LEAF_KEYS keys, sorted in one int array, so a search reads a few cache
+ * lines of one leaf instead of following a pointer per level. The values of a
+ * leaf are the bits of one long, bit i for the i-th key. The leaves are linked
+ * in key order.
+ * <p>
+ * An inner node has up to INNER_CHILDREN children, with a separator key between
+ * every two of them and the number of true values under each of them.
+ * prefixXor(k) adds up the counts of the children to the left of its path on
+ * the way down, and the bits of the leaf it ends at. With 64 keys per node, a
+ * tree of 10^8 keys is 5 levels high.
+ * <p>
+ * A full node is split into two halves, and a node that falls below half full
+ * borrows an item from a sibling or is merged into it.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class BPlusTree implements IntBooleanTree {
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public static int LEAF_KEYS = 64;
+	final public static int INNER_CHILDREN = 64;
+	private Node root;
+	private Leaf head;
+	private Leaf tail;
+	private int size;
+	private int trueCount;
+	private int height;
+	// the inner nodes on the path of the last descent, from the root, and the
+	// index of the child taken at each of them.
+	private Inner[] pathNodes;
+	private int[] pathIndexes;
+
+	/**
+	 * a node: a Leaf or an Inner node. count is the number of keys in a leaf, and
+	 * the number of children of an inner node.
+	 */
+	static abstract class Node {
+		int count;
+	}
+
+	static final class Leaf extends Node {
+		final int[] keys = new int[LEAF_KEYS];
+		long values;
+		Leaf next;
+	}
+
+	/**
+	 * keys[j] separates children[j] and children[j + 1]: the keys under children[j]
+	 * are smaller than it, and the keys under children[j + 1] are greater or
+	 * equal. the arrays have room for one child more than INNER_CHILDREN, which
+	 * is split away right after it is added.
+	 */
+	static final class Inner extends Node {
+		final int[] keys = new int[INNER_CHILDREN];
+		final Node[] children = new Node[INNER_CHILDREN + 1];
+		final int[] trueCounts = new int[INNER_CHILDREN + 1];
+	}
+
+	/**
+	 * This constructor creates an empty BPlusTree, a single empty leaf.
+	 *
+	 * time complexity: O(1)
+	 */
+	public BPlusTree() {
+		Leaf leaf = new Leaf();
+		this.root = leaf;
+		this.head = leaf;
+		this.tail = leaf;
+		this.size = EMPTY;
+		this.trueCount = 0;
+		this.height = 0;
+		this.pathNodes = new Inner[8];
+		this.pathIndexes = new int[8];
+	}
+
+	/**
+	 * @return the number of keys in a[0...n-1] which are smaller than k.
+	 */
+	private static int lowerBound(int[] a, int n, int k) {
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (a[mid] < k) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the number of keys in a[0...n-1] which are smaller or equal to k.
+	 */
+	private static int upperBound(int[] a, int n, int k) {
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (a[mid] <= k) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return a mask of the bits below bit i.
+	 */
+	private static long below(int i) {
+		return i == 64 ? -1L : (1L << i) - 1;
+	}
+
+	private static boolean getBit(Leaf leaf, int i) {
+		return (leaf.values >>> i & 1L) != 0;
+	}
+
+	/**
+	 * @return the leaf where key k is or would be.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private Leaf findLeaf(int k) {
+		Node node = root;
+		for (int d = 0; d < height; d++) {
+			Inner inner = (Inner) node;
+			node = inner.children[upperBound(inner.keys, inner.count - 1, k)];
+		}
+		return (Leaf) node;
+	}
+
+	/**
+	 * like findLeaf, and records the path in pathNodes and pathIndexes.
+	 *
+	 * time complexity: O(log n)
+	 */
+	private Leaf descend(int k) {
+		Node node = root;
+		for (int d = 0; d < height; d++) {
+			Inner inner = (Inner) node;
+			int i = upperBound(inner.keys, inner.count - 1, k);
+			pathNodes[d] = inner;
+			pathIndexes[d] = i;
+			node = inner.children[i];
+		}
+		return (Leaf) node;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == EMPTY;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		Leaf leaf = findLeaf(k);
+		int pos = lowerBound(leaf.keys, leaf.count, k);
+		if (pos < leaf.count && leaf.keys[pos] == k) {
+			return getBit(leaf, pos);
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * nodes which were split (0 if none). returns -1 if an item with key k
+	 * already exists in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, boolean i) {
+		Leaf leaf = descend(k);
+		int pos = lowerBound(leaf.keys, leaf.count, k);
+		if (pos < leaf.count && leaf.keys[pos] == k) { // k already in tree.
+			return INVALID;
+		}
+		if (i) {
+			for (int d = 0; d < height; d++) {
+				pathNodes[d].trueCounts[pathIndexes[d]]++;
+			}
+			this.trueCount++;
+		}
+		this.size++;
+		if (leaf.count < LEAF_KEYS) {
+			insertAt(leaf, pos, k, i);
+			return 0;
+		}
+		Leaf right = splitLeaf(leaf);
+		if (pos > leaf.count) {
+			insertAt(right, pos - leaf.count, k, i);
+		} else {
+			insertAt(leaf, pos, k, i);
+		}
+		return addChild(right, right.keys[0], Long.bitCount(right.values));
+	}
+
+	/**
+	 * puts key k with info i at position pos of a leaf that is not full.
+	 *
+	 * time complexity: O(LEAF_KEYS)
+	 */
+	private static void insertAt(Leaf leaf, int pos, int k, boolean i) {
+		System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.count - pos);
+		leaf.keys[pos] = k;
+		long low = leaf.values & below(pos);
+		leaf.values = low | (leaf.values ^ low) << 1 | (i ? 1L << pos : 0L);
+		leaf.count++;
+	}
+
+	/**
+	 * removes the item at position pos of a leaf.
+	 *
+	 * time complexity: O(LEAF_KEYS)
+	 */
+	private static void removeAt(Leaf leaf, int pos) {
+		System.arraycopy(leaf.keys, pos + 1, leaf.keys, pos, leaf.count - pos - 1);
+		long low = leaf.values & below(pos);
+		leaf.values = low | (leaf.values >>> 1 & ~below(pos));
+		leaf.count--;
+	}
+
+	/**
+	 * moves the upper half of a full leaf to a new leaf, which follows it in the
+	 * list of leaves.
+	 *
+	 * @return the new leaf.
+	 *
+	 *         time complexity: O(LEAF_KEYS)
+	 */
+	private Leaf splitLeaf(Leaf leaf) {
+		int half = LEAF_KEYS / 2;
+		Leaf right = new Leaf();
+		System.arraycopy(leaf.keys, half, right.keys, 0, LEAF_KEYS - half);
+		right.values = leaf.values >>> half;
+		right.count = LEAF_KEYS - half;
+		leaf.values &= below(half);
+		leaf.count = half;
+		right.next = leaf.next;
+		if (right.next == null) {
+			this.tail = right;
+		}
+		leaf.next = right;
+		return right;
+	}
+
+	/**
+	 * adds a node that was split from the last node on the path as its right
+	 * sibling, splitting the ancestors that overflow, and the root.
+	 *
+	 * @param right     - the new node.
+	 * @param separator - the smallest key under right.
+	 * @param rightTrue - the number of true values under right.
+	 * @return the number of nodes which were split, including the first one.
+	 *
+	 *         time complexity: O(INNER_CHILDREN log n)
+	 */
+	private int addChild(Node right, int separator, int rightTrue) {
+		int splits = 1;
+		for (int d = height - 1; d >= 0; d--) {
+			Inner parent = pathNodes[d];
+			int i = pathIndexes[d];
+			int n = parent.count;
+			System.arraycopy(parent.children, i + 1, parent.children, i + 2, n - i - 1);
+			System.arraycopy(parent.trueCounts, i + 1, parent.trueCounts, i + 2, n - i - 1);
+			System.arraycopy(parent.keys, i, parent.keys, i + 1, n - i - 1);
+			parent.children[i + 1] = right;
+			parent.trueCounts[i + 1] = rightTrue;
+			parent.trueCounts[i] -= rightTrue;
+			parent.keys[i] = separator;
+			parent.count = n + 1;
+			if (parent.count <= INNER_CHILDREN) {
+				return splits;
+			}
+			// the children from half on move to a new node, and the separator
+			// before them moves up.
+			int half = parent.count / 2;
+			int moved = parent.count - half;
+			Inner sibling = new Inner();
+			System.arraycopy(parent.children, half, sibling.children, 0, moved);
+			System.arraycopy(parent.trueCounts, half, sibling.trueCounts, 0, moved);
+			System.arraycopy(parent.keys, half, sibling.keys, 0, moved - 1);
+			Arrays.fill(parent.children, half, parent.count, null);
+			sibling.count = moved;
+			parent.count = half;
+			separator = parent.keys[half - 1];
+			rightTrue = sum(sibling.trueCounts, moved);
+			right = sibling;
+			splits++;
+		}
+		Inner newRoot = new Inner();
+		newRoot.children[0] = root;
+		newRoot.children[1] = right;
+		newRoot.trueCounts[0] = trueCount - rightTrue;
+		newRoot.trueCounts[1] = rightTrue;
+		newRoot.keys[0] = separator;
+		newRoot.count = 2;
+		this.root = newRoot;
+		this.height++;
+		if (height == pathNodes.length) {
+			pathNodes = Arrays.copyOf(pathNodes, 2 * height);
+			pathIndexes = Arrays.copyOf(pathIndexes, 2 * height);
+		}
+		return splits;
+	}
+
+	private static int sum(int[] a, int n) {
+		int total = 0;
+		for (int j = 0; j < n; j++) {
+			total += a[j];
+		}
+		return total;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there. returns the
+	 * number of nodes which were merged into a sibling or borrowed an item from
+	 * one (0 if none). returns -1 if an item with key k was not found in the
+	 * tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		Leaf leaf = descend(k);
+		int pos = lowerBound(leaf.keys, leaf.count, k);
+		if (pos == leaf.count || leaf.keys[pos] != k) { // k not in tree.
+			return INVALID;
+		}
+		if (getBit(leaf, pos)) {
+			for (int d = 0; d < height; d++) {
+				pathNodes[d].trueCounts[pathIndexes[d]]--;
+			}
+			this.trueCount--;
+		}
+		removeAt(leaf, pos);
+		this.size--;
+		if (height == 0 || leaf.count >= LEAF_KEYS / 2) {
+			return 0;
+		}
+		if (!rebalanceLeaf(leaf)) {
+			return 1;
+		}
+		return 1 + rebalanceInner();
+	}
+
+	/**
+	 * refills a leaf that is less than half full, from its left sibling if it has
+	 * one and otherwise from its right sibling: borrows one item if the sibling is
+	 * more than half full, and otherwise merges the two leaves.
+	 *
+	 * @return true if the leaves were merged, so their parent lost a child.
+	 *
+	 *         time complexity: O(LEAF_KEYS + INNER_CHILDREN)
+	 */
+	private boolean rebalanceLeaf(Leaf leaf) {
+		Inner parent = pathNodes[height - 1];
+		int i = pathIndexes[height - 1];
+		if (i > 0) {
+			Leaf left = (Leaf) parent.children[i - 1];
+			if (left.count > LEAF_KEYS / 2) {
+				int last = left.count - 1;
+				int key = left.keys[last];
+				boolean value = getBit(left, last);
+				removeAt(left, last);
+				insertAt(leaf, 0, key, value);
+				parent.keys[i - 1] = key;
+				if (value) {
+					parent.trueCounts[i - 1]--;
+					parent.trueCounts[i]++;
+				}
+				return false;
+			}
+			mergeLeaves(left, leaf);
+			parent.trueCounts[i - 1] += parent.trueCounts[i];
+			removeChild(parent, i);
+		} else {
+			Leaf right = (Leaf) parent.children[1];
+			if (right.count > LEAF_KEYS / 2) {
+				int key = right.keys[0];
+				boolean value = getBit(right, 0);
+				removeAt(right, 0);
+				insertAt(leaf, leaf.count, key, value);
+				parent.keys[0] = right.keys[0];
+				if (value) {
+					parent.trueCounts[0]++;
+					parent.trueCounts[1]--;
+				}
+				return false;
+			}
+			mergeLeaves(leaf, right);
+			parent.trueCounts[0] += parent.trueCounts[1];
+			removeChild(parent, 1);
+		}
+		return true;
+	}
+
+	/**
+	 * moves the items of a leaf to the end of its left sibling, and unlinks it
+	 * from the list of leaves.
+	 *
+	 * time complexity: O(LEAF_KEYS)
+	 */
+	private void mergeLeaves(Leaf left, Leaf right) {
+		System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+		left.values |= right.values << left.count;
+		left.count += right.count;
+		left.next = right.next;
+		if (left.next == null) {
+			this.tail = left;
+		}
+	}
+
+	/**
+	 * removes the child at index j > 0 of an inner node, with the separator
+	 * before it.
+	 *
+	 * time complexity: O(INNER_CHILDREN)
+	 */
+	private static void removeChild(Inner parent, int j) {
+		int n = parent.count;
+		System.arraycopy(parent.children, j + 1, parent.children, j, n - j - 1);
+		System.arraycopy(parent.trueCounts, j + 1, parent.trueCounts, j, n - j - 1);
+		System.arraycopy(parent.keys, j, parent.keys, j - 1, n - j - 1);
+		parent.count = n - 1;
+		parent.children[n - 1] = null;
+	}
+
+	/**
+	 * refills the inner nodes on the path which are less than half full, from the
+	 * bottom up, like rebalanceLeaf, and removes a root that is left with one
+	 * child.
+	 *
+	 * @return the number of inner nodes which were refilled.
+	 *
+	 *         time complexity: O(INNER_CHILDREN log n)
+	 */
+	private int rebalanceInner() {
+		int count = 0;
+		int half = INNER_CHILDREN / 2;
+		for (int d = height - 1; d > 0; d--) {
+			Inner node = pathNodes[d];
+			if (node.count >= half) {
+				break;
+			}
+			count++;
+			Inner parent = pathNodes[d - 1];
+			int i = pathIndexes[d - 1];
+			if (i > 0) {
+				Inner left = (Inner) parent.children[i - 1];
+				if (left.count > half) { // the last child of left moves to the front of node.
+					System.arraycopy(node.children, 0, node.children, 1, node.count);
+					System.arraycopy(node.trueCounts, 0, node.trueCounts, 1, node.count);
+					System.arraycopy(node.keys, 0, node.keys, 1, node.count - 1);
+					int last = left.count - 1;
+					int moved = left.trueCounts[last];
+					node.children[0] = left.children[last];
+					node.trueCounts[0] = moved;
+					node.keys[0] = parent.keys[i - 1];
+					node.count++;
+					parent.keys[i - 1] = left.keys[last - 1];
+					left.children[last] = null;
+					left.count--;
+					parent.trueCounts[i - 1] -= moved;
+					parent.trueCounts[i] += moved;
+					break;
+				}
+				mergeInner(left, node, parent.keys[i - 1]);
+				parent.trueCounts[i - 1] += parent.trueCounts[i];
+				removeChild(parent, i);
+			} else {
+				Inner right = (Inner) parent.children[1];
+				if (right.count > half) { // the first child of right moves to the end of node.
+					int moved = right.trueCounts[0];
+					node.children[node.count] = right.children[0];
+					node.trueCounts[node.count] = moved;
+					node.keys[node.count - 1] = parent.keys[0];
+					node.count++;
+					parent.keys[0] = right.keys[0];
+					System.arraycopy(right.children, 1, right.children, 0, right.count - 1);
+					System.arraycopy(right.trueCounts, 1, right.trueCounts, 0, right.count - 1);
+					System.arraycopy(right.keys, 1, right.keys, 0, right.count - 2);
+					right.count--;
+					right.children[right.count] = null;
+					parent.trueCounts[0] += moved;
+					parent.trueCounts[1] -= moved;
+					break;
+				}
+				mergeInner(node, right, parent.keys[0]);
+				parent.trueCounts[0] += parent.trueCounts[1];
+				removeChild(parent, 1);
+			}
+		}
+		Inner top = (Inner) root;
+		if (top.count == 1) {
+			this.root = top.children[0];
+			this.height--;
+		}
+		return count;
+	}
+
+	/**
+	 * appends the children of an inner node to its left sibling, with the
+	 * separator between them.
+	 *
+	 * time complexity: O(INNER_CHILDREN)
+	 */
+	private static void mergeInner(Inner left, Inner right, int separator) {
+		int n = left.count;
+		left.keys[n - 1] = separator;
+		System.arraycopy(right.keys, 0, left.keys, n, right.count - 1);
+		System.arraycopy(right.children, 0, left.children, n, right.count);
+		System.arraycopy(right.trueCounts, 0, left.trueCounts, n, right.count);
+		left.count = n + right.count;
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		return empty() ? null : getBit(head, 0);
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		return empty() ? null : getBit(tail, tail.count - 1);
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		for (Leaf leaf = head; leaf != null; leaf = leaf.next) {
+			System.arraycopy(leaf.keys, 0, arr, idx, leaf.count);
+			idx += leaf.count;
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		int idx = 0;
+		for (Leaf leaf = head; leaf != null; leaf = leaf.next) {
+			for (int j = 0; j < leaf.count; j++) {
+				arr[idx++] = getBit(leaf, j);
+			}
+		}
+		return arr;
+	}
+
+	/**
+	 * public long[] infoToBitmap()
+	 * <p>
+	 * Returns the info in the tree, sorted by their respective keys, packed as a
+	 * bitmap: the info of the j-th smallest key is bit j % 64 of word j / 64, and
+	 * the bits after the last item are 0. The value bits of every leaf are copied
+	 * as one word.
+	 *
+	 * time complexity: O(n)
+	 */
+	public long[] infoToBitmap() {
+		long[] bitmap = new long[(size() + 63) >>> 6];
+		int idx = 0;
+		for (Leaf leaf = head; leaf != null; leaf = leaf.next) {
+			if (leaf.count == 0) {
+				continue;
+			}
+			int shift = idx & 63;
+			bitmap[idx >>> 6] |= leaf.values << shift;
+			if (shift != 0 && shift + leaf.count > 64) {
+				bitmap[(idx >>> 6) + 1] |= leaf.values >>> (64 - shift);
+			}
+			idx += leaf.count;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * passes the key and info of every item in the tree to action, in increasing
+	 * order of keys.
+	 *
+	 * time complexity: O(n)
+	 */
+	public void forEach(IntBooleanConsumer action) {
+		for (Leaf leaf = head; leaf != null; leaf = leaf.next) {
+			for (int j = 0; j < leaf.count; j++) {
+				action.accept(leaf.keys[j], getBit(leaf, j));
+			}
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public int height()
+	 * <p>
+	 * Returns the number of inner levels above the leaves, 0 if the root is a
+	 * leaf.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int height() {
+		return this.height;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of items whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		return prefixTrueCount(k) % 2 != 0;
+	}
+
+	/**
+	 * public boolean rangeXor(int lo, int hi)
+	 *
+	 * calculates the xor of the values of items whose keys are between lo and hi
+	 * (inclusive). lo and hi do not have to be keys in the tree. returns false if
+	 * lo > hi.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean rangeXor(int lo, int hi) {
+		return countTrue(lo, hi) % 2 != 0;
+	}
+
+	/**
+	 * public int countTrue(int lo, int hi)
+	 *
+	 * returns the number of items with value true whose keys are between lo and
+	 * hi (inclusive). lo and hi do not have to be keys in the tree. returns 0 if
+	 * lo > hi.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int countTrue(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		int below = lo == Integer.MIN_VALUE ? 0 : prefixTrueCount(lo - 1);
+		return prefixTrueCount(hi) - below;
+	}
+
+	/**
+	 * descends once from the root towards k, adding the true counts of the
+	 * children to the left of the path, and the true values of the leaf up to k.
+	 *
+	 * @param k
+	 * @return the number of items with value true whose keys are smaller or equal
+	 *         to k.
+	 *
+	 *         time complexity: O(INNER_CHILDREN log n)
+	 */
+	private int prefixTrueCount(int k) {
+		int totalCount = 0;
+		Node node = root;
+		for (int d = 0; d < height; d++) {
+			Inner inner = (Inner) node;
+			int i = upperBound(inner.keys, inner.count - 1, k);
+			for (int j = 0; j < i; j++) {
+				totalCount += inner.trueCounts[j];
+			}
+			node = inner.children[i];
+		}
+		Leaf leaf = (Leaf) node;
+		return totalCount + Long.bitCount(leaf.values & below(upperBound(leaf.keys, leaf.count, k)));
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * However, the implementation of succPrefixXor is the following: starting from
+	 * the smallest key, visit the items one by one in increasing order of keys,
+	 * through the list of leaves, until you pass key k. Return the xor of all
+	 * visited items.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		int totalCount = 0;
+		for (Leaf leaf = head; leaf != null; leaf = leaf.next) {
+			for (int j = 0; j < leaf.count; j++) {
+				if (leaf.keys[j] > k) {
+					return totalCount % 2 != 0;
+				}
+				totalCount += getBit(leaf, j) ? 1 : 0;
+			}
+		}
+		return totalCount % 2 != 0;
+	}
+
+}
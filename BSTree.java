@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * public class BSTree
@@ -10,12 +11,13 @@ import java.util.List;
  * @author Sharon Tadmor
  */
 
-public class BSTree {
+public class BSTree implements IntBooleanTree {
 	final public AVLNode VIRTUAL = new AVLNode();
 	public AVLNode root;
 	public AVLNode min;
 	public AVLNode max;
 	public int size;
+	private TreeMetrics metrics = null;
 	final public int EMPTY = 0;
 	final public int INVALID = -1;
 	final public int ILLEGAL_BF = 2;
@@ -52,6 +54,9 @@ public class BSTree {
 	 * time complexity: O(log n)
 	 */
 	public Boolean search(int k) {
+		if (metrics != null) {
+			metrics.recordSearch();
+		}
 		AVLNode node = searchNode(k);
 		if (node != null && k == node.getKey()) {
 			return node.getValue();
@@ -67,6 +72,9 @@ public class BSTree {
 	 *         time complexity: O(log n)
 	 */
 	public AVLNode searchNode(int k) {
+		if (metrics != null) {
+			return recordedSearchNode(this.root, k);
+		}
 		AVLNode prev = null;
 		AVLNode curr = this.root;
 		while (curr.isRealNode()) {
@@ -83,6 +91,64 @@ public class BSTree {
 		return prev;
 	}
 
+	/**
+	 * the search of searchNode, which also records the number of nodes it visits
+	 * as the search depth. it is a loop of its own, so that the search without
+	 * metrics stays as it was.
+	 * 
+	 * @pre metrics != null
+	 * @param start - the root of the tree.
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent (null if the tree is empty).
+	 * 
+	 *         time complexity: O(height of the tree)
+	 */
+	private AVLNode recordedSearchNode(AVLNode start, int k) {
+		AVLNode prev = null;
+		AVLNode curr = start;
+		int depth = 0;
+		while (curr.isRealNode()) {
+			depth++;
+			if (k == curr.getKey()) {
+				break;
+			}
+			prev = curr;
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				curr = curr.getRight();
+			}
+		}
+		metrics.recordSearchDepth(depth);
+		return curr.isRealNode() ? curr : prev;
+	}
+
+	/**
+	 * public void setMetrics(TreeMetrics metrics)
+	 * <p>
+	 * makes the tree record its operations and search depths into the given
+	 * metrics, or stops it with null, the default. the tree does not rebalance, so
+	 * it records no rotations or rebalancing climbs; the depths show how far it is
+	 * from balanced.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public void setMetrics(TreeMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * public TreeMetrics getMetrics()
+	 * <p>
+	 * returns the metrics the tree records into, or null if there are none.
+	 * 
+	 * time complexity: O(1)
+	 */
+	public TreeMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	/**
 	 * links two nodes as parent and its left or right child.
 	 * 
@@ -114,6 +180,9 @@ public class BSTree {
 	 * time complexity: O(log n)
 	 */
 	public int insert(int k, boolean i) {
+		if (metrics != null) {
+			metrics.recordInserts(1);
+		}
 		int count = 1; // 1 stands for the node we inserted.
 		AVLNode newNode = new AVLNode(k, i);
 		if (size() == 0) { // tree is empty
@@ -133,6 +202,11 @@ public class BSTree {
 		} else if (k > getTreeMax().getKey()) { // new max in the tree.
 			setTreeMax(newNode);
 		}
+		if (i) { // the new item is true in the subtrees of its ancestors.
+			for (AVLNode node = parent; node.isRealNode(); node = node.getParent()) {
+				node.trueCount++;
+			}
+		}
 		this.size++;
 		return count;
 	}
@@ -148,6 +222,9 @@ public class BSTree {
 	 * time complexity: O(log n)
 	 */
 	public int delete(int k) {
+		if (metrics != null) {
+			metrics.recordDeletes(1);
+		}
 		if (size() == 0) { // tree is empty
 			return INVALID;
 		}
@@ -161,7 +238,9 @@ public class BSTree {
 		if (node.getKey() == getTreeMax().getKey()) {
 			deleteTreeMax(node);
 		}
-		deleteNode(node);
+		for (AVLNode curr = deleteNode(node); curr.isRealNode(); curr = curr.getParent()) {
+			curr.setTrueCount();
+		}
 		this.size--;
 		return 0;
 	}
@@ -374,30 +453,13 @@ public class BSTree {
 	 */
 	public int[] keysToArray() {
 		int[] arr = new int[size()];
-		if (this.empty()) {
-			return arr;
+		int idx = 0;
+		for (AVLNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.key;
 		}
-		getSortedKeysArray(getRoot(), arr, 0);
 		return arr;
 	}
 
-	/**
-	 * Traverses the tree in-order, to create a sorted array which contains all keys
-	 * in the tree.
-	 * 
-	 * time complexity: O(n)
-	 */
-	private int getSortedKeysArray(AVLNode node, int[] arr, int idx) {
-		if (node.getLeft().isRealNode()) {
-			idx = getSortedKeysArray(node.getLeft(), arr, idx);
-		}
-		arr[idx++] = node.getKey();
-		if (node.getRight().isRealNode()) {
-			idx = getSortedKeysArray(node.getRight(), arr, idx);
-		}
-		return idx;
-	}
-
 	/**
 	 * public boolean[] infoToArray()
 	 * <p>
@@ -407,29 +469,57 @@ public class BSTree {
 	 */
 	public boolean[] infoToArray() {
 		boolean[] arr = new boolean[size()];
-		if (this.empty()) {
-			return arr;
+		int idx = 0;
+		for (AVLNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.value;
 		}
-		getSortedValuesArray(getRoot(), arr, 0);
 		return arr;
 	}
 
 	/**
-	 * Traverses the tree in-order, to create an array which contains the info of
-	 * all the nodes in the tree, according to sorted order of keys.
-	 * 
-	 * time complexity: O(n)
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * performs the given action on the key and info of every item in the tree, in
+	 * increasing order of keys. the tree is walked through the parent links, so
+	 * even a tree as deep as its size needs no recursion. time complexity: O(n)
 	 */
-	private int getSortedValuesArray(AVLNode node, boolean[] arr, int idx) {
-		if (node.getLeft().isRealNode()) {
-			idx = getSortedValuesArray(node.getLeft(), arr, idx);
-		}
-		arr[idx++] = node.getValue();
-		if (node.getRight().isRealNode()) {
-			idx = getSortedValuesArray(node.getRight(), arr, idx);
+	public void forEach(IntBooleanConsumer action) {
+		for (AVLNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			action.accept(node.key, node.value);
 		}
-		return idx;
+	}
+
+	/**
+	 * public Cursor cursor()
+	 * <p>
+	 * returns a new cursor over the items of the tree, placed before the first
+	 * item. time complexity: O(1)
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
 
+	/**
+	 * @param node
+	 * @return the node that follows the given node in increasing order of keys, or
+	 *         a virtual node if it has the largest key. a walk over all the nodes
+	 *         crosses every edge twice, so a step takes O(1) amortized. time
+	 *         complexity: O(h), h being the height of the tree
+	 */
+	private AVLNode nextNode(AVLNode node) {
+		AVLNode next = node.right;
+		if (next.isRealNode()) {
+			while (next.left.isRealNode()) {
+				next = next.left;
+			}
+			return next;
+		}
+		next = node.parent;
+		while (next.isRealNode() && node == next.right) {
+			node = next;
+			next = node.parent;
+		}
+		return next;
 	}
 
 	/**
@@ -511,26 +601,24 @@ public class BSTree {
 	/**
 	 * public boolean prefixXor(int k)
 	 *
-	 * Given an argument k which is a key in the tree, calculate the xor of the
-	 * values of nodes whose keys are smaller or equal to k.
-	 *
-	 * precondition: this.search(k) != null
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree: the climb
+	 * from the end of its search path counts every node with a key smaller or
+	 * equal to k, with its left subtree.
 	 *
-	 * time complexity: O(log n)
+	 * time complexity: O(h), h being the height of the tree
 	 */
 	public boolean prefixXor(int k) {
 		int totalCount = 0;
-		AVLNode curr = searchNode(k);
-		AVLNode prev = null;
+		AVLNode curr = empty() ? VIRTUAL : searchNode(k);
 		while (curr.isRealNode()) {
-			if (k == curr.getKey() || prev == curr.getRight()) {
+			if (curr.getKey() <= k) {
 				if (curr.getValue()) {
 					totalCount++;
 				}
 				totalCount += curr.getLeft().getTrueCount();
 			}
-			prev = curr;
-			curr = prev.getParent();
+			curr = curr.getParent();
 		}
 		if (totalCount % 2 == 0) {
 			return false;
@@ -544,16 +632,15 @@ public class BSTree {
 	 * This function is identical to prefixXor(int k) in terms of input/output.
 	 * However, the implementation of succPrefixXor is the following:
 	 * starting from the minimum-key node, iteratively call successor until you
-	 * reach the node of key k. Return the xor of all visited nodes.
-	 *
-	 * precondition: this.search(k) != null
+	 * reach the node of key k. Return the xor of all visited nodes. k does not
+	 * have to be a key in the tree.
 	 * 
 	 * time complexity: O(n)
 	 */
 	public boolean succPrefixXor(int k) {
 		int totalCount = 0;
 		AVLNode curr = getTreeMin();
-		while (curr != null && curr.getKey() <= k) {
+		while (curr != null && curr.isRealNode() && curr.getKey() <= k) {
 			totalCount += curr.getValue() ? 1 : 0;
 			curr = successor(curr);
 		}
@@ -563,6 +650,99 @@ public class BSTree {
 		return true;
 	}
 
+	/**
+	 * public class Cursor
+	 * <p>
+	 * This class represents a position among the items of the tree, in increasing
+	 * order of keys. A new cursor is before the first item: next() moves it to the
+	 * following item, and seek(k) to the first item whose key is k or greater.
+	 * key() and value() read the item at the cursor. A cursor can be reused for
+	 * any number of scans, and moving it allocates nothing. After the tree
+	 * changes, a cursor must be moved with seek(k) or reset() before it is used
+	 * again.
+	 * <p>
+	 */
+	public class Cursor {
+		private AVLNode node; // null before the first item, virtual after the last.
+
+		/**
+		 * places the cursor before the first item. time complexity: O(1)
+		 */
+		public void reset() {
+			this.node = null;
+		}
+
+		/**
+		 * moves the cursor to the item with the smallest key which is greater or
+		 * equal to k.
+		 * 
+		 * @param k
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item. time complexity: O(h), h being the height of the tree
+		 */
+		public boolean seek(int k) {
+			AVLNode ceiling = VIRTUAL;
+			AVLNode curr = getRoot();
+			while (curr.isRealNode() && k != curr.key) {
+				if (k < curr.key) {
+					ceiling = curr;
+					curr = curr.left;
+				} else {
+					curr = curr.right;
+				}
+			}
+			this.node = curr.isRealNode() ? curr : ceiling;
+			return node.isRealNode();
+		}
+
+		/**
+		 * moves the cursor to the next item.
+		 * 
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item. time complexity: O(1) amortized over a scan
+		 */
+		public boolean next() {
+			if (node == null) {
+				node = getTreeMin();
+			} else if (node.isRealNode()) {
+				node = nextNode(node);
+			}
+			return node.isRealNode();
+		}
+
+		/**
+		 * @return true if the cursor is at an item. time complexity: O(1)
+		 */
+		public boolean hasItem() {
+			return node != null && node.isRealNode();
+		}
+
+		/**
+		 * @return the key of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item. time
+		 *                                complexity: O(1)
+		 */
+		public int key() {
+			return item().key;
+		}
+
+		/**
+		 * @return the info of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item. time
+		 *                                complexity: O(1)
+		 */
+		public boolean value() {
+			return item().value;
+		}
+
+		private AVLNode item() {
+			if (!hasItem()) {
+				throw new NoSuchElementException("cursor is not at an item");
+			}
+			return node;
+		}
+	}
+
 	/**
 	 * public class AVLNode
 	 * <p>
@@ -0,0 +1,951 @@
+import java.util.Arrays;
+
+/**
+ * public class CompactAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values, stored
+ * as parallel primitive arrays instead of node objects. A node is an index
+ * (slot) into the arrays, and VIRTUAL (-1) stands for the virtual node. Slots
+ * of deleted nodes are kept in a free list and reused by later insertions. The
+ * values are packed as one bit per slot.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class CompactAVLTree implements IntBooleanTree {
+	final public int VIRTUAL = -1;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public int ILLEGAL_BF = 2;
+	private static final int DEFAULT_CAPACITY = 16;
+	public int root;
+	public int min;
+	public int max;
+	public int size;
+	private int[] keys;
+	private byte[] heights;
+	private int[] trueCounts;
+	private long[] values;
+	private int[] lefts;
+	private int[] rights;
+	private int[] parents;
+	private int freeList;
+	private int used;
+
+	/**
+	 * This constructor creates an empty CompactAVLTree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public CompactAVLTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * This constructor creates an empty CompactAVLTree with room for capacity
+	 * nodes before the arrays need to grow.
+	 *
+	 * @param capacity
+	 *
+	 *                 time complexity: O(capacity)
+	 */
+	public CompactAVLTree(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.keys = new int[capacity];
+		this.heights = new byte[capacity];
+		this.trueCounts = new int[capacity];
+		this.values = new long[(capacity + 63) >>> 6];
+		this.lefts = new int[capacity];
+		this.rights = new int[capacity];
+		this.parents = new int[capacity];
+		this.freeList = VIRTUAL;
+		this.used = EMPTY;
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public static CompactAVLTree fromSorted(int[] keys, boolean[] values)
+	 * <p>
+	 * builds a perfectly balanced tree from keys given in strictly increasing
+	 * order, where values[i] is the info of keys[i]. the values are packed into a
+	 * bitmap, which is built from as in fromSorted(keys, valueBits).
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length or the keys
+	 *                                  are not strictly increasing.
+	 *
+	 *                                  time complexity: O(n)
+	 */
+	public static CompactAVLTree fromSorted(int[] keys, boolean[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		long[] valueBits = new long[(values.length + 63) >>> 6];
+		for (int i = 0; i < values.length; i++) {
+			if (values[i]) {
+				valueBits[i >>> 6] |= 1L << i;
+			}
+		}
+		return fromSorted(keys, valueBits);
+	}
+
+	/**
+	 * public static CompactAVLTree fromSorted(int[] keys, long[] valueBits)
+	 * <p>
+	 * builds a perfectly balanced tree from keys given in strictly increasing
+	 * order, where the info of keys[i] is bit i % 64 of valueBits[i / 64], as
+	 * written by infoToBitmap(). the i-th key takes slot i, so the keys and the
+	 * value words are copied into the arrays as they are. the subtrees are linked
+	 * bottom-up, so the true count of a node is taken from its children.
+	 *
+	 * @throws IllegalArgumentException if valueBits has less than (keys.length +
+	 *                                  63) / 64 words or the keys are not strictly
+	 *                                  increasing.
+	 *
+	 *                                  time complexity: O(n)
+	 */
+	public static CompactAVLTree fromSorted(int[] keys, long[] valueBits) {
+		int words = (keys.length + 63) >>> 6;
+		if (valueBits.length < words) {
+			throw new IllegalArgumentException("valueBits has too few words for " + keys.length + " keys");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+			}
+		}
+		CompactAVLTree tree = new CompactAVLTree(keys.length);
+		if (keys.length == 0) {
+			return tree;
+		}
+		System.arraycopy(keys, 0, tree.keys, 0, keys.length);
+		System.arraycopy(valueBits, 0, tree.values, 0, words);
+		if ((keys.length & 63) != 0) { // clear the bits after the last key.
+			tree.values[words - 1] &= (1L << keys.length) - 1;
+		}
+		tree.root = tree.buildSubtree(0, keys.length - 1, tree.VIRTUAL);
+		tree.used = keys.length;
+		tree.size = keys.length;
+		tree.min = 0;
+		tree.max = keys.length - 1;
+		return tree;
+	}
+
+	/**
+	 * links the slots lo...hi, which hold keys in increasing order, into a
+	 * balanced subtree, and sets their heights and true counts.
+	 *
+	 * @pre lo <= hi
+	 * @return the root of the subtree.
+	 *
+	 *         time complexity: O(hi - lo)
+	 */
+	private int buildSubtree(int lo, int hi, int parent) {
+		int mid = (lo + hi) >>> 1;
+		parents[mid] = parent;
+		lefts[mid] = lo < mid ? buildSubtree(lo, mid - 1, mid) : VIRTUAL;
+		rights[mid] = mid < hi ? buildSubtree(mid + 1, hi, mid) : VIRTUAL;
+		heights[mid] = (byte) (1 + Math.max(getHeight(lefts[mid]), getHeight(rights[mid])));
+		trueCounts[mid] = getTrueCount(lefts[mid]) + getTrueCount(rights[mid]) + (getBit(mid) ? 1 : 0);
+		return mid;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == EMPTY;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		int node = searchNode(k);
+		if (node != VIRTUAL && k == keys[node]) {
+			return getBit(node);
+		}
+		return null;
+	}
+
+	/**
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent (VIRTUAL if the tree is empty).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int searchNode(int k) {
+		int prev = VIRTUAL;
+		int curr = this.root;
+		while (curr != VIRTUAL) {
+			if (k == keys[curr]) {
+				return curr;
+			}
+			prev = curr;
+			curr = k < keys[curr] ? lefts[curr] : rights[curr];
+		}
+		return prev;
+	}
+
+	/**
+	 * takes a free slot for a new leaf node, growing the arrays if needed.
+	 *
+	 * @param k
+	 * @param i
+	 * @return the new node.
+	 *
+	 *         time complexity: O(1) amortized
+	 */
+	private int allocate(int k, boolean i) {
+		int node;
+		if (freeList != VIRTUAL) {
+			node = freeList;
+			freeList = lefts[node];
+		} else {
+			if (used == keys.length) {
+				grow();
+			}
+			node = used++;
+		}
+		keys[node] = k;
+		setBit(node, i);
+		heights[node] = 0;
+		trueCounts[node] = i ? 1 : 0;
+		lefts[node] = VIRTUAL;
+		rights[node] = VIRTUAL;
+		parents[node] = VIRTUAL;
+		return node;
+	}
+
+	/**
+	 * returns a detached node's slot to the free list. the free list is chained
+	 * through the left links.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void release(int node) {
+		lefts[node] = freeList;
+		rights[node] = VIRTUAL;
+		parents[node] = VIRTUAL;
+		freeList = node;
+	}
+
+	/**
+	 * @param node
+	 * @return the value of the node, which is bit node % 64 of values[node / 64].
+	 *
+	 *         time complexity: O(1)
+	 */
+	private boolean getBit(int node) {
+		return (values[node >>> 6] >>> node & 1L) != 0;
+	}
+
+	/**
+	 * sets the value bit of the node.
+	 *
+	 * @param node
+	 * @param i
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void setBit(int node, boolean i) {
+		if (i) {
+			values[node >>> 6] |= 1L << node;
+		} else {
+			values[node >>> 6] &= ~(1L << node);
+		}
+	}
+
+	/**
+	 * doubles the capacity of all the node arrays.
+	 *
+	 * time complexity: O(n)
+	 */
+	private void grow() {
+		int capacity = keys.length << 1;
+		keys = Arrays.copyOf(keys, capacity);
+		heights = Arrays.copyOf(heights, capacity);
+		trueCounts = Arrays.copyOf(trueCounts, capacity);
+		values = Arrays.copyOf(values, (capacity + 63) >>> 6);
+		lefts = Arrays.copyOf(lefts, capacity);
+		rights = Arrays.copyOf(rights, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+	}
+
+	/**
+	 * links two nodes as parent and its left or right child.
+	 *
+	 * @pre child != VIRTUAL
+	 * @param parent
+	 * @param child
+	 *
+	 *               time complexity: O(1)
+	 */
+	private void setEdge(int parent, int child) {
+		parents[child] = parent;
+		if (parent != VIRTUAL) {
+			if (keys[child] < keys[parent]) {
+				lefts[parent] = child;
+			} else {
+				rights[parent] = child;
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree. the tree remains valid
+	 * (keep its invariants). returns the number of nodes which require rebalancing
+	 * operations (i.e. promotions or rotations). This always includes the
+	 * newly-created node. returns -1 if an item with key k already exists in the
+	 * tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, boolean i) {
+		int count = 1; // 1 stands for the node we inserted.
+		if (size() == 0) { // tree is empty
+			int newNode = allocate(k, i);
+			this.root = newNode;
+			this.size++;
+			this.min = newNode;
+			this.max = newNode;
+			return count;
+		}
+		int parent = searchNode(k);
+		if (k == keys[parent]) { // k already in tree.
+			return INVALID;
+		}
+		int newNode = allocate(k, i);
+		setEdge(parent, newNode);
+		if (k < keys[min]) { // new minimum in the tree.
+			this.min = newNode;
+		} else if (k > keys[max]) { // new max in the tree.
+			this.max = newNode;
+		}
+		this.size++;
+		count += rebalanceTree(parent);
+		return count;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * remains valid (keep its invariants). returns the number of nodes which
+	 * required rebalancing operations (i.e. demotions or rotations). returns -1 if
+	 * an item with key k was not found in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		if (size() == 0) { // tree is empty
+			return INVALID;
+		}
+		int node = searchNode(k);
+		if (k != keys[node]) { // k not in tree.
+			return INVALID;
+		}
+		if (node == min) {
+			this.min = successor(node);
+		}
+		if (node == max) {
+			this.max = predecessor(node);
+		}
+		int curr = deleteNode(node);
+		release(node);
+		this.size--;
+		return rebalanceTree(curr);
+	}
+
+	/**
+	 * deletes a node from the tree in one of three cases: (1) node is a leaf. (2)
+	 * node has one child. (3) node has two children.
+	 *
+	 * @param node
+	 * @return curr node from which to start rebalancing the tree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int deleteNode(int node) {
+		int curr;
+		if (lefts[node] == VIRTUAL && rights[node] == VIRTUAL) { // node is a leaf.
+			curr = parents[node];
+			deleteLeaf(node);
+		} else if (lefts[node] != VIRTUAL && rights[node] != VIRTUAL) { // node has two children.
+			int succ = successor(node);
+			curr = parents[succ] == node ? succ : parents[succ];
+			deleteByReplacement(node);
+		} else { // node has one child.
+			curr = lefts[node] != VIRTUAL ? lefts[node] : rights[node];
+			deleteByBypass(node);
+		}
+		return curr;
+	}
+
+	/**
+	 * deletes leaf node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteLeaf(int node) {
+		if (node == root) {
+			this.root = VIRTUAL;
+			return;
+		}
+		int parent = parents[node];
+		if (node == lefts[parent]) {
+			lefts[parent] = VIRTUAL;
+		} else {
+			rights[parent] = VIRTUAL;
+		}
+		parents[node] = VIRTUAL;
+	}
+
+	/**
+	 * deletes node with two children, by replacing it with its successor.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private void deleteByReplacement(int node) {
+		int succ = successor(node);
+		deleteNode(succ);
+		if (rights[node] != VIRTUAL) {
+			setEdge(succ, rights[node]);
+		}
+		setEdge(succ, lefts[node]);
+		if (node == root) {
+			this.root = succ;
+			parents[succ] = VIRTUAL;
+		} else {
+			setEdge(parents[node], succ);
+		}
+		parents[node] = VIRTUAL;
+		lefts[node] = VIRTUAL;
+		rights[node] = VIRTUAL;
+		maintainFields(succ);
+	}
+
+	/**
+	 * deletes node with one child, by bypassing it.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteByBypass(int node) {
+		int child = lefts[node] != VIRTUAL ? lefts[node] : rights[node];
+		if (node == root) {
+			this.root = child;
+			parents[child] = VIRTUAL;
+		} else {
+			setEdge(parents[node], child);
+		}
+		lefts[node] = VIRTUAL;
+		rights[node] = VIRTUAL;
+		parents[node] = VIRTUAL;
+	}
+
+	/**
+	 * rebalances the tree into a legal AVL tree. maintains nodes' fields.
+	 *
+	 * @param node
+	 * @return number of nodes which require rebalancing operations (i.e. promotions
+	 *         or rotations).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int rebalanceTree(int node) {
+		int count = 0;
+		while (node != VIRTUAL) {
+			int prevHeight = heights[node];
+			maintainFields(node);
+			boolean heightChanged = prevHeight != heights[node];
+			boolean legalBF = Math.abs(getBalanceFactor(node)) < ILLEGAL_BF;
+			if (heightChanged || !legalBF) {
+				count++;
+				if (!legalBF) {
+					rotate(node);
+				}
+			}
+			node = parents[node];
+		}
+		return count;
+	}
+
+	/**
+	 * rebalances a node whose balance factor is illegal, specifically BF = 2 or -2.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotate(int node) {
+		int balanceFactor = getBalanceFactor(node);
+		if (balanceFactor == ILLEGAL_BF) {
+			if (getBalanceFactor(lefts[node]) == -1) {
+				rotateLeft(lefts[node]);
+			}
+			rotateRight(node);
+		} else if (balanceFactor == (-1) * ILLEGAL_BF) {
+			if (getBalanceFactor(rights[node]) == 1) {
+				rotateRight(rights[node]);
+			}
+			rotateLeft(node);
+		}
+	}
+
+	/**
+	 * performs a left rotation on a node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateLeft(int node) {
+		int x = rights[node];
+		int parent = parents[node];
+		rights[node] = lefts[x];
+		parents[x] = parent;
+		if (lefts[x] != VIRTUAL) {
+			parents[lefts[x]] = node;
+		}
+		if (parent == VIRTUAL) {
+			this.root = x;
+		} else if (node == lefts[parent]) {
+			lefts[parent] = x;
+		} else {
+			rights[parent] = x;
+		}
+		lefts[x] = node;
+		parents[node] = x;
+		maintainFields(node);
+	}
+
+	/**
+	 * performs a right rotation on a node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateRight(int node) {
+		int x = lefts[node];
+		int parent = parents[node];
+		lefts[node] = rights[x];
+		parents[x] = parent;
+		if (rights[x] != VIRTUAL) {
+			parents[rights[x]] = node;
+		}
+		if (parent == VIRTUAL) {
+			this.root = x;
+		} else if (node == lefts[parent]) {
+			lefts[parent] = x;
+		} else {
+			rights[parent] = x;
+		}
+		rights[x] = node;
+		parents[node] = x;
+		maintainFields(node);
+	}
+
+	/**
+	 * maintains the height and true count of a node from its children.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void maintainFields(int node) {
+		int left = lefts[node];
+		int right = rights[node];
+		heights[node] = (byte) (1 + Math.max(getHeight(left), getHeight(right)));
+		trueCounts[node] = getTrueCount(left) + getTrueCount(right) + (getBit(node) ? 1 : 0);
+	}
+
+	/**
+	 * @param node
+	 * @return the height of the node, -1 for the virtual node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getHeight(int node) {
+		return node == VIRTUAL ? -1 : heights[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the balance factor (BF) of the node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getBalanceFactor(int node) {
+		return getHeight(lefts[node]) - getHeight(rights[node]);
+	}
+
+	/**
+	 * @param node
+	 * @return the number of nodes with value true in this node's subtree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTrueCount(int node) {
+		return node == VIRTUAL ? 0 : trueCounts[node];
+	}
+
+	/**
+	 * @param node
+	 * @return node's key.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getKey(int node) {
+		return keys[node];
+	}
+
+	/**
+	 * @param node
+	 * @return node's value (info). for virtual node return null.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public Boolean getValue(int node) {
+		return node == VIRTUAL ? null : getBit(node);
+	}
+
+	/**
+	 * @param node
+	 * @return left child, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getLeft(int node) {
+		return lefts[node];
+	}
+
+	/**
+	 * @param node
+	 * @return right child, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getRight(int node) {
+		return rights[node];
+	}
+
+	/**
+	 * @param node
+	 * @return parent, or VIRTUAL for the root.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		return empty() ? null : getBit(min);
+	}
+
+	/**
+	 * @return node with the smallest key in the tree, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTreeMin() {
+		return this.min;
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		return empty() ? null : getBit(max);
+	}
+
+	/**
+	 * @return node with the largest key in the tree, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * @pre node != VIRTUAL
+	 * @param node
+	 * @return node with the smallest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int findMinimumOfSubtree(int node) {
+		while (lefts[node] != VIRTUAL) {
+			node = lefts[node];
+		}
+		return node;
+	}
+
+	/**
+	 * @pre node != VIRTUAL
+	 * @param node
+	 * @return node with the largest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int findMaximumOfSubtree(int node) {
+		while (rights[node] != VIRTUAL) {
+			node = rights[node];
+		}
+		return node;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		for (int node = min; node != VIRTUAL; node = successor(node)) {
+			arr[idx++] = keys[node];
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		int idx = 0;
+		for (int node = min; node != VIRTUAL; node = successor(node)) {
+			arr[idx++] = getBit(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * public long[] infoToBitmap()
+	 * <p>
+	 * Returns the info in the tree, sorted by their respective keys, packed as a
+	 * bitmap: the info of the j-th smallest key is bit j % 64 of word j / 64, and
+	 * the bits after the last item are 0.
+	 *
+	 * time complexity: O(n)
+	 */
+	public long[] infoToBitmap() {
+		long[] bitmap = new long[(size() + 63) >>> 6];
+		infoToBitmap(bitmap);
+		return bitmap;
+	}
+
+	/**
+	 * public int infoToBitmap(long[] bitmap)
+	 * <p>
+	 * Writes the info in the tree to the given buffer, packed as in
+	 * infoToBitmap(), so that repeated exports do not allocate. The words after
+	 * the ones the tree needs are left as they are. Returns the number of items
+	 * written, which is size().
+	 *
+	 * @throws IllegalArgumentException if the buffer has less than (size() + 63) /
+	 *                                  64 words.
+	 *
+	 *                                  time complexity: O(n)
+	 */
+	public int infoToBitmap(long[] bitmap) {
+		int words = (size() + 63) >>> 6;
+		if (bitmap.length < words) {
+			throw new IllegalArgumentException("bitmap of " + bitmap.length + " words is too small for " + size()
+					+ " items");
+		}
+		Arrays.fill(bitmap, 0, words, 0L);
+		// in-order traversal with an explicit stack of the path, no higher than the
+		// tree.
+		int[] stack = new int[getHeight(root) + 1];
+		int depth = 0;
+		int idx = 0;
+		int node = root;
+		while (node != VIRTUAL || depth > 0) {
+			if (node != VIRTUAL) {
+				stack[depth++] = node;
+				node = lefts[node];
+			} else {
+				node = stack[--depth];
+				if (getBit(node)) {
+					bitmap[idx >>> 6] |= 1L << idx;
+				}
+				idx++;
+				node = rights[node];
+			}
+		}
+		return idx;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public int capacity()
+	 * <p>
+	 * Returns the number of node slots currently allocated.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * public int getRoot()
+	 * <p>
+	 * Returns the root node, or VIRTUAL if the tree is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * public int successor
+	 *
+	 * given a node 'node' in the tree, return the successor of 'node' in the tree
+	 * (or VIRTUAL if successor doesn't exist)
+	 *
+	 * @param node - the node whose successor should be returned
+	 * @return the successor of 'node' if exists, VIRTUAL otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int successor(int node) {
+		if (rights[node] != VIRTUAL) {
+			return findMinimumOfSubtree(rights[node]);
+		}
+		int succ = parents[node];
+		while (succ != VIRTUAL && node == rights[succ]) {
+			node = succ;
+			succ = parents[node];
+		}
+		return succ;
+	}
+
+	/**
+	 * public int predecessor
+	 *
+	 * given a node 'node' in the tree, return the predecessor of 'node' in the tree
+	 * (or VIRTUAL if predecessor doesn't exist)
+	 *
+	 * @param node - the node whose predecessor should be returned
+	 * @return the predecessor of 'node' if exists, VIRTUAL otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int predecessor(int node) {
+		if (lefts[node] != VIRTUAL) {
+			return findMaximumOfSubtree(lefts[node]);
+		}
+		int pred = parents[node];
+		while (pred != VIRTUAL && node == lefts[pred]) {
+			node = pred;
+			pred = parents[node];
+		}
+		return pred;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		int totalCount = 0;
+		int curr = this.root;
+		while (curr != VIRTUAL) {
+			if (k < keys[curr]) {
+				curr = lefts[curr];
+			} else {
+				totalCount += getTrueCount(lefts[curr]) + (getBit(curr) ? 1 : 0);
+				if (k == keys[curr]) {
+					break;
+				}
+				curr = rights[curr];
+			}
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * However, the implementation of succPrefixXor is the following: starting from
+	 * the minimum-key node, iteratively call successor until you reach the node of
+	 * key k. Return the xor of all visited nodes.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		int totalCount = 0;
+		int curr = getTreeMin();
+		while (curr != VIRTUAL && keys[curr] <= k) {
+			totalCount += getBit(curr) ? 1 : 0;
+			curr = successor(curr);
+		}
+		return totalCount % 2 != 0;
+	}
+
+}
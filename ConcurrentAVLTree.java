@@ -0,0 +1,380 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * public class ConcurrentAVLTree
+ * <p>
+ * This class wraps an AVLTree for use by many threads. Updates take the write
+ * lock of a StampedLock. The frequent lookups (search, prefixXor, rangeXor,
+ * countTrue, min, max, size) first read the tree under an optimistic stamp,
+ * without locking, and only use the result if the stamp is still valid
+ * afterwards, i.e. if no update ran meanwhile. Otherwise, they read again under
+ * the read lock. A reader therefore never returns a result taken from a
+ * half-finished rotation; an optimistic traversal which sees such a state is
+ * bounded by MAX_DEPTH steps, and is discarded.
+ * <p>
+ * The wrapped tree must not be used directly while it is wrapped. A tree that
+ * records into a TraceRecorder cannot be wrapped: the recorder is not
+ * thread-safe, and the optimistic lookups do not reach the tree's methods, so
+ * the trace would be both corrupt and incomplete.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class ConcurrentAVLTree implements IntBooleanTree {
+	/**
+	 * an upper bound on the height of an AVL tree with at most 2^31 nodes
+	 * (1.44 log n), used to cut off optimistic traversals of a changing tree.
+	 */
+	final static int MAX_DEPTH = 64;
+	final static int RETRY = -2;
+	final static int ABSENT = -1;
+	final static int FALSE = 0;
+	final static int TRUE = 1;
+	private final AVLTree tree;
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * This constructor creates an empty ConcurrentAVLTree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public ConcurrentAVLTree() {
+		this(new AVLTree());
+	}
+
+	/**
+	 * This constructor wraps an existing tree, which from now on must only be used
+	 * through this object.
+	 *
+	 * @param tree
+	 * @throws IllegalArgumentException if the tree records into a trace.
+	 *
+	 *                                  time complexity: O(1)
+	 */
+	public ConcurrentAVLTree(AVLTree tree) {
+		if (tree.getTrace() != null) {
+			throw new IllegalArgumentException("a tree with a trace cannot be shared by threads");
+		}
+		this.tree = tree;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			int result = optimisticSearch(k);
+			if (result != RETRY && lock.validate(stamp)) {
+				return result == ABSENT ? null : Boolean.valueOf(result == TRUE);
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.search(k);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * searches without locking. the result is only meaningful if the stamp taken
+	 * before is still valid.
+	 *
+	 * @param k
+	 * @return TRUE or FALSE for the info of k, ABSENT if k is not in the tree, or
+	 *         RETRY if the traversal saw an inconsistent tree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int optimisticSearch(int k) {
+		AVLTree.AVLNode curr = tree.root;
+		for (int depth = 0; depth < MAX_DEPTH; depth++) {
+			if (curr == null) {
+				return RETRY;
+			}
+			if (!curr.isRealNode) {
+				return ABSENT;
+			}
+			int key = curr.key;
+			if (k == key) {
+				return curr.value ? TRUE : FALSE;
+			}
+			curr = k < key ? curr.left : curr.right;
+		}
+		return RETRY;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * calculates the xor of the values of nodes whose keys are smaller or equal to
+	 * k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			int count = optimisticPrefixTrueCount(k);
+			if (count != RETRY && lock.validate(stamp)) {
+				return count % 2 != 0;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.prefixXor(k);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int countTrue(int lo, int hi)
+	 *
+	 * returns the number of nodes with value true whose keys are between lo and hi
+	 * (inclusive).
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int countTrue(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			int upper = optimisticPrefixTrueCount(hi);
+			int lower = lo == Integer.MIN_VALUE ? 0 : optimisticPrefixTrueCount(lo - 1);
+			if (upper != RETRY && lower != RETRY && lock.validate(stamp)) {
+				return upper - lower;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.countTrue(lo, hi);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public boolean rangeXor(int lo, int hi)
+	 *
+	 * calculates the xor of the values of nodes whose keys are between lo and hi
+	 * (inclusive).
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean rangeXor(int lo, int hi) {
+		return countTrue(lo, hi) % 2 != 0;
+	}
+
+	/**
+	 * counts without locking, like AVLTree.prefixXor. the result is only
+	 * meaningful if the stamp taken before is still valid.
+	 *
+	 * @param k
+	 * @return the number of true values with keys smaller or equal to k, or RETRY
+	 *         if the traversal saw an inconsistent tree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int optimisticPrefixTrueCount(int k) {
+		int totalCount = 0;
+		AVLTree.AVLNode curr = tree.root;
+		for (int depth = 0; depth < MAX_DEPTH; depth++) {
+			if (curr == null) {
+				return RETRY;
+			}
+			if (!curr.isRealNode) {
+				return totalCount;
+			}
+			int key = curr.key;
+			if (k < key) {
+				curr = curr.left;
+			} else {
+				AVLTree.AVLNode left = curr.left;
+				if (left == null) {
+					return RETRY;
+				}
+				totalCount += left.trueCount + (curr.value ? 1 : 0);
+				if (k == key) {
+					return totalCount;
+				}
+				curr = curr.right;
+			}
+		}
+		return RETRY;
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			AVLTree.AVLNode node = tree.min;
+			boolean real = node != null && node.isRealNode;
+			boolean value = real && node.value;
+			if (node != null && lock.validate(stamp)) {
+				return real ? Boolean.valueOf(value) : null;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.min();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			AVLTree.AVLNode node = tree.max;
+			boolean real = node != null && node.isRealNode;
+			boolean value = real && node.value;
+			if (node != null && lock.validate(stamp)) {
+				return real ? Boolean.valueOf(value) : null;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.max();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				size = tree.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 * <p>
+	 * AVLTree.succPrefixXor under the read lock.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		long stamp = lock.readLock();
+		try {
+			return tree.succPrefixXor(k);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * AVLTree.keysToArray under the read lock.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.keysToArray();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * AVLTree.infoToArray under the read lock.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.infoToArray();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * AVLTree.insert under the write lock.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, boolean i) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.insert(k, i);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * AVLTree.delete under the write lock.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+}
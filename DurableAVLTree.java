@@ -0,0 +1,754 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * public class DurableAVLTree
+ * <p>
+ * This class wraps an AVLTree whose insertions and deletions survive a crash of
+ * the process. Every insertion or deletion that changes the tree is appended to
+ * a write-ahead log in a directory, before the call returns. The log is split
+ * into segment files, wal-N.log, and each record holds the operation, the key
+ * and a CRC32 of both.
+ * <p>
+ * Records are collected in memory and written in batches, with one fsync per
+ * batch. With Durability.GROUP_COMMIT, a batch is written once its oldest
+ * record has waited groupCommitMicros or once it holds groupCommitBytes bytes,
+ * and a call returns when its batch is on disk. With Durability.SYNC, a call
+ * writes and fsyncs the log itself (together with the records of any calls
+ * that wait behind it). With Durability.ASYNC, batches are written without an
+ * fsync and calls do not wait for them, so a crash can lose the last
+ * operations.
+ * <p>
+ * checkpoint() writes a snapshot of the tree, snapshot-N.avl, which covers all
+ * the segments before segment N, and deletes those segments. On startup, the
+ * latest snapshot is loaded and the segments after it are replayed. A record
+ * cut short by a crash at the end of the last segment is dropped.
+ * <p>
+ * The wrapper is thread-safe; the lookups and updates of the tree hold one
+ * lock.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class DurableAVLTree implements AutoCloseable {
+	/**
+	 * how long an operation may wait for durability: (1) SYNC - the log is written
+	 * and fsynced before the operation returns, (2) GROUP_COMMIT - the operation
+	 * returns when its batch has been written and fsynced, (3) ASYNC - the
+	 * operation returns at once, and batches are written without an fsync.
+	 */
+	public static enum Durability {
+		SYNC, GROUP_COMMIT, ASYNC
+	}
+
+	final public int INVALID = -1;
+	final public static long DEFAULT_GROUP_COMMIT_MICROS = 1000;
+	final public static int DEFAULT_GROUP_COMMIT_BYTES = 64 << 10;
+	final public static long SEGMENT_BYTES = 64 << 20;
+	final static int RECORD_BYTES = 9; // operation, key, CRC32 of both.
+	final static byte INSERT_FALSE = 0;
+	final static byte INSERT_TRUE = 1;
+	final static byte DELETE = 2;
+	private static final String SEGMENT_PREFIX = "wal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".avl";
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+
+	private final AVLTree tree;
+	private final Path dir;
+	private final Durability durability;
+	private final long groupCommitNanos;
+	private final int groupCommitBytes;
+	private final long replayed;
+	private final CRC32 crc = new CRC32();
+	private final byte[] record = new byte[RECORD_BYTES];
+	/**
+	 * lock guards the tree and the pending batch. ioLock is held while the log is
+	 * written, and is always taken before lock.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ReentrantLock ioLock = new ReentrantLock();
+	private final Condition work = lock.newCondition();
+	private final Condition durable = lock.newCondition();
+	private final Thread committer;
+	private byte[] pending = new byte[RECORD_BYTES << 10];
+	private byte[] spare = new byte[RECORD_BYTES << 10];
+	private int pendingLength;
+	private long firstPendingNanos;
+	private long appendedRecords;
+	private long writtenRecords;
+	private IOException failure;
+	private boolean closed;
+	private FileChannel segment;
+	private long segmentNumber;
+
+	/**
+	 * This constructor opens the tree stored in the given directory, or an empty
+	 * tree if the directory holds none, with group commit after
+	 * DEFAULT_GROUP_COMMIT_MICROS or DEFAULT_GROUP_COMMIT_BYTES.
+	 *
+	 * @throws IOException if the directory cannot be read or written, or its log
+	 *                     is corrupt.
+	 *
+	 *                     time complexity: O(n + r log n), r being the number of
+	 *                     records after the latest snapshot.
+	 */
+	public DurableAVLTree(Path dir) throws IOException {
+		this(dir, Durability.GROUP_COMMIT, DEFAULT_GROUP_COMMIT_MICROS, DEFAULT_GROUP_COMMIT_BYTES);
+	}
+
+	/**
+	 * This constructor opens the tree stored in the given directory, or an empty
+	 * tree if the directory holds none. With GROUP_COMMIT and ASYNC, a batch is
+	 * written once its oldest record has waited groupCommitMicros, or once it
+	 * holds groupCommitBytes bytes.
+	 *
+	 * @throws IOException if the directory cannot be read or written, or its log
+	 *                     is corrupt.
+	 *
+	 *                     time complexity: O(n + r log n), r being the number of
+	 *                     records after the latest snapshot.
+	 */
+	public DurableAVLTree(Path dir, Durability durability, long groupCommitMicros, int groupCommitBytes)
+			throws IOException {
+		if (groupCommitMicros < 0 || groupCommitBytes < 1) {
+			throw new IllegalArgumentException("group commit needs a non-negative time and a positive size");
+		}
+		this.dir = Files.createDirectories(dir);
+		this.durability = durability;
+		this.groupCommitNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitMicros);
+		this.groupCommitBytes = groupCommitBytes;
+		List<Long> snapshots = numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		long first = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+		this.tree = snapshots.isEmpty() ? new AVLTree() : AVLTree.readSnapshot(snapshotPath(first));
+		List<Long> segments = numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		long count = 0;
+		long last = first - 1;
+		for (int i = 0; i < segments.size(); i++) {
+			if (segments.get(i) >= first) {
+				count += replay(segmentPath(segments.get(i)), i == segments.size() - 1);
+				last = segments.get(i);
+			}
+		}
+		this.replayed = count;
+		deleteBefore(first);
+		this.segmentNumber = last + 1;
+		this.segment = openSegment(segmentNumber);
+		if (durability == Durability.SYNC) {
+			this.committer = null;
+		} else {
+			this.committer = new Thread(this::runCommitter, "DurableAVLTree committer " + dir);
+			committer.setDaemon(true);
+			committer.start();
+		}
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null. the tree may hold operations that are not yet durable.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		lock.lock();
+		try {
+			return tree.search(k);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i, as AVLTree.insert does, and returns
+	 * when the insertion is as durable as the durability of this tree requires.
+	 *
+	 * @throws UncheckedIOException  if the log cannot be written.
+	 * @throws IllegalStateException if the tree is closed.
+	 *
+	 *                               time complexity: O(log n), plus the wait for
+	 *                               the log.
+	 */
+	public int insert(int k, boolean i) {
+		int result;
+		long seq;
+		lock.lock();
+		try {
+			checkOpen();
+			result = tree.insert(k, i);
+			if (result != INVALID) {
+				append(i ? INSERT_TRUE : INSERT_FALSE, k);
+			}
+			seq = appendedRecords;
+		} finally {
+			lock.unlock();
+		}
+		awaitDurable(seq);
+		return result;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes the item with key k, as AVLTree.delete does, and returns when the
+	 * deletion is as durable as the durability of this tree requires.
+	 *
+	 * @throws UncheckedIOException  if the log cannot be written.
+	 * @throws IllegalStateException if the tree is closed.
+	 *
+	 *                               time complexity: O(log n), plus the wait for
+	 *                               the log.
+	 */
+	public int delete(int k) {
+		int result;
+		long seq;
+		lock.lock();
+		try {
+			checkOpen();
+			result = tree.delete(k);
+			if (result != INVALID) {
+				append(DELETE, k);
+			}
+			seq = appendedRecords;
+		} finally {
+			lock.unlock();
+		}
+		awaitDurable(seq);
+		return result;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 * <p>
+	 * AVLTree.prefixXor under the lock.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		lock.lock();
+		try {
+			return tree.prefixXor(k);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * AVLTree.min under the lock.
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		lock.lock();
+		try {
+			return tree.min();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * AVLTree.max under the lock.
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		lock.lock();
+		try {
+			return tree.max();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return tree.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * AVLTree.keysToArray under the lock.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		lock.lock();
+		try {
+			return tree.keysToArray();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * AVLTree.infoToArray under the lock.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		lock.lock();
+		try {
+			return tree.infoToArray();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * public long replayedRecords()
+	 * <p>
+	 * Returns the number of log records that were replayed when the tree was
+	 * opened.
+	 *
+	 * time complexity: O(1)
+	 */
+	public long replayedRecords() {
+		return replayed;
+	}
+
+	/**
+	 * public void checkpoint()
+	 * <p>
+	 * makes all operations so far durable, starts a new log segment, writes a
+	 * snapshot of the tree that covers the segments before it, and deletes those
+	 * segments and older snapshots. operations wait while the snapshot is
+	 * written.
+	 *
+	 * @throws IOException if the log or the snapshot cannot be written.
+	 *
+	 *                     time complexity: O(n)
+	 */
+	public void checkpoint() throws IOException {
+		ioLock.lock();
+		try {
+			lock.lock();
+			try {
+				checkOpen();
+				commitBatch();
+				rollSegment();
+				tree.writeSnapshot(snapshotPath(segmentNumber));
+				syncDirectory();
+				deleteBefore(segmentNumber);
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			ioLock.unlock();
+		}
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * writes and fsyncs the operations that are not yet on disk, in every
+	 * durability, and closes the log. later updates throw IllegalStateException.
+	 *
+	 * @throws IOException if the log cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			work.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (committer != null) {
+			boolean interrupted = false;
+			while (committer.isAlive()) {
+				try {
+					committer.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		ioLock.lock();
+		try {
+			commitBatch();
+			segment.force(true);
+		} finally {
+			segment.close();
+			ioLock.unlock();
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if the tree is closed.
+	 * @throws UncheckedIOException  if an earlier write to the log failed.
+	 */
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("tree is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException("an earlier write to the log failed", failure);
+		}
+	}
+
+	/**
+	 * adds a record to the pending batch, and wakes the committer when the batch
+	 * starts or reaches groupCommitBytes.
+	 *
+	 * @pre lock is held.
+	 *
+	 *      time complexity: O(1) amortized
+	 */
+	private void append(byte operation, int key) {
+		record[0] = operation;
+		record[1] = (byte) key;
+		record[2] = (byte) (key >>> 8);
+		record[3] = (byte) (key >>> 16);
+		record[4] = (byte) (key >>> 24);
+		crc.reset();
+		crc.update(record, 0, 5);
+		int checksum = (int) crc.getValue();
+		record[5] = (byte) checksum;
+		record[6] = (byte) (checksum >>> 8);
+		record[7] = (byte) (checksum >>> 16);
+		record[8] = (byte) (checksum >>> 24);
+		if (pendingLength + RECORD_BYTES > pending.length) {
+			pending = Arrays.copyOf(pending, pending.length << 1);
+		}
+		System.arraycopy(record, 0, pending, pendingLength, RECORD_BYTES);
+		if (pendingLength == 0) {
+			firstPendingNanos = System.nanoTime();
+			work.signal();
+		}
+		pendingLength += RECORD_BYTES;
+		appendedRecords++;
+		if (pendingLength >= groupCommitBytes && pendingLength - RECORD_BYTES < groupCommitBytes) {
+			work.signal();
+		}
+	}
+
+	/**
+	 * waits until the first seq records are as durable as the durability of this
+	 * tree requires.
+	 *
+	 * @throws UncheckedIOException if the log cannot be written.
+	 */
+	private void awaitDurable(long seq) {
+		if (durability == Durability.ASYNC) {
+			return;
+		}
+		if (durability == Durability.SYNC) {
+			try {
+				while (written() < seq) {
+					commitBatch();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+		lock.lock();
+		try {
+			while (writtenRecords < seq && failure == null) {
+				durable.awaitUninterruptibly();
+			}
+			if (writtenRecords < seq) {
+				throw new UncheckedIOException("the log could not be written", failure);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of records written to the log so far.
+	 */
+	private long written() {
+		lock.lock();
+		try {
+			return writtenRecords;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * takes the pending batch, writes it to the current segment, fsyncs it unless
+	 * the durability is ASYNC, and wakes the operations that wait for it. starts
+	 * a new segment when the current one reaches SEGMENT_BYTES.
+	 *
+	 * @throws IOException if the log cannot be written; later operations fail as
+	 *                     well.
+	 */
+	private void commitBatch() throws IOException {
+		ioLock.lock();
+		try {
+			byte[] batch;
+			int length;
+			long seq;
+			lock.lock();
+			try {
+				if (failure != null) {
+					throw failure;
+				}
+				if (pendingLength == 0) {
+					return;
+				}
+				batch = pending;
+				length = pendingLength;
+				seq = appendedRecords;
+				pending = spare;
+				spare = batch;
+				pendingLength = 0;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+				while (buffer.hasRemaining()) {
+					segment.write(buffer);
+				}
+				if (durability != Durability.ASYNC) {
+					segment.force(false);
+				}
+				if (segment.position() >= SEGMENT_BYTES) {
+					rollSegment();
+				}
+			} catch (IOException e) {
+				lock.lock();
+				try {
+					failure = e;
+					durable.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				throw e;
+			}
+			lock.lock();
+			try {
+				writtenRecords = seq;
+				durable.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			ioLock.unlock();
+		}
+	}
+
+	/**
+	 * the loop of the committer thread: waits for a batch to start, then for
+	 * groupCommitNanos or groupCommitBytes, and commits it. exits when the tree
+	 * is closed, or the log cannot be written.
+	 */
+	private void runCommitter() {
+		try {
+			while (true) {
+				lock.lock();
+				try {
+					while (!closed && pendingLength == 0) {
+						work.awaitUninterruptibly();
+					}
+					if (pendingLength == 0) {
+						return;
+					}
+					long remaining = firstPendingNanos + groupCommitNanos - System.nanoTime();
+					while (!closed && pendingLength < groupCommitBytes && remaining > 0) {
+						remaining = work.awaitNanos(remaining);
+					}
+				} finally {
+					lock.unlock();
+				}
+				commitBatch();
+			}
+		} catch (IOException e) {
+			// commitBatch recorded the failure, and operations report it.
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * closes the current segment after an fsync, and opens the next one.
+	 *
+	 * @pre ioLock is held.
+	 */
+	private void rollSegment() throws IOException {
+		segment.force(true);
+		segment.close();
+		segmentNumber++;
+		segment = openSegment(segmentNumber);
+	}
+
+	private FileChannel openSegment(long number) throws IOException {
+		FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+		syncDirectory();
+		return channel;
+	}
+
+	/**
+	 * applies the records of a segment to the tree. a record that is cut short or
+	 * fails its CRC ends the log if it is in the last segment, where a crash
+	 * during a write leaves it, and the segment is truncated before it.
+	 *
+	 * @return the number of records applied.
+	 * @throws IOException if a segment before the last one is corrupt.
+	 *
+	 *                     time complexity: O(r log n)
+	 */
+	private long replay(Path path, boolean last) throws IOException {
+		long count = 0;
+		long valid = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE - READ_BUFFER_SIZE % RECORD_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			boolean end = false;
+			while (!end) {
+				end = channel.read(buffer) < 0;
+				buffer.flip();
+				while (buffer.remaining() >= RECORD_BYTES) {
+					byte operation = buffer.get();
+					int key = buffer.getInt();
+					int checksum = buffer.getInt();
+					crc.reset();
+					crc.update(operation);
+					crc.update(key);
+					crc.update(key >>> 8);
+					crc.update(key >>> 16);
+					crc.update(key >>> 24);
+					if ((int) crc.getValue() != checksum || operation < INSERT_FALSE || operation > DELETE) {
+						end = true;
+						break;
+					}
+					if (operation == DELETE) {
+						tree.delete(key);
+					} else {
+						tree.insert(key, operation == INSERT_TRUE);
+					}
+					count++;
+					valid += RECORD_BYTES;
+				}
+				buffer.compact();
+			}
+			if (valid < channel.size()) {
+				if (!last) {
+					throw new IOException(path + " is corrupt after " + valid + " bytes");
+				}
+				channel.truncate(valid);
+				channel.force(true);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the numbers N of the files prefixN.suffix in the directory, in
+	 *         increasing order.
+	 */
+	private List<Long> numbers(String prefix, String suffix) throws IOException {
+		List<Long> numbers = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+				} catch (NumberFormatException e) {
+					// not a file of this tree.
+				}
+			}
+		}
+		Collections.sort(numbers);
+		return numbers;
+	}
+
+	/**
+	 * deletes the segments before the given one and the snapshots before the one
+	 * that covers them.
+	 */
+	private void deleteBefore(long first) throws IOException {
+		for (long number : numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+			if (number < first) {
+				Files.delete(segmentPath(number));
+			}
+		}
+		for (long number : numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (number < first) {
+				Files.delete(snapshotPath(number));
+			}
+		}
+	}
+
+	/**
+	 * makes the creation, renaming and deletion of files in the directory durable,
+	 * where the file system allows it.
+	 */
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// not every platform can open a directory; there the files are fsynced only.
+		}
+	}
+
+	private Path segmentPath(long number) {
+		return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	private Path snapshotPath(long number) {
+		return dir.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+	}
+
+}
@@ -0,0 +1,1016 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * public class FineGrainedAVLTree
+ * <p>
+ * This class represents a concurrent relaxed-balance AVL tree with integer keys
+ * and boolean values, following Bronson, Casper, Chafi and Olukotun, "A
+ * Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ * <p>
+ * Readers take no locks. Every node has a version which a writer changes
+ * before and after it shrinks the node's key range (i.e. rotates it down or
+ * unlinks it). A reader descends hand-over-hand: it reads a child, then checks
+ * that the parent's version has not changed, and only then moves on, so a
+ * search is never misled by a concurrent rotation. Writers lock only the nodes
+ * they change: an insertion locks the parent of the new leaf, and a rotation
+ * locks the rotated nodes and their parent. A deleted node with two children
+ * stays in the tree as a routing node without a value, and is unlinked once it
+ * has at most one child. Heights are repaired and rotations done bottom-up
+ * after each update, one node at a time, so the tree may be temporarily
+ * unbalanced while other threads update it.
+ * <p>
+ * search, insert and delete are linearizable. min, max, successor and
+ * predecessor return keys that were in the tree during the call, but are not
+ * atomic with respect to concurrent updates of other keys.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class FineGrainedAVLTree {
+	final static long UNLINKED = 1L;
+	final static long SHRINKING = 2L;
+	final static long SHRINK_COUNT_INCR = 4L;
+	final static int SPIN_COUNT = 100;
+	final static int UNLINK_REQUIRED = -1;
+	final static int REBALANCE_REQUIRED = -2;
+	final static int NOTHING_REQUIRED = -3;
+	final static int LEFT = -1;
+	final static int RIGHT = 1;
+	final static Object RETRY = new Object();
+	private final static Node RETRY_NODE = new Node(0, 0, null, null);
+	final public int INVALID = -1;
+
+	/**
+	 * holds the root as its right child. its version never changes.
+	 */
+	private final Node holder = new Node(0, 0, null, null);
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Boolean search(int k) {
+		while (true) {
+			Object result = attemptGet(k, holder, RIGHT, 0L);
+			if (result != RETRY) {
+				return (Boolean) result;
+			}
+		}
+	}
+
+	/**
+	 * searches k in the subtree of node's child in direction dirToC, as long as
+	 * node's version is still nodeOVL.
+	 *
+	 * @return the value of k, null if k is not in the tree, or RETRY if node
+	 *         changed and the caller must search again.
+	 */
+	private Object attemptGet(int k, Node node, int dirToC, long nodeOVL) {
+		while (true) {
+			Node child = node.child(dirToC);
+			if (child == null) {
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+				return null; // k is not in the tree.
+			}
+			if (k == child.key) {
+				return child.value; // null for a routing node.
+			}
+			long childOVL = child.version;
+			if (isShrinkingOrUnlinked(childOVL)) {
+				child.waitUntilShrinkCompleted(childOVL);
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+			} else if (child != node.child(dirToC)) {
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+			} else {
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+				// the traversal to child is valid, node's version is not needed any more.
+				Object result = attemptGet(k, child, k < child.key ? LEFT : RIGHT, childOVL);
+				if (result != RETRY) {
+					return result;
+				}
+			}
+		}
+	}
+
+	/**
+	 * public boolean insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree, if k is not in it.
+	 * returns true if the item was inserted, false if k already exists in the
+	 * tree.
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public boolean insert(int k, boolean i) {
+		boolean inserted = update(k, Boolean.valueOf(i)) == null;
+		if (inserted) {
+			size.increment();
+		}
+		return inserted;
+	}
+
+	/**
+	 * public boolean delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there. returns true if
+	 * the item was deleted, false if k was not in the tree.
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public boolean delete(int k) {
+		boolean deleted = update(k, null) != null;
+		if (deleted) {
+			size.decrement();
+		}
+		return deleted;
+	}
+
+	/**
+	 * sets the value of k to newValue if k is absent (insertion), or removes k if
+	 * newValue is null (deletion).
+	 *
+	 * @return the previous value of k, null if k was absent.
+	 */
+	private Boolean update(int k, Boolean newValue) {
+		while (true) {
+			Node right = holder.right;
+			if (right == null) {
+				if (newValue == null || attemptInsertIntoEmpty(k, newValue)) {
+					return null;
+				}
+			} else {
+				long ovl = right.version;
+				if (isShrinkingOrUnlinked(ovl)) {
+					right.waitUntilShrinkCompleted(ovl);
+				} else if (right == holder.right) {
+					Object result = attemptUpdate(k, newValue, holder, right, ovl);
+					if (result != RETRY) {
+						return (Boolean) result;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean attemptInsertIntoEmpty(int k, Boolean value) {
+		synchronized (holder) {
+			if (holder.right == null) {
+				holder.right = new Node(k, 1, value, holder);
+				holder.height = 2;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * updates k in node's subtree, as long as node's version is still nodeOVL.
+	 * parent is only used to unlink node.
+	 *
+	 * @return the previous value of k, or RETRY.
+	 */
+	private Object attemptUpdate(int k, Boolean newValue, Node parent, Node node, long nodeOVL) {
+		if (k == node.key) {
+			return attemptNodeUpdate(newValue, parent, node);
+		}
+		int dirToC = k < node.key ? LEFT : RIGHT;
+		while (true) {
+			Node child = node.child(dirToC);
+			if (node.version != nodeOVL) {
+				return RETRY;
+			}
+			if (child == null) { // k is not in the tree.
+				if (newValue == null) {
+					return null; // nothing to delete.
+				}
+				Node damaged;
+				synchronized (node) {
+					// node is locked, so no rotation can change it from now on.
+					if (node.version != nodeOVL) {
+						return RETRY;
+					}
+					if (node.child(dirToC) != null) {
+						damaged = RETRY_NODE; // lost a race with another insertion, retry here.
+					} else {
+						node.setChild(dirToC, new Node(k, 1, newValue, node));
+						damaged = fixHeight(node);
+					}
+				}
+				if (damaged != RETRY_NODE) {
+					fixHeightAndRebalance(damaged);
+					return null;
+				}
+			} else {
+				long childOVL = child.version;
+				if (isShrinkingOrUnlinked(childOVL)) {
+					child.waitUntilShrinkCompleted(childOVL);
+				} else if (child != node.child(dirToC)) {
+					// the child changed, read it again.
+				} else {
+					if (node.version != nodeOVL) {
+						return RETRY;
+					}
+					Object result = attemptUpdate(k, newValue, node, child, childOVL);
+					if (result != RETRY) {
+						return result;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * updates the value of node, whose key is k. a deletion unlinks node if it has
+	 * at most one child, and otherwise turns it into a routing node.
+	 *
+	 * @return the previous value of node, or RETRY.
+	 */
+	private Object attemptNodeUpdate(Boolean newValue, Node parent, Node node) {
+		if (newValue == null) {
+			if (node.value == null) {
+				return null; // already deleted.
+			}
+			if (node.left == null || node.right == null) { // unlink, which needs the parent's lock.
+				Boolean prev;
+				Node damaged;
+				synchronized (parent) {
+					if (isUnlinked(parent.version) || node.parent != parent) {
+						return RETRY;
+					}
+					synchronized (node) {
+						prev = node.value;
+						if (prev == null) {
+							return null;
+						}
+						if (!attemptUnlink(parent, node)) {
+							return RETRY;
+						}
+					}
+					damaged = fixHeight(parent);
+				}
+				fixHeightAndRebalance(damaged);
+				return prev;
+			}
+		}
+		synchronized (node) {
+			if (isUnlinked(node.version)) {
+				return RETRY;
+			}
+			Boolean prev = node.value;
+			if (newValue != null && prev != null) {
+				return prev; // insertion of an existing key.
+			}
+			if (newValue == null && prev == null) {
+				return null;
+			}
+			if (newValue == null && (node.left == null || node.right == null)) {
+				return RETRY; // node can be unlinked now.
+			}
+			node.value = newValue;
+			return prev;
+		}
+	}
+
+	/**
+	 * unlinks node, which has at most one child, by linking its child to parent.
+	 * both nodes must be locked. does not fix any heights.
+	 *
+	 * @return false if node is no longer parent's child or has two children.
+	 */
+	private boolean attemptUnlink(Node parent, Node node) {
+		Node parentL = parent.left;
+		Node parentR = parent.right;
+		if (parentL != node && parentR != node) {
+			return false;
+		}
+		Node left = node.left;
+		Node right = node.right;
+		if (left != null && right != null) {
+			return false;
+		}
+		Node splice = left != null ? left : right;
+		if (parentL == node) {
+			parent.left = splice;
+		} else {
+			parent.right = splice;
+		}
+		if (splice != null) {
+			splice.parent = parent;
+		}
+		node.version = UNLINKED;
+		node.value = null;
+		return true;
+	}
+
+	/**
+	 * @return UNLINK_REQUIRED for a routing node with at most one child,
+	 *         REBALANCE_REQUIRED for an illegal balance factor, NOTHING_REQUIRED,
+	 *         or otherwise the height node should have. the result may be stale.
+	 */
+	private int nodeCondition(Node node) {
+		Node nL = node.left;
+		Node nR = node.right;
+		if ((nL == null || nR == null) && node.value == null) {
+			return UNLINK_REQUIRED;
+		}
+		int hN = node.height;
+		int hL0 = height(nL);
+		int hR0 = height(nR);
+		int hNRepl = 1 + Math.max(hL0, hR0);
+		int bal = hL0 - hR0;
+		if (bal < -1 || bal > 1) {
+			return REBALANCE_REQUIRED;
+		}
+		return hN != hNRepl ? hNRepl : NOTHING_REQUIRED;
+	}
+
+	/**
+	 * repairs node and its ancestors, one node at a time, until nothing more is
+	 * required.
+	 * <p>
+	 * two cases need care: (1) a rotation may leave a node below it damaged and
+	 * repairs that node first, while the rotation's parent is damaged as well, so
+	 * the repair climbs at least up to that parent. (2) a rotation moves nodes to
+	 * a new parent without locking them, so the repair of such a node may climb to
+	 * its old parent; the decision to stop is therefore taken under the node's
+	 * lock, after checking that the node repaired before is still its child. the
+	 * same holds if node was unlinked meanwhile.
+	 */
+	private void fixHeightAndRebalance(Node node) {
+		Node child = null; // the node repaired before node.
+		Node pending = null; // the parent of a rotation, which must still be repaired.
+		while (node != null && node.parent != null) {
+			int condition = nodeCondition(node);
+			if (isUnlinked(node.version)) {
+				if (child == null || isUnlinked(child.version) || child.parent == node) {
+					return;
+				}
+				node = child.parent; // node was unlinked after child was repaired, maybe without seeing it.
+				continue;
+			}
+			if (condition == UNLINK_REQUIRED || condition == REBALANCE_REQUIRED) {
+				Node nParent = node.parent;
+				synchronized (nParent) {
+					if (!isUnlinked(nParent.version) && node.parent == nParent) {
+						Node grandParent = nParent.parent;
+						Node next;
+						synchronized (node) {
+							next = rebalance(nParent, node);
+						}
+						if (pending == null && next != null && next != nParent && next != grandParent) {
+							pending = nParent;
+						}
+						child = null;
+						node = next == null ? nParent : next;
+					}
+				}
+			} else {
+				if (node == pending) {
+					pending = null;
+				}
+				Node next;
+				synchronized (node) {
+					if (child != null && child.parent != node && !isUnlinked(child.version)) {
+						next = child.parent; // child was moved, its new parent needs the repair.
+					} else {
+						next = fixHeight(node);
+						if (next == null && pending != null) {
+							next = node.parent;
+						}
+						child = next == node ? null : node;
+					}
+				}
+				node = next;
+			}
+		}
+	}
+
+	/**
+	 * fixes the height of a locked node.
+	 *
+	 * @return the lowest node which still needs repair by this thread, or null.
+	 */
+	private Node fixHeight(Node node) {
+		int c = nodeCondition(node);
+		switch (c) {
+		case REBALANCE_REQUIRED:
+		case UNLINK_REQUIRED:
+			return node;
+		case NOTHING_REQUIRED:
+			return null;
+		default:
+			node.height = c;
+			return node.parent;
+		}
+	}
+
+	/**
+	 * unlinks, rotates or fixes the height of n. nParent and n must be locked.
+	 *
+	 * @return a node which still needs repair, or null.
+	 */
+	private Node rebalance(Node nParent, Node n) {
+		Node nL = n.left;
+		Node nR = n.right;
+		if ((nL == null || nR == null) && n.value == null) {
+			if (attemptUnlink(nParent, n)) {
+				return fixHeight(nParent);
+			}
+			return n;
+		}
+		int hN = n.height;
+		int hL0 = height(nL);
+		int hR0 = height(nR);
+		int hNRepl = 1 + Math.max(hL0, hR0);
+		int bal = hL0 - hR0;
+		if (bal > 1) {
+			return rebalanceToRight(nParent, n, nL, hR0);
+		} else if (bal < -1) {
+			return rebalanceToLeft(nParent, n, nR, hL0);
+		} else if (hNRepl != hN) {
+			n.height = hNRepl;
+			return fixHeight(nParent);
+		}
+		return null;
+	}
+
+	/**
+	 * n's left subtree is too tall: rotates n right, or first rotates nL left if
+	 * nL's right subtree is the taller one.
+	 */
+	private Node rebalanceToRight(Node nParent, Node n, Node nL, int hR0) {
+		synchronized (nL) {
+			int hL = nL.height;
+			if (hL - hR0 <= 1) {
+				return n; // retry.
+			}
+			Node nLR = nL.right;
+			int hLL0 = height(nL.left);
+			int hLR0 = height(nLR);
+			if (hLL0 >= hLR0) {
+				return rotateRight(nParent, n, nL, hR0, hLL0, nLR, hLR0);
+			}
+			synchronized (nLR) {
+				int hLR = nLR.height;
+				if (hLL0 >= hLR) {
+					return rotateRight(nParent, n, nL, hR0, hLL0, nLR, hLR);
+				}
+				int hLRL = height(nLR.left);
+				int b = hLL0 - hLRL;
+				if (b >= -1 && b <= 1) {
+					return rotateRightOverLeft(nParent, n, nL, hR0, hLL0, nLR, hLRL);
+				}
+			}
+			// fix nL on its own first; n is rebalanced later if needed.
+			return rebalanceToLeft(n, nL, nLR, hLL0);
+		}
+	}
+
+	/**
+	 * n's right subtree is too tall: rotates n left, or first rotates nR right if
+	 * nR's left subtree is the taller one.
+	 */
+	private Node rebalanceToLeft(Node nParent, Node n, Node nR, int hL0) {
+		synchronized (nR) {
+			int hR = nR.height;
+			if (hL0 - hR >= -1) {
+				return n; // retry.
+			}
+			Node nRL = nR.left;
+			int hRL0 = height(nRL);
+			int hRR0 = height(nR.right);
+			if (hRR0 >= hRL0) {
+				return rotateLeft(nParent, n, hL0, nR, nRL, hRL0, hRR0);
+			}
+			synchronized (nRL) {
+				int hRL = nRL.height;
+				if (hRR0 >= hRL) {
+					return rotateLeft(nParent, n, hL0, nR, nRL, hRL, hRR0);
+				}
+				int hRLR = height(nRL.right);
+				int b = hRR0 - hRLR;
+				if (b >= -1 && b <= 1) {
+					return rotateLeftOverRight(nParent, n, hL0, nR, nRL, hRR0, hRLR);
+				}
+			}
+			return rebalanceToRight(n, nR, nRL, hRR0);
+		}
+	}
+
+	private Node rotateRight(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLR) {
+		long nodeOVL = n.version;
+		Node nPL = nParent.left;
+		n.version = beginChange(nodeOVL);
+		n.left = nLR;
+		if (nLR != null) {
+			nLR.parent = n;
+		}
+		nL.right = n;
+		n.parent = nL;
+		if (nPL == n) {
+			nParent.left = nL;
+		} else {
+			nParent.right = nL;
+		}
+		nL.parent = nParent;
+		int hNRepl = 1 + Math.max(hLR, hR);
+		n.height = hNRepl;
+		nL.height = 1 + Math.max(hLL, hNRepl);
+		n.version = endChange(nodeOVL);
+		int balN = hLR - hR;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nLR == null || hR == 0) && n.value == null) {
+			return n;
+		}
+		int balL = hLL - hNRepl;
+		if (balL < -1 || balL > 1) {
+			return nL;
+		}
+		if (hLL == 0 && nL.value == null) {
+			return nL;
+		}
+		return fixHeight(nParent);
+	}
+
+	private Node rotateLeft(Node nParent, Node n, int hL, Node nR, Node nRL, int hRL, int hRR) {
+		long nodeOVL = n.version;
+		Node nPL = nParent.left;
+		n.version = beginChange(nodeOVL);
+		n.right = nRL;
+		if (nRL != null) {
+			nRL.parent = n;
+		}
+		nR.left = n;
+		n.parent = nR;
+		if (nPL == n) {
+			nParent.left = nR;
+		} else {
+			nParent.right = nR;
+		}
+		nR.parent = nParent;
+		int hNRepl = 1 + Math.max(hL, hRL);
+		n.height = hNRepl;
+		nR.height = 1 + Math.max(hNRepl, hRR);
+		n.version = endChange(nodeOVL);
+		int balN = hRL - hL;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nRL == null || hL == 0) && n.value == null) {
+			return n;
+		}
+		int balR = hRR - hNRepl;
+		if (balR < -1 || balR > 1) {
+			return nR;
+		}
+		if (hRR == 0 && nR.value == null) {
+			return nR;
+		}
+		return fixHeight(nParent);
+	}
+
+	private Node rotateRightOverLeft(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLRL) {
+		long nodeOVL = n.version;
+		long leftOVL = nL.version;
+		Node nPL = nParent.left;
+		Node nLRL = nLR.left;
+		Node nLRR = nLR.right;
+		int hLRR = height(nLRR);
+		n.version = beginChange(nodeOVL);
+		nL.version = beginChange(leftOVL);
+		n.left = nLRR;
+		if (nLRR != null) {
+			nLRR.parent = n;
+		}
+		nL.right = nLRL;
+		if (nLRL != null) {
+			nLRL.parent = nL;
+		}
+		nLR.left = nL;
+		nL.parent = nLR;
+		nLR.right = n;
+		n.parent = nLR;
+		if (nPL == n) {
+			nParent.left = nLR;
+		} else {
+			nParent.right = nLR;
+		}
+		nLR.parent = nParent;
+		int hNRepl = 1 + Math.max(hLRR, hR);
+		n.height = hNRepl;
+		int hLRepl = 1 + Math.max(hLL, hLRL);
+		nL.height = hLRepl;
+		n.version = endChange(nodeOVL);
+		nL.version = endChange(leftOVL);
+		if ((hLL == 0 || hLRL == 0) && nL.value == null) {
+			// nL is a routing node with one child, which is not on the path this
+			// thread repairs next, so unlink it while it is still locked.
+			attemptUnlink(nLR, nL);
+			hLRepl = Math.max(hLL, hLRL);
+		}
+		nLR.height = 1 + Math.max(hLRepl, hNRepl);
+		int balN = hLRR - hR;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nLRR == null || hR == 0) && n.value == null) {
+			return n;
+		}
+		int balLR = hLRepl - hNRepl;
+		if (balLR < -1 || balLR > 1) {
+			return nLR;
+		}
+		return fixHeight(nParent);
+	}
+
+	private Node rotateLeftOverRight(Node nParent, Node n, int hL, Node nR, Node nRL, int hRR, int hRLR) {
+		long nodeOVL = n.version;
+		long rightOVL = nR.version;
+		Node nPL = nParent.left;
+		Node nRLL = nRL.left;
+		Node nRLR = nRL.right;
+		int hRLL = height(nRLL);
+		n.version = beginChange(nodeOVL);
+		nR.version = beginChange(rightOVL);
+		n.right = nRLL;
+		if (nRLL != null) {
+			nRLL.parent = n;
+		}
+		nR.left = nRLR;
+		if (nRLR != null) {
+			nRLR.parent = nR;
+		}
+		nRL.right = nR;
+		nR.parent = nRL;
+		nRL.left = n;
+		n.parent = nRL;
+		if (nPL == n) {
+			nParent.left = nRL;
+		} else {
+			nParent.right = nRL;
+		}
+		nRL.parent = nParent;
+		int hNRepl = 1 + Math.max(hL, hRLL);
+		n.height = hNRepl;
+		int hRRepl = 1 + Math.max(hRLR, hRR);
+		nR.height = hRRepl;
+		n.version = endChange(nodeOVL);
+		nR.version = endChange(rightOVL);
+		if ((hRR == 0 || hRLR == 0) && nR.value == null) {
+			attemptUnlink(nRL, nR);
+			hRRepl = Math.max(hRLR, hRR);
+		}
+		nRL.height = 1 + Math.max(hNRepl, hRRepl);
+		int balN = hRLL - hL;
+		if (balN < -1 || balN > 1) {
+			return n;
+		}
+		if ((nRLL == null || hL == 0) && n.value == null) {
+			return n;
+		}
+		int balRL = hRRepl - hNRepl;
+		if (balRL < -1 || balRL > 1) {
+			return nRL;
+		}
+		return fixHeight(nParent);
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Boolean min() {
+		long entry = bound(Integer.MIN_VALUE, true, true);
+		return entry == NONE ? null : entryValue(entry);
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Boolean max() {
+		long entry = bound(Integer.MAX_VALUE, true, false);
+		return entry == NONE ? null : entryValue(entry);
+	}
+
+	/**
+	 * public Integer minKey()
+	 * <p>
+	 * Returns the smallest key in the tree, or null if the tree is empty
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Integer minKey() {
+		long entry = bound(Integer.MIN_VALUE, true, true);
+		return entry == NONE ? null : Integer.valueOf(entryKey(entry));
+	}
+
+	/**
+	 * public Integer maxKey()
+	 * <p>
+	 * Returns the largest key in the tree, or null if the tree is empty
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Integer maxKey() {
+		long entry = bound(Integer.MAX_VALUE, true, false);
+		return entry == NONE ? null : Integer.valueOf(entryKey(entry));
+	}
+
+	/**
+	 * public Integer successor(int k)
+	 * <p>
+	 * Returns the smallest key in the tree which is greater than k, or null if
+	 * there is none. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Integer successor(int k) {
+		long entry = bound(k, false, true);
+		return entry == NONE ? null : Integer.valueOf(entryKey(entry));
+	}
+
+	/**
+	 * public Integer predecessor(int k)
+	 * <p>
+	 * Returns the largest key in the tree which is smaller than k, or null if
+	 * there is none. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n) without contention
+	 */
+	public Integer predecessor(int k) {
+		long entry = bound(k, false, false);
+		return entry == NONE ? null : Integer.valueOf(entryKey(entry));
+	}
+
+	/**
+	 * an entry found by bound(), packed as the key in the upper 32 bits and
+	 * 1 + value in the lower bits, so it needs no allocation. NONE is no entry.
+	 */
+	final static long NONE = 0L;
+
+	static int entryKey(long entry) {
+		return (int) (entry >> 32);
+	}
+
+	static boolean entryValue(long entry) {
+		return (entry & 3L) == 2L;
+	}
+
+	/**
+	 * finds the nearest item to k in one direction: the smallest key greater than
+	 * (or equal to, if inclusive) k when higher is true, otherwise the largest key
+	 * smaller than (or equal to) k. the descent is validated hand-over-hand like
+	 * search. when the nearest node is a routing node, its own nearest item is
+	 * looked for instead.
+	 *
+	 * @return the packed entry, or NONE.
+	 */
+	private long bound(int k, boolean inclusive, boolean higher) {
+		outer: while (true) {
+			Node node = holder;
+			long nodeOVL = 0L;
+			int dir = RIGHT;
+			Node best = null;
+			while (true) {
+				Node child = node.child(dir);
+				if (child == null) {
+					if (node.version != nodeOVL) {
+						continue outer;
+					}
+					break;
+				}
+				long childOVL = child.version;
+				if (isShrinkingOrUnlinked(childOVL)) {
+					child.waitUntilShrinkCompleted(childOVL);
+					if (node.version != nodeOVL) {
+						continue outer;
+					}
+					continue;
+				}
+				if (child != node.child(dir)) {
+					continue;
+				}
+				if (node.version != nodeOVL) {
+					continue outer;
+				}
+				node = child;
+				nodeOVL = childOVL;
+				if (inclusive && k == node.key) {
+					best = node;
+					break;
+				}
+				boolean candidate = higher ? k < node.key : k > node.key;
+				if (candidate) {
+					best = node;
+				}
+				dir = (k < node.key) || (k == node.key && !higher) ? LEFT : RIGHT;
+			}
+			if (best == null) {
+				return NONE;
+			}
+			Boolean value = best.value;
+			if (value == null) { // a routing node, or deleted meanwhile.
+				if (best.key == (higher ? Integer.MAX_VALUE : Integer.MIN_VALUE)) {
+					return NONE;
+				}
+				k = best.key;
+				inclusive = false;
+				continue;
+			}
+			return ((long) best.key << 32) | (value ? 2L : 1L);
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of items in the tree. under concurrent updates the
+	 * result is only an estimate.
+	 *
+	 * time complexity: O(number of threads)
+	 */
+	public int size() {
+		return size.intValue();
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return holder.right == null;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array of the keys in the tree. must not run concurrently
+	 * with updates.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		Node node = holder.right;
+		Node prev = holder;
+		while (node != null && node != holder) { // iterative in-order walk with parent links.
+			Node next;
+			if (prev == node.parent) {
+				next = node.left != null ? node.left : node;
+				if (next == node) {
+					if (node.value != null) {
+						arr[idx++] = node.key;
+					}
+					next = node.right != null ? node.right : node.parent;
+				}
+			} else if (prev == node.left) {
+				if (node.value != null) {
+					arr[idx++] = node.key;
+				}
+				next = node.right != null ? node.right : node.parent;
+			} else {
+				next = node.parent;
+			}
+			prev = node;
+			node = next;
+		}
+		return idx == arr.length ? arr : java.util.Arrays.copyOf(arr, idx);
+	}
+
+	/**
+	 * checks the structure of the tree: search order, parent links, heights and
+	 * the AVL balance. must not run concurrently with updates.
+	 *
+	 * @return true if the tree is a valid AVL tree without removable routing
+	 *         nodes.
+	 */
+	boolean checkInvariants() {
+		return holder.left == null && checkSubtree(holder.right, holder, Long.MIN_VALUE, Long.MAX_VALUE) >= 0;
+	}
+
+	/**
+	 * @return the height of node's subtree, or -1 if it is not valid.
+	 */
+	private int checkSubtree(Node node, Node parent, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.parent != parent || node.key <= lo || node.key >= hi || isShrinkingOrUnlinked(node.version)) {
+			return -1;
+		}
+		if ((node.left == null || node.right == null) && node.value == null) {
+			return -1;
+		}
+		int hL = checkSubtree(node.left, node, lo, node.key);
+		int hR = checkSubtree(node.right, node, node.key, hi);
+		if (hL < 0 || hR < 0 || Math.abs(hL - hR) > 1 || node.height != 1 + Math.max(hL, hR)) {
+			return -1;
+		}
+		return node.height;
+	}
+
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static boolean isShrinkingOrUnlinked(long ovl) {
+		return (ovl & (SHRINKING | UNLINKED)) != 0L;
+	}
+
+	private static boolean isUnlinked(long ovl) {
+		return (ovl & UNLINKED) != 0L;
+	}
+
+	private static long beginChange(long ovl) {
+		return ovl | SHRINKING;
+	}
+
+	private static long endChange(long ovl) {
+		return ovl + SHRINK_COUNT_INCR;
+	}
+
+	/**
+	 * private static class Node
+	 * <p>
+	 * This class represents a node in the tree. a null value marks a routing node,
+	 * whose key is not in the tree. the height of a leaf is 1.
+	 * <p>
+	 */
+	private static class Node {
+		final int key;
+		volatile int height;
+		volatile long version;
+		volatile Boolean value;
+		volatile Node parent;
+		volatile Node left;
+		volatile Node right;
+
+		Node(int key, int height, Boolean value, Node parent) {
+			this.key = key;
+			this.height = height;
+			this.value = value;
+			this.parent = parent;
+		}
+
+		Node child(int dir) {
+			return dir == LEFT ? left : right;
+		}
+
+		void setChild(int dir, Node node) {
+			if (dir == LEFT) {
+				left = node;
+			} else {
+				right = node;
+			}
+		}
+
+		/**
+		 * waits until a rotation which shrinks this node ends. it spins for
+		 * SPIN_COUNT reads of the version, and then takes this node's lock, which the
+		 * rotating thread holds until the rotation is over.
+		 */
+		void waitUntilShrinkCompleted(long ovl) {
+			if ((ovl & SHRINKING) == 0L) {
+				return;
+			}
+			for (int tries = 0; tries < SPIN_COUNT; tries++) {
+				if (version != ovl) {
+					return;
+				}
+			}
+			synchronized (this) {
+				// the shrink is over once the lock is free.
+			}
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+/**
+ * public interface IntBooleanConsumer
+ * <p>
+ * This interface represents an action on an item with an integer key and a
+ * boolean value, such as the items that forEach passes in AVLTree and BSTree.
+ * Unlike a BiConsumer<Integer, Boolean>, it takes primitives, so no key or value
+ * is boxed.
+ *
+ * @author Sharon Tadmor
+ */
+
+@FunctionalInterface
+public interface IntBooleanConsumer {
+
+	/**
+	 * performs this action on an item.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	void accept(int key, boolean value);
+
+}
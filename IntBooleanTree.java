@@ -0,0 +1,55 @@
+/**
+ * public interface IntBooleanTree
+ * <p>
+ * This interface represents the operations that the trees with integer keys
+ * and boolean values share, so that the measurement drivers can run any of them
+ * through TreeAdapter. Every implementation keeps its own return contract for
+ * insert and delete, apart from -1 for a key that was already in the tree or
+ * was not found.
+ *
+ * @author Sharon Tadmor
+ */
+
+public interface IntBooleanTree {
+
+	/**
+	 * inserts an item with key k and info i.
+	 *
+	 * @return -1 if an item with key k is already in the tree.
+	 */
+	int insert(int k, boolean i);
+
+	/**
+	 * deletes the item with key k, if it is there.
+	 *
+	 * @return -1 if an item with key k was not found in the tree.
+	 */
+	int delete(int k);
+
+	/**
+	 * @return the info of the item with key k, or null if there is none.
+	 */
+	Boolean search(int k);
+
+	/**
+	 * @return the xor of the values of the items whose keys are smaller or equal
+	 *         to k.
+	 */
+	boolean prefixXor(int k);
+
+	/**
+	 * @return the same as prefixXor(k), computed by a walk from the minimum.
+	 */
+	boolean succPrefixXor(int k);
+
+	/**
+	 * @return the keys of the tree in increasing order.
+	 */
+	int[] keysToArray();
+
+	/**
+	 * @return the number of items in the tree.
+	 */
+	int size();
+
+}
@@ -0,0 +1,68 @@
+import java.util.function.LongBinaryOperator;
+
+/**
+ * public interface LongMonoid
+ * <p>
+ * This interface represents an associative combine function on long values with
+ * an identity element, i.e. combine(identity(), a) == combine(a, identity()) ==
+ * a and combine(combine(a, b), c) == combine(a, combine(b, c)). The function
+ * does not have to be commutative. It works on primitives, so folding with it
+ * never boxes.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public interface LongMonoid {
+
+	/**
+	 * sum of the values.
+	 */
+	LongMonoid SUM = of(0L, (a, b) -> a + b);
+
+	/**
+	 * maximum of the values, Long.MIN_VALUE for no values.
+	 */
+	LongMonoid MAX = of(Long.MIN_VALUE, Math::max);
+
+	/**
+	 * minimum of the values, Long.MAX_VALUE for no values.
+	 */
+	LongMonoid MIN = of(Long.MAX_VALUE, Math::min);
+
+	/**
+	 * bitwise xor of the values. for values 0 and 1 this is the parity of the
+	 * number of ones, as in AVLTree.prefixXor.
+	 */
+	LongMonoid XOR = of(0L, (a, b) -> a ^ b);
+
+	/**
+	 * @return the identity element.
+	 */
+	long identity();
+
+	/**
+	 * @return the combination of a followed by b.
+	 */
+	long combine(long a, long b);
+
+	/**
+	 * creates a monoid from an identity and an associative function.
+	 *
+	 * @param identity
+	 * @param combine
+	 * @return the monoid.
+	 */
+	static LongMonoid of(final long identity, final LongBinaryOperator combine) {
+		return new LongMonoid() {
+			public long identity() {
+				return identity;
+			}
+
+			public long combine(long a, long b) {
+				return combine.applyAsLong(a, b);
+			}
+		};
+	}
+
+}
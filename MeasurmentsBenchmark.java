@@ -0,0 +1,584 @@
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark harness for the tree implementations.
+ * <p>
+ * Every combination of implementation, operation, tree size and key order is
+ * run for a number of warmup iterations, whose results are dropped, and then for
+ * a number of measurement iterations. An iteration repeats the operation over
+ * all n keys until at least iterationMillis have passed, and only the operation
+ * itself is timed; building the tree it needs is not. zipfSearch and
+ * zipfPrefixXor query n keys drawn with a Zipf distribution instead (see
+ * zipfQueries), so a few hot keys get most of the queries. By default every
+ * combination runs in a fresh JVM (a fork), so the JIT profile of one
+ * implementation does not affect another. Allocated bytes per operation and GC
+ * counts and times are recorded during the measurement iterations.
+ * <p>
+ * Results are written as a JSON array in the layout of JMH's JSON output, with
+ * ns/op as the primary metric.
+ * <p>
+ * usage: java MeasurmentsBenchmark [--sizes 1000,10000] [--impls AVLTree,BSTree]
+ * [--ops insert,search] [--orders arithmetic,balanced,random] [--zipf 0.99]
+ * [--warmup 5] [--iterations 10] [--iterationMillis 200] [--forks 1]
+ * [--out file.json]
+ */
+public class MeasurmentsBenchmark {
+	final static String[] OPERATIONS = { "insert", "delete", "search", "prefixXor", "succPrefixXor",
+			"keysToArray", "zipfSearch", "zipfPrefixXor" };
+	final static String[] ORDERS = { "arithmetic", "balanced", "random" };
+	final static int DEGENERATE_LIMIT = 20000;
+	final static int SUCC_SAMPLE = 256;
+	final static long SEED = 20211003L;
+	final static String RESULT = "RESULT ";
+	static volatile long sink;
+
+	int[] sizes = { 1000, 10000, 100000 };
+	String[] impls = TreeAdapter.names();
+	String[] ops = OPERATIONS;
+	String[] orders = ORDERS;
+	double zipf = 0.99;
+	int warmup = 5;
+	int iterations = 10;
+	int iterationMillis = 200;
+	int forks = 1;
+	String out = "benchmark-results.json";
+
+	/**
+	 * an operation over a tree. setup() prepares the tree and is not timed, run()
+	 * is timed and returns the number of operations it performed.
+	 */
+	static abstract class Workload {
+		final String impl;
+		final int[] keys;
+		final boolean[] values;
+		TreeAdapter tree;
+
+		Workload(String impl, int[] keys, boolean[] values) {
+			this.impl = impl;
+			this.keys = keys;
+			this.values = values;
+		}
+
+		void fill() {
+			tree = TreeAdapter.create(impl);
+			for (int i = 0; i < keys.length; i++) {
+				tree.insert(keys[i], values[i]);
+			}
+		}
+
+		void setup() {
+			if (tree == null) {
+				fill();
+			}
+		}
+
+		abstract int run();
+	}
+
+	/**
+	 * the results of one fork: ns/op of every measurement iteration, allocated
+	 * bytes per operation, and the number of collections and their time in
+	 * milliseconds.
+	 */
+	static class Result {
+		double[] scores;
+		double allocPerOp;
+		long gcCount;
+		long gcTime;
+
+		String encode() {
+			StringBuilder sb = new StringBuilder(RESULT);
+			for (int i = 0; i < scores.length; i++) {
+				sb.append(i == 0 ? "" : ",").append(scores[i]);
+			}
+			return sb.append('|').append(allocPerOp).append('|').append(gcCount).append('|').append(gcTime)
+					.toString();
+		}
+
+		static Result decode(String line) {
+			String[] parts = line.substring(RESULT.length()).split("\\|");
+			Result result = new Result();
+			String[] scores = parts[0].split(",");
+			result.scores = new double[scores.length];
+			for (int i = 0; i < scores.length; i++) {
+				result.scores[i] = Double.parseDouble(scores[i]);
+			}
+			result.allocPerOp = Double.parseDouble(parts[1]);
+			result.gcCount = Long.parseLong(parts[2]);
+			result.gcTime = Long.parseLong(parts[3]);
+			return result;
+		}
+	}
+
+	/**
+	 * @return the n keys in the given order: (a) arithmetic 0,...,n-1, (b) balanced
+	 *         (see MeasurmentsQ2.eqSeq), (c) random permutation of 0,...,n-1.
+	 */
+	public static int[] keys(String order, int n) {
+		if (order.equals("balanced")) {
+			return MeasurmentsQ2.eqSeq(n);
+		}
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		if (order.equals("random")) {
+			Random random = new Random(SEED);
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int tmp = keys[i];
+				keys[i] = keys[j];
+				keys[j] = tmp;
+			}
+		}
+		return keys;
+	}
+
+	public static boolean[] values(int n) {
+		boolean[] values = new boolean[n];
+		Random random = new Random(SEED + 1);
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextBoolean();
+		}
+		return values;
+	}
+
+	/**
+	 * @return count keys drawn from the given keys with a Zipf distribution: the
+	 *         j-th most popular key is drawn with probability proportional to 1 /
+	 *         j^exponent, so with exponent 0 every key is equally likely, and with
+	 *         exponent 1 and 10^6 keys the top 1% of the keys get about 68% of the
+	 *         draws. the popularity ranks are a random permutation of the keys, so
+	 *         the hot keys are spread over the whole key range.
+	 */
+	public static int[] zipfQueries(int[] keys, int count, double exponent) {
+		int n = keys.length;
+		double[] cdf = new double[n];
+		double total = 0;
+		for (int j = 0; j < n; j++) {
+			total += Math.pow(j + 1, -exponent);
+			cdf[j] = total;
+		}
+		int[] byRank = keys.clone();
+		Random random = new Random(SEED + 2);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = byRank[i];
+			byRank[i] = byRank[j];
+			byRank[j] = tmp;
+		}
+		int[] queries = new int[count];
+		for (int i = 0; i < count; i++) {
+			int rank = Arrays.binarySearch(cdf, random.nextDouble() * total);
+			queries[i] = byRank[rank >= 0 ? rank : Math.min(n - 1, -rank - 1)];
+		}
+		return queries;
+	}
+
+	/**
+	 * @return true if the combination is skipped: a BSTree built from an
+	 *         arithmetic series is a list, so large sizes take quadratic time.
+	 */
+	public static boolean skipped(String impl, String order, int n) {
+		return impl.equals("BSTree") && order.equals("arithmetic") && n > DEGENERATE_LIMIT;
+	}
+
+	public static Workload workload(String impl, String op, int[] keys, boolean[] values, double zipf) {
+		switch (op) {
+		case "insert":
+			return new Workload(impl, keys, values) {
+				void setup() {
+					tree = TreeAdapter.create(impl);
+				}
+
+				int run() {
+					long res = 0;
+					for (int i = 0; i < keys.length; i++) {
+						res += tree.insert(keys[i], values[i]);
+					}
+					sink += res;
+					return keys.length;
+				}
+			};
+		case "delete":
+			return new Workload(impl, keys, values) {
+				void setup() {
+					fill();
+				}
+
+				int run() {
+					long res = 0;
+					for (int i = 0; i < keys.length; i++) {
+						res += tree.delete(keys[i]);
+					}
+					sink += res;
+					return keys.length;
+				}
+			};
+		case "search":
+			return new Workload(impl, keys, values) {
+				int run() {
+					long res = 0;
+					for (int i = 0; i < keys.length; i++) {
+						res += tree.search(keys[i]) ? 1 : 0;
+					}
+					sink += res;
+					return keys.length;
+				}
+			};
+		case "prefixXor":
+			return new Workload(impl, keys, values) {
+				int run() {
+					long res = 0;
+					for (int i = 0; i < keys.length; i++) {
+						res += tree.prefixXor(keys[i]) ? 1 : 0;
+					}
+					sink += res;
+					return keys.length;
+				}
+			};
+		case "succPrefixXor":
+			return new Workload(impl, keys, values) {
+				int run() {
+					long res = 0;
+					int step = Math.max(1, keys.length / SUCC_SAMPLE);
+					int count = 0;
+					for (int i = 0; i < keys.length; i += step) {
+						res += tree.succPrefixXor(keys[i]) ? 1 : 0;
+						count++;
+					}
+					sink += res;
+					return count;
+				}
+			};
+		case "keysToArray":
+			return new Workload(impl, keys, values) {
+				int run() {
+					sink += tree.keysToArray().length;
+					return 1;
+				}
+			};
+		case "zipfSearch":
+			return new Workload(impl, keys, values) {
+				final int[] queries = zipfQueries(keys, keys.length, zipf);
+
+				int run() {
+					long res = 0;
+					for (int i = 0; i < queries.length; i++) {
+						res += tree.search(queries[i]) ? 1 : 0;
+					}
+					sink += res;
+					return queries.length;
+				}
+			};
+		case "zipfPrefixXor":
+			return new Workload(impl, keys, values) {
+				final int[] queries = zipfQueries(keys, keys.length, zipf);
+
+				int run() {
+					long res = 0;
+					for (int i = 0; i < queries.length; i++) {
+						res += tree.prefixXor(queries[i]) ? 1 : 0;
+					}
+					sink += res;
+					return queries.length;
+				}
+			};
+		default:
+			throw new IllegalArgumentException("unknown operation: " + op);
+		}
+	}
+
+	/**
+	 * runs warmup and measurement iterations of one combination in this JVM.
+	 */
+	public static Result runIterations(String impl, String op, int n, String order, double zipf, int warmup,
+			int iterations, int iterationMillis) {
+		Workload workload = workload(impl, op, keys(order, n), values(n), zipf);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+				? (com.sun.management.ThreadMXBean) threads
+				: null;
+		long thread = Thread.currentThread().getId();
+		Result result = new Result();
+		result.scores = new double[iterations];
+		long totalOps = 0;
+		long allocated = 0;
+		long[] gcBefore = gcTotals();
+		for (int it = -warmup; it < iterations; it++) {
+			if (it == 0) {
+				gcBefore = gcTotals();
+			}
+			long time = 0;
+			long ops = 0;
+			long deadline = System.nanoTime() + iterationMillis * 1000000L;
+			do {
+				workload.setup();
+				long bytes = allocations != null ? allocations.getThreadAllocatedBytes(thread) : 0;
+				long before = System.nanoTime();
+				ops += workload.run();
+				time += System.nanoTime() - before;
+				if (it >= 0 && allocations != null) {
+					allocated += allocations.getThreadAllocatedBytes(thread) - bytes;
+				}
+			} while (System.nanoTime() < deadline);
+			if (it >= 0) {
+				result.scores[it] = (double) time / ops;
+				totalOps += ops;
+			}
+		}
+		long[] gcAfter = gcTotals();
+		result.allocPerOp = allocations != null ? (double) allocated / totalOps : Double.NaN;
+		result.gcCount = gcAfter[0] - gcBefore[0];
+		result.gcTime = gcAfter[1] - gcBefore[1];
+		return result;
+	}
+
+	/**
+	 * @return the total number of collections and their total time in
+	 *         milliseconds, over all collectors.
+	 */
+	public static long[] gcTotals() {
+		long[] totals = new long[2];
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			totals[0] += Math.max(0, gc.getCollectionCount());
+			totals[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return totals;
+	}
+
+	/**
+	 * runs one combination in a child JVM with the same class path and JVM
+	 * arguments, and reads back its result.
+	 */
+	public Result fork(String impl, String op, int n, String order) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + "/bin/java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(MeasurmentsBenchmark.class.getName());
+		command.addAll(Arrays.asList("--child", impl, op, Integer.toString(n), order, Double.toString(zipf),
+				Integer.toString(warmup), Integer.toString(iterations), Integer.toString(iterationMillis)));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		Result result = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(RESULT)) {
+				result = Result.decode(line);
+			} else {
+				System.out.println(line);
+			}
+		}
+		if (process.waitFor() != 0 || result == null) {
+			throw new IOException("fork failed for " + impl + "." + op + " n=" + n + " order=" + order);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the two-sided 99.9% quantile of Student's t distribution.
+	 */
+	public static double studentT(int df) {
+		final double[] table = { 636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587, 4.437,
+				4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768, 3.745, 3.725,
+				3.707, 3.690, 3.674, 3.659, 3.646 };
+		return df <= table.length ? table[Math.max(df, 1) - 1] : 3.291;
+	}
+
+	/**
+	 * appends the JSON object of one combination, in the layout of a JMH result.
+	 */
+	public void appendJson(StringBuilder sb, String impl, String op, int n, String order, List<Result> results) {
+		int count = 0;
+		double sum = 0;
+		double alloc = 0;
+		long gcCount = 0;
+		long gcTime = 0;
+		for (Result result : results) {
+			for (double score : result.scores) {
+				sum += score;
+				count++;
+			}
+			alloc += result.allocPerOp / results.size();
+			gcCount += result.gcCount;
+			gcTime += result.gcTime;
+		}
+		double mean = sum / count;
+		double squares = 0;
+		for (Result result : results) {
+			for (double score : result.scores) {
+				squares += (score - mean) * (score - mean);
+			}
+		}
+		double error = count > 1 ? studentT(count - 1) * Math.sqrt(squares / (count - 1)) / Math.sqrt(count)
+				: Double.NaN;
+		sb.append("  {\n");
+		sb.append("    \"benchmark\" : \"").append(impl).append('.').append(op).append("\",\n");
+		sb.append("    \"mode\" : \"avgt\",\n");
+		sb.append("    \"forks\" : ").append(results.size()).append(",\n");
+		sb.append("    \"jvm\" : \"").append(jsonEscape(System.getProperty("java.home") + "/bin/java"))
+				.append("\",\n");
+		sb.append("    \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+		sb.append("    \"warmupIterations\" : ").append(warmup).append(",\n");
+		sb.append("    \"warmupTime\" : \"").append(iterationMillis).append(" ms\",\n");
+		sb.append("    \"measurementIterations\" : ").append(iterations).append(",\n");
+		sb.append("    \"measurementTime\" : \"").append(iterationMillis).append(" ms\",\n");
+		sb.append("    \"params\" : {\n");
+		sb.append("      \"size\" : \"").append(n).append("\",\n");
+		sb.append("      \"order\" : \"").append(order).append(op.startsWith("zipf") ? "\",\n" : "\"\n");
+		if (op.startsWith("zipf")) {
+			sb.append("      \"zipf\" : \"").append(zipf).append("\"\n");
+		}
+		sb.append("    },\n");
+		sb.append("    \"primaryMetric\" : {\n");
+		sb.append("      \"score\" : ").append(number(mean)).append(",\n");
+		sb.append("      \"scoreError\" : ").append(number(error)).append(",\n");
+		sb.append("      \"scoreUnit\" : \"ns/op\",\n");
+		sb.append("      \"rawData\" : [");
+		for (int f = 0; f < results.size(); f++) {
+			sb.append(f == 0 ? "\n        [" : ",\n        [");
+			double[] scores = results.get(f).scores;
+			for (int i = 0; i < scores.length; i++) {
+				sb.append(i == 0 ? "" : ", ").append(number(scores[i]));
+			}
+			sb.append(']');
+		}
+		sb.append("\n      ]\n");
+		sb.append("    },\n");
+		sb.append("    \"secondaryMetrics\" : {\n");
+		sb.append("      \"gc.alloc.rate.norm\" : { \"score\" : ").append(number(alloc))
+				.append(", \"scoreUnit\" : \"B/op\" },\n");
+		sb.append("      \"gc.count\" : { \"score\" : ").append(gcCount).append(", \"scoreUnit\" : \"counts\" },\n");
+		sb.append("      \"gc.time\" : { \"score\" : ").append(gcTime).append(", \"scoreUnit\" : \"ms\" }\n");
+		sb.append("    }\n");
+		sb.append("  }");
+	}
+
+	public static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" : Double.toString(value);
+	}
+
+	public static String jsonEscape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * runs all combinations and writes the JSON results file.
+	 */
+	public void runAll() throws IOException, InterruptedException {
+		StringBuilder sb = new StringBuilder("[\n");
+		boolean first = true;
+		for (String impl : impls) {
+			for (String op : ops) {
+				for (int n : sizes) {
+					for (String order : orders) {
+						if (skipped(impl, order, n)) {
+							System.out.println("skipped " + impl + "." + op + " n=" + n + " order=" + order);
+							continue;
+						}
+						List<Result> results = new ArrayList<Result>();
+						if (forks == 0) {
+							results.add(runIterations(impl, op, n, order, zipf, warmup, iterations, iterationMillis));
+						}
+						for (int f = 0; f < forks; f++) {
+							results.add(fork(impl, op, n, order));
+						}
+						if (!first) {
+							sb.append(",\n");
+						}
+						first = false;
+						appendJson(sb, impl, op, n, order, results);
+						double mean = 0;
+						for (Result result : results) {
+							for (double score : result.scores) {
+								mean += score / (result.scores.length * results.size());
+							}
+						}
+						System.out.printf("%s.%s n=%d order=%s%s: %.1f ns/op%n", impl, op, n, order,
+								op.startsWith("zipf") ? " zipf=" + zipf : "", mean);
+					}
+				}
+			}
+		}
+		sb.append("\n]\n");
+		Writer writer = new FileWriter(out);
+		try {
+			writer.write(sb.toString());
+		} finally {
+			writer.close();
+		}
+		System.out.println("results written to " + out);
+	}
+
+	public static int[] parseSizes(String s) {
+		String[] parts = s.split(",");
+		int[] sizes = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			sizes[i] = Integer.parseInt(parts[i].trim());
+		}
+		return sizes;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--child")) {
+			Result result = runIterations(args[1], args[2], Integer.parseInt(args[3]), args[4],
+					Double.parseDouble(args[5]), Integer.parseInt(args[6]), Integer.parseInt(args[7]),
+					Integer.parseInt(args[8]));
+			System.out.println(result.encode());
+			return;
+		}
+		MeasurmentsBenchmark benchmark = new MeasurmentsBenchmark();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--sizes":
+				benchmark.sizes = parseSizes(value);
+				break;
+			case "--impls":
+				benchmark.impls = value.split(",");
+				break;
+			case "--ops":
+				benchmark.ops = value.split(",");
+				break;
+			case "--orders":
+				benchmark.orders = value.split(",");
+				break;
+			case "--zipf":
+				benchmark.zipf = Double.parseDouble(value);
+				break;
+			case "--warmup":
+				benchmark.warmup = Integer.parseInt(value);
+				break;
+			case "--iterations":
+				benchmark.iterations = Integer.parseInt(value);
+				break;
+			case "--iterationMillis":
+				benchmark.iterationMillis = Integer.parseInt(value);
+				break;
+			case "--forks":
+				benchmark.forks = Integer.parseInt(value);
+				break;
+			case "--out":
+				benchmark.out = value;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option: " + args[i]);
+			}
+		}
+		benchmark.runAll();
+	}
+
+}
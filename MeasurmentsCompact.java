@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class MeasurmentsCompact {
+
+	/**
+	 * returns the keys 0,...,n-1 in random order.
+	 */
+	public static int[] shuffledKeys(int n) {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			list.add(Integer.valueOf(i));
+		}
+		Collections.shuffle(list);
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = list.get(i);
+		}
+		return keys;
+	}
+
+	/**
+	 * returns the number of bytes currently in use on the heap, after asking for a
+	 * few garbage collections.
+	 */
+	public static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * measures the heap footprint in bytes per key of an AVL tree and a compact AVL
+	 * tree which hold the same n keys.
+	 */
+	public static void footprint(int n) {
+		int[] keys = shuffledKeys(n);
+		long before = usedHeap();
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		long after = usedHeap();
+		System.out.println("AVLTree bytes per key: " + (after - before) / n + " (size " + tree.size() + ")");
+		tree = null;
+		before = usedHeap();
+		CompactAVLTree compact = new CompactAVLTree();
+		for (int i = 0; i < n; i++) {
+			compact.insert(keys[i], (i & 1) == 0);
+		}
+		after = usedHeap();
+		System.out.println("CompactAVLTree bytes per key: " + (after - before) / n + " (size " + compact.size()
+				+ ", capacity " + compact.capacity() + ")");
+	}
+
+	/**
+	 * measures the average time in nano seconds per insert, search and delete of n
+	 * random keys in an AVL tree and a compact AVL tree.
+	 */
+	public static void throughput(int n) {
+		int[] keys = shuffledKeys(n);
+		long hits = 0;
+		AVLTree tree = new AVLTree();
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		long t1 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			hits += tree.search(keys[i]) ? 1 : 0;
+		}
+		long t2 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.delete(keys[i]);
+		}
+		long t3 = System.nanoTime();
+		System.out.println("AVLTree insert/search/delete: " + (t1 - t0) / n + " " + (t2 - t1) / n + " "
+				+ (t3 - t2) / n);
+		CompactAVLTree compact = new CompactAVLTree();
+		t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			compact.insert(keys[i], (i & 1) == 0);
+		}
+		t1 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			hits += compact.search(keys[i]) ? 1 : 0;
+		}
+		t2 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			compact.delete(keys[i]);
+		}
+		t3 = System.nanoTime();
+		System.out.println("CompactAVLTree insert/search/delete: " + (t1 - t0) / n + " " + (t2 - t1) / n + " "
+				+ (t3 - t2) / n);
+		if (hits != n) {
+			System.out.println("unexpected number of hits: " + hits);
+		}
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		throughput(n); // calibration run.
+		for (int i = 1; i <= 3; i++) {
+			System.out.println(">>> run: " + i);
+			footprint(n);
+			throughput(n);
+		}
+	}
+
+}
@@ -0,0 +1,342 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * measures the throughput of the thread-safe trees under a mix of lookups and
+ * updates, for 1, 2, 4, ... threads up to the number of available processors.
+ * the first table mixes search and prefixXor lookups, the second one is
+ * write-heavy with search lookups only, and includes FineGrainedAVLTree, which
+ * has no prefixXor.
+ * <p>
+ * usage: java MeasurmentsConcurrency [size] [millis] [readPercent]
+ * [writeHeavyReadPercent]
+ * <p>
+ * java MeasurmentsConcurrency stress [threads] [millis] [range]
+ * [contendedRange] checks that FineGrainedAVLTree stays linearizable and
+ * balanced under concurrent updates, first with every thread updating its own
+ * keys and then with all threads updating the same few keys.
+ */
+public class MeasurmentsConcurrency {
+	final static String[] IMPLS = { "synchronized", "StampedLock" };
+	final static String[] WRITE_HEAVY_IMPLS = { "synchronized", "StampedLock", "FineGrained" };
+	static volatile boolean running;
+
+	/**
+	 * creates an empty thread-safe tree: (1) synchronized - every call of an
+	 * AVLTree holds one monitor, (2) StampedLock - ConcurrentAVLTree, (3)
+	 * FineGrained - FineGrainedAVLTree.
+	 */
+	public static TreeAdapter create(String impl) {
+		switch (impl) {
+		case "synchronized":
+			return TreeAdapter.synchronizedAdapter(TreeAdapter.of(new AVLTree()));
+		case "StampedLock":
+			return TreeAdapter.of(new ConcurrentAVLTree());
+		case "FineGrained":
+			return TreeAdapter.of(new FineGrainedAVLTree());
+		default:
+			throw new IllegalArgumentException("unknown implementation: " + impl);
+		}
+	}
+
+	/**
+	 * runs the given number of threads for the given time. keys are drawn
+	 * uniformly from 0,...,2n-1 and the tree starts with about n of them. every
+	 * operation is a lookup with probability readPercent, otherwise an update
+	 * (insert or delete), so the size stays about n. a lookup is a search, or
+	 * half of the time a prefixXor if prefixLookups is set.
+	 *
+	 * @return operations per second over all threads.
+	 */
+	public static double throughput(final TreeAdapter tree, int threads, final int n, final int readPercent,
+			final boolean prefixLookups, long millis) throws InterruptedException {
+		final int range = 2 * n;
+		for (int i = 0; i < range; i += 2) {
+			tree.insert(i, (i & 2) == 0);
+		}
+		final AtomicLong total = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		running = true;
+		for (int t = 0; t < threads; t++) {
+			new Thread(new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					long ops = 0;
+					long sink = 0;
+					try {
+						start.await();
+						while (running) {
+							int k = random.nextInt(range);
+							int p = random.nextInt(200);
+							if (p < 2 * readPercent) {
+								if (!prefixLookups || (p & 1) == 0) {
+									sink += tree.search(k) == null ? 0 : 1;
+								} else {
+									sink += tree.prefixXor(k) ? 1 : 0;
+								}
+							} else if ((p & 1) == 0) {
+								sink += tree.insert(k, random.nextBoolean());
+							} else {
+								sink += tree.delete(k);
+							}
+							ops++;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					total.addAndGet(ops + (sink == Long.MIN_VALUE ? 1 : 0));
+					done.countDown();
+				}
+			}).start();
+		}
+		long before = System.nanoTime();
+		start.countDown();
+		Thread.sleep(millis);
+		running = false;
+		done.await();
+		long after = System.nanoTime();
+		return total.get() * 1e9 / (after - before);
+	}
+
+	/**
+	 * prints one line per thread count with the throughput of each
+	 * implementation.
+	 */
+	static void table(String[] impls, int n, int readPercent, boolean prefixLookups, long millis)
+			throws InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (String impl : impls) { // calibration run.
+			throughput(create(impl), cores, n, readPercent, prefixLookups, millis);
+		}
+		System.out.println("ops/sec, n = " + n + ", " + readPercent + "% lookups"
+				+ (prefixLookups ? " (search, prefixXor)" : " (search)"));
+		for (int threads = 1; threads <= cores; threads = threads < cores && 2 * threads > cores ? cores
+				: 2 * threads) {
+			StringBuilder line = new StringBuilder("threads " + threads + ":");
+			for (String impl : impls) {
+				line.append(String.format(" %s %.0f", impl,
+						throughput(create(impl), threads, n, readPercent, prefixLookups, millis)));
+			}
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * runs random updates, searches and successor queries on a small key range
+	 * from many threads. thread t owns the keys k with k % threads == t and is the
+	 * only one to update them, so a linearizable tree must return exactly what a
+	 * sequential map of the owned keys returns, however the threads interleave.
+	 * lookups of keys owned by other threads and successor queries are checked for
+	 * consistency only. at the end, the tree must be a valid AVL tree holding
+	 * exactly the keys the threads expect.
+	 *
+	 * @return null if all checks passed, otherwise a description of the first
+	 *         failure.
+	 */
+	public static String stress(final int threads, final int range, long millis) throws InterruptedException {
+		final FineGrainedAVLTree tree = new FineGrainedAVLTree();
+		final Boolean[][] expected = new Boolean[threads][range];
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		running = true;
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			new Thread(new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					Boolean[] own = expected[id];
+					try {
+						start.await();
+						while (running && failure.get() == null) {
+							int k = id + threads * random.nextInt((range - id + threads - 1) / threads);
+							int p = random.nextInt(10);
+							String error = null;
+							if (p < 4) {
+								boolean i = random.nextBoolean();
+								boolean inserted = tree.insert(k, i);
+								if (inserted != (own[k] == null)) {
+									error = "insert(" + k + ") returned " + inserted;
+								} else if (inserted) {
+									own[k] = i;
+								}
+							} else if (p < 8) {
+								boolean deleted = tree.delete(k);
+								if (deleted != (own[k] != null)) {
+									error = "delete(" + k + ") returned " + deleted;
+								}
+								own[k] = null;
+							} else if (p < 9) {
+								Boolean value = tree.search(k);
+								if (value == null ? own[k] != null : !value.equals(own[k])) {
+									error = "search(" + k + ") returned " + value + ", expected " + own[k];
+								}
+							} else {
+								int q = random.nextInt(range) - 1;
+								Integer succ = tree.successor(q);
+								if (succ != null && (succ <= q || succ >= range)) {
+									error = "successor(" + q + ") returned " + succ;
+								} else if (succ == null || succ > q + 1) { // keys between q and succ were absent at some point.
+									int owned = q + 1;
+									while (owned < range && owned % threads != id) {
+										owned++;
+									}
+									if (owned < range && (succ == null || owned < succ) && own[owned] != null) {
+										error = "successor(" + q + ") returned " + succ + ", skipping " + owned;
+									}
+								}
+							}
+							if (error != null) {
+								failure.compareAndSet(null, error);
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		start.countDown();
+		Thread.sleep(millis);
+		running = false;
+		done.await();
+		if (failure.get() != null) {
+			return failure.get();
+		}
+		if (!tree.checkInvariants()) {
+			return "the tree is not a valid AVL tree";
+		}
+		int[] keys = new int[range];
+		int count = 0;
+		for (int k = 0; k < range; k++) {
+			if (expected[k % threads][k] != null) {
+				keys[count++] = k;
+				if (!expected[k % threads][k].equals(tree.search(k))) {
+					return "final search(" + k + ") returned " + tree.search(k);
+				}
+			}
+		}
+		if (!Arrays.equals(Arrays.copyOf(keys, count), tree.keysToArray()) || tree.size() != count) {
+			return "the keys of the tree differ from the expected keys";
+		}
+		Integer min = tree.minKey();
+		Integer max = tree.maxKey();
+		if (count > 0 && (min == null || min != keys[0] || max == null || max != keys[count - 1])) {
+			return "minKey() or maxKey() is wrong";
+		}
+		return null;
+	}
+
+	/**
+	 * runs random insertions, deletions, searches and successor queries from many
+	 * threads, all on the same keys 0,...,range-1, so that updates of one key race
+	 * with each other and lookups race with the unlinking of routing nodes. every
+	 * successful insertion of a key adds 1 to its net count and every successful
+	 * deletion subtracts 1. since each successful update changes whether the key
+	 * is in the tree, a linearizable tree ends with a net count of 0 or 1 for every
+	 * key, 1 exactly for the keys it holds. successor queries are checked for
+	 * consistency only. at the end, the tree must be a valid AVL tree whose size
+	 * and keysToArray() agree with the net counts.
+	 *
+	 * @return null if all checks passed, otherwise a description of the first
+	 *         failure.
+	 */
+	public static String contendedStress(final int threads, final int range, long millis)
+			throws InterruptedException {
+		final FineGrainedAVLTree tree = new FineGrainedAVLTree();
+		final AtomicLongArray net = new AtomicLongArray(range);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		running = true;
+		for (int t = 0; t < threads; t++) {
+			new Thread(new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					try {
+						start.await();
+						while (running && failure.get() == null) {
+							int k = random.nextInt(range);
+							int p = random.nextInt(10);
+							if (p < 4) {
+								if (tree.insert(k, random.nextBoolean())) {
+									net.incrementAndGet(k);
+								}
+							} else if (p < 8) {
+								if (tree.delete(k)) {
+									net.decrementAndGet(k);
+								}
+							} else if (p < 9) {
+								tree.search(k);
+							} else {
+								int q = k - 1;
+								Integer succ = tree.successor(q);
+								if (succ != null && (succ <= q || succ >= range)) {
+									failure.compareAndSet(null, "successor(" + q + ") returned " + succ);
+								}
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		start.countDown();
+		Thread.sleep(millis);
+		running = false;
+		done.await();
+		if (failure.get() != null) {
+			return failure.get();
+		}
+		if (!tree.checkInvariants()) {
+			return "the tree is not a valid AVL tree";
+		}
+		int[] keys = new int[range];
+		int count = 0;
+		for (int k = 0; k < range; k++) {
+			long c = net.get(k);
+			if (c != 0 && c != 1) {
+				return "the net count of key " + k + " is " + c;
+			}
+			if ((c == 1) != (tree.search(k) != null)) {
+				return "final search(" + k + ") returned " + tree.search(k) + " with net count " + c;
+			}
+			if (c == 1) {
+				keys[count++] = k;
+			}
+		}
+		if (!Arrays.equals(Arrays.copyOf(keys, count), tree.keysToArray()) || tree.size() != count) {
+			return "size() or keysToArray() differs from the net counts";
+		}
+		return null;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length > 0 && args[0].equals("stress")) {
+			int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+			long millis = args.length > 2 ? Long.parseLong(args[2]) : 5000;
+			int range = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+			int contendedRange = args.length > 4 ? Integer.parseInt(args[4]) : 128;
+			String failure = stress(threads, range, millis);
+			System.out.println(failure == null ? "stress: ok" : "stress: FAILED - " + failure);
+			failure = contendedStress(threads, contendedRange, millis);
+			System.out.println(failure == null ? "contended stress: ok" : "contended stress: FAILED - " + failure);
+			return;
+		}
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+		int readPercent = args.length > 2 ? Integer.parseInt(args[2]) : 95;
+		int writeHeavyReadPercent = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+		table(IMPLS, n, readPercent, true, millis);
+		table(WRITE_HEAVY_IMPLS, n, writeHeavyReadPercent, false, millis);
+	}
+
+}
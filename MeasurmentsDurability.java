@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * measures the throughput of DurableAVLTree insertions and deletions, in
+ * operations per second, for every durability setting on 1, 4 and 16 threads,
+ * and compares it with an AVLTree under a lock that writes no log. it then
+ * measures the time to open a tree by replaying its log, and by loading a
+ * snapshot after a checkpoint.
+ * <p>
+ * each thread inserts its own keys and deletes every second one of them again,
+ * so every operation changes the tree and is logged.
+ * <p>
+ * usage: java MeasurmentsDurability [seconds] [dir]
+ */
+public class MeasurmentsDurability {
+	final static int[] THREADS = { 1, 4, 16 };
+
+	/**
+	 * an insertion or deletion of a key, on either a DurableAVLTree or a plain
+	 * AVLTree.
+	 */
+	interface Updates {
+		void insert(int k, boolean i);
+
+		void delete(int k);
+	}
+
+	/**
+	 * runs the given number of threads for about the given number of seconds and
+	 * returns the number of operations per second.
+	 */
+	static double throughput(Updates tree, int threads, double seconds) throws InterruptedException {
+		long deadline = System.nanoTime() + (long) (seconds * 1e9);
+		long[] counts = new long[threads];
+		Thread[] workers = new Thread[threads];
+		long before = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			workers[t] = new Thread(() -> {
+				long count = 0;
+				for (int j = 0; System.nanoTime() < deadline; j++) {
+					int k = j * threads + id;
+					tree.insert(k, (j & 1) == 0);
+					count++;
+					if ((j & 1) == 1) {
+						tree.delete(k - threads);
+						count++;
+					}
+				}
+				counts[id] = count;
+			});
+			workers[t].start();
+		}
+		long total = 0;
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+			total += counts[t];
+		}
+		return total / ((System.nanoTime() - before) / 1e9);
+	}
+
+	static Updates updates(DurableAVLTree tree) {
+		return new Updates() {
+			public void insert(int k, boolean i) {
+				tree.insert(k, i);
+			}
+
+			public void delete(int k) {
+				tree.delete(k);
+			}
+		};
+	}
+
+	static Updates updates(AVLTree tree) {
+		return new Updates() {
+			public synchronized void insert(int k, boolean i) {
+				tree.insert(k, i);
+			}
+
+			public synchronized void delete(int k) {
+				tree.delete(k);
+			}
+		};
+	}
+
+	static void deleteTree(Path dir) throws IOException {
+		if (Files.exists(dir)) {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * returns the ops/sec of a fresh DurableAVLTree in a new directory.
+	 */
+	static double durableThroughput(Path parent, DurableAVLTree.Durability durability, long micros, int threads,
+			double seconds) throws IOException, InterruptedException {
+		Path dir = Files.createTempDirectory(parent, "wal");
+		try (DurableAVLTree tree = new DurableAVLTree(dir, durability, micros,
+				DurableAVLTree.DEFAULT_GROUP_COMMIT_BYTES)) {
+			return throughput(updates(tree), threads, seconds);
+		} finally {
+			deleteTree(dir);
+		}
+	}
+
+	/**
+	 * prints the time in milliseconds to open a tree of n keys from its log alone,
+	 * and from a snapshot.
+	 */
+	static void recoveryTime(Path parent, int n) throws IOException {
+		Path dir = Files.createTempDirectory(parent, "wal");
+		try {
+			try (DurableAVLTree tree = new DurableAVLTree(dir, DurableAVLTree.Durability.ASYNC,
+					DurableAVLTree.DEFAULT_GROUP_COMMIT_MICROS, DurableAVLTree.DEFAULT_GROUP_COMMIT_BYTES)) {
+				int[] keys = MeasurmentsCompact.shuffledKeys(n);
+				for (int i = 0; i < n; i++) {
+					tree.insert(keys[i], (i & 1) == 0);
+				}
+			}
+			long t0 = System.nanoTime();
+			long replayed;
+			try (DurableAVLTree tree = new DurableAVLTree(dir)) {
+				replayed = tree.replayedRecords();
+				tree.checkpoint();
+			}
+			long t1 = System.nanoTime();
+			try (DurableAVLTree tree = new DurableAVLTree(dir)) {
+				if (tree.size() != n) {
+					throw new IllegalStateException("recovered " + tree.size() + " of " + n + " keys");
+				}
+			}
+			long t2 = System.nanoTime();
+			System.out.println(String.format("recovery of %d keys: replay of %d records %.1f ms, snapshot %.1f ms", n,
+					replayed, (t1 - t0) / 1e6, (t2 - t1) / 1e6));
+		} finally {
+			deleteTree(dir);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+		Path parent = args.length > 1 ? Files.createDirectories(Paths.get(args[1]))
+				: Files.createTempDirectory("durable");
+		try {
+			durableThroughput(parent, DurableAVLTree.Durability.GROUP_COMMIT, 1000, 4, seconds); // calibration run.
+			System.out.println("operations per second, " + Runtime.getRuntime().availableProcessors()
+					+ " available processors, log in " + parent);
+			for (int threads : THREADS) {
+				StringBuilder line = new StringBuilder("threads " + threads + ":");
+				line.append(String.format(" in memory %.0f", throughput(updates(new AVLTree()), threads, seconds)));
+				line.append(String.format(", SYNC %.0f",
+						durableThroughput(parent, DurableAVLTree.Durability.SYNC, 0, threads, seconds)));
+				for (long micros : new long[] { 100, 1000 }) {
+					line.append(String.format(", GROUP_COMMIT %d us %.0f", micros, durableThroughput(parent,
+							DurableAVLTree.Durability.GROUP_COMMIT, micros, threads, seconds)));
+				}
+				line.append(String.format(", ASYNC %.0f",
+						durableThroughput(parent, DurableAVLTree.Durability.ASYNC, 1000, threads, seconds)));
+				System.out.println(line);
+			}
+			recoveryTime(parent, 1000000);
+		} finally {
+			if (args.length <= 1) {
+				deleteTree(parent);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+import java.util.Random;
+
+/**
+ * measures the average time of AVLTree.insert in nanoseconds, with the finger
+ * search on and off, for streams of n keys in increasing order, in decreasing
+ * order, locally shuffled (increasing, but shuffled within blocks of a given
+ * width) and in random order.
+ * <p>
+ * usage: java MeasurmentsFinger [n] [repeats]
+ */
+public class MeasurmentsFinger {
+	final static String[] STREAMS = { "sorted", "reverse", "local 16", "local 1024", "random" };
+	static volatile long sink;
+
+	/**
+	 * @return the keys 0...n-1 in the order of the named stream.
+	 */
+	static int[] stream(String name, int n) {
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		Random random = new Random(n);
+		if (name.equals("reverse")) {
+			for (int i = 0; i < n; i++) {
+				keys[i] = n - 1 - i;
+			}
+		} else if (name.startsWith("local")) {
+			shuffle(keys, Integer.parseInt(name.substring("local ".length())), random);
+		} else if (name.equals("random")) {
+			shuffle(keys, n, random);
+		}
+		return keys;
+	}
+
+	/**
+	 * shuffles every block of width consecutive keys.
+	 */
+	static void shuffle(int[] keys, int width, Random random) {
+		for (int start = 0; start < keys.length; start += width) {
+			int end = Math.min(keys.length, start + width);
+			for (int i = end - 1; i > start; i--) {
+				int j = start + random.nextInt(i - start + 1);
+				int t = keys[i];
+				keys[i] = keys[j];
+				keys[j] = t;
+			}
+		}
+	}
+
+	/**
+	 * @return the average time in nanoseconds of an insertion of the given keys
+	 *         into a fresh tree.
+	 */
+	public static double insertTime(int[] keys, boolean finger, int repeats) {
+		long total = 0;
+		long res = 0;
+		for (int r = 0; r < repeats; r++) {
+			AVLTree tree = new AVLTree();
+			tree.setFingerSearch(finger);
+			long before = System.nanoTime();
+			for (int i = 0; i < keys.length; i++) {
+				res += tree.insert(keys[i], (i & 1) == 0);
+			}
+			total += System.nanoTime() - before;
+			res += tree.size();
+		}
+		sink += res;
+		return (double) total / repeats / keys.length;
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		for (String name : STREAMS) { // calibration run.
+			int[] keys = stream(name, n);
+			insertTime(keys, true, 1);
+			insertTime(keys, false, 1);
+		}
+		System.out.println("ns per insertion, n = " + n);
+		for (String name : STREAMS) {
+			int[] keys = stream(name, n);
+			double root = insertTime(keys, false, repeats);
+			double finger = insertTime(keys, true, repeats);
+			System.out.println(String.format("%-11s from root %.1f, finger %.1f (%.2fx)", name + ":", root, finger,
+					root / finger));
+		}
+	}
+
+}
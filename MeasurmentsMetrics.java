@@ -0,0 +1,118 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * measures the cost of TreeMetrics: the average time in nanoseconds of the
+ * insertions, searches and deletions of n random keys in an AVLTree without
+ * metrics, and with metrics. it then registers the metrics of an AVLTree and
+ * a BSTree that ran the same keys as MBeans, and prints their attributes as a
+ * JMX client reads them from the platform MBean server.
+ * <p>
+ * usage: java MeasurmentsMetrics [n] [repeats]
+ */
+public class MeasurmentsMetrics {
+	final static String[] ATTRIBUTES = { "Inserts", "Searches", "Deletes", "SingleRotations", "DoubleRotations",
+			"MeanClimbLength", "MeanSearchDepth", "MaxSearchDepth" };
+	static volatile long sink;
+
+	/**
+	 * inserts, searches and deletes the given keys.
+	 *
+	 * @return the time in nanoseconds per operation of each phase.
+	 */
+	static double[] run(TreeAdapter tree, int[] keys) {
+		double[] times = new double[3];
+		long res = 0;
+		long before = System.nanoTime();
+		for (int i = 0; i < keys.length; i++) {
+			res += tree.insert(keys[i], (i & 1) == 0);
+		}
+		times[0] = System.nanoTime() - before;
+		before = System.nanoTime();
+		for (int i = 0; i < keys.length; i++) {
+			Boolean found = tree.search(keys[keys.length - 1 - i]);
+			res += found != null && found ? 1 : 0;
+		}
+		times[1] = System.nanoTime() - before;
+		before = System.nanoTime();
+		for (int i = 0; i < keys.length; i++) {
+			res += tree.delete(keys[i]);
+		}
+		times[2] = System.nanoTime() - before;
+		sink += res;
+		for (int j = 0; j < 3; j++) {
+			times[j] /= keys.length;
+		}
+		return times;
+	}
+
+	static double[] average(int[] keys, TreeMetrics metrics, int repeats) {
+		double[] total = new double[3];
+		for (int r = 0; r < repeats; r++) {
+			AVLTree tree = new AVLTree();
+			tree.setMetrics(metrics);
+			double[] times = run(TreeAdapter.of(tree), keys);
+			for (int j = 0; j < 3; j++) {
+				total[j] += times[j] / repeats;
+			}
+		}
+		return total;
+	}
+
+	static void print(MBeanServer server, ObjectName name) throws JMException {
+		StringBuilder line = new StringBuilder(ObjectName.unquote(name.getKeyProperty("name")) + ":");
+		for (String attribute : ATTRIBUTES) {
+			Object value = server.getAttribute(name, attribute);
+			line.append(value instanceof Double ? String.format(" %s %.2f", attribute, value)
+					: " " + attribute + " " + value);
+		}
+		System.out.println(line);
+		long[] depths = (long[]) server.getAttribute(name, "SearchDepthHistogram");
+		StringBuilder histogram = new StringBuilder("  search depths:");
+		for (int depth = 0; depth < depths.length; depth++) {
+			if (depths[depth] > 0) {
+				histogram.append(" " + depth + (depth == depths.length - 1 ? "+" : "") + "=" + depths[depth]);
+			}
+		}
+		System.out.println(histogram);
+	}
+
+	public static void main(String[] args) throws JMException {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int[] keys = MeasurmentsCompact.shuffledKeys(n);
+		average(keys, null, 1); // calibration run.
+		average(keys, new TreeMetrics(), 1);
+		double[] off = average(keys, null, repeats);
+		double[] on = average(keys, new TreeMetrics(), repeats);
+		System.out.println("ns per operation, n = " + n);
+		String[] phases = { "insert", "search", "delete" };
+		for (int j = 0; j < 3; j++) {
+			System.out.println(String.format("%-7s without metrics %.1f, with metrics %.1f (%+.1f%%)", phases[j] + ":",
+					off[j], on[j], 100 * (on[j] / off[j] - 1)));
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		TreeMetrics avlMetrics = new TreeMetrics();
+		TreeMetrics bstMetrics = new TreeMetrics();
+		AVLTree avl = new AVLTree();
+		avl.setMetrics(avlMetrics);
+		BSTree bst = new BSTree();
+		bst.setMetrics(bstMetrics);
+		run(TreeAdapter.of(avl), keys);
+		run(TreeAdapter.of(bst), keys);
+		ObjectName avlName = avlMetrics.register("AVLTree");
+		ObjectName bstName = bstMetrics.register("BSTree");
+		try {
+			print(server, avlName);
+			print(server, bstName);
+		} finally {
+			avlMetrics.unregister();
+			bstMetrics.unregister();
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * compares an AVLTree with an OffHeapAVLTree of n random keys: the heap and
+ * native memory they take, the time to build them, the throughput of a mix of
+ * deletions and insertions and of searches, the garbage collections that run
+ * meanwhile, and the pause of a full collection with the tree alive.
+ * <p>
+ * each implementation runs in a fresh JVM with the JVM options of this one, so
+ * the heap of one tree does not affect the collections of the other. for
+ * 100,000,000 keys the AVLTree needs a heap of about 8 GB (for example
+ * -Xmx8g), while the OffHeapAVLTree needs about 2.4 GB of native memory and a
+ * heap only for the array of keys.
+ * <p>
+ * usage: java MeasurmentsOffHeap [n] [seconds]
+ */
+public class MeasurmentsOffHeap {
+	final static String[] IMPLS = { "AVLTree", "OffHeapAVLTree" };
+	final static String RESULT = "RESULT ";
+	static volatile long sink;
+
+	/**
+	 * @return the keys 0...n-1 in random order.
+	 */
+	static int[] shuffledKeys(int n) {
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		Random random = new Random(n);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = keys[i];
+			keys[i] = keys[j];
+			keys[j] = t;
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the number of collections and their total time in milliseconds, over
+	 *         all collectors.
+	 */
+	static long[] gcTotals() {
+		long[] totals = new long[2];
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			totals[0] += Math.max(0, gc.getCollectionCount());
+			totals[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return totals;
+	}
+
+	/**
+	 * runs the measurements for one implementation in this JVM and prints a
+	 * result line.
+	 */
+	static void run(String impl, int n, double seconds) {
+		int[] keys = shuffledKeys(n);
+		OffHeapAVLTree offHeap = impl.equals("OffHeapAVLTree") ? new OffHeapAVLTree() : null;
+		TreeAdapter tree = offHeap != null ? TreeAdapter.of(offHeap) : TreeAdapter.create(impl);
+		long heapBefore = MeasurmentsCompact.usedHeap();
+		long[] gcBuild = gcTotals();
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (keys[i] & 1) == 0);
+		}
+		long build = System.nanoTime() - t0;
+		long[] gcBefore = gcTotals();
+		long heap = MeasurmentsCompact.usedHeap() - heapBefore;
+		long nativeBytes = offHeap != null ? offHeap.nativeBytes() : 0;
+
+		// deletions and insertions: delete keys[j] and insert n + j, so the size stays
+		// n, while the JVM keeps allocating garbage that young collections clean.
+		long deadline = System.nanoTime() + (long) (seconds * 1e9);
+		long updates = 0;
+		long res = 0;
+		t0 = System.nanoTime();
+		int j = 0;
+		while (j < n && System.nanoTime() < deadline) {
+			for (int b = 0; b < 1000 && j < n; b++, j++) {
+				res += tree.delete(keys[j]);
+				res += tree.insert(n + j, (j & 1) == 0);
+				res += Integer.toString(j).length(); // short-lived garbage.
+				updates += 2;
+			}
+		}
+		long updateTime = System.nanoTime() - t0;
+		long[] gcAfter = gcTotals();
+
+		// searches and prefixXor over random keys.
+		deadline = System.nanoTime() + (long) (seconds * 1e9);
+		long queries = 0;
+		Random random = new Random(1);
+		t0 = System.nanoTime();
+		while (System.nanoTime() < deadline) {
+			for (int b = 0; b < 1000; b++) {
+				int k = random.nextInt(2 * n);
+				Boolean found = tree.search(k);
+				res += found != null && found ? 1 : 0;
+				res += tree.prefixXor(k) ? 1 : 0;
+				queries += 2;
+			}
+		}
+		long queryTime = System.nanoTime() - t0;
+
+		t0 = System.nanoTime();
+		System.gc();
+		long fullGc = System.nanoTime() - t0;
+		sink += res + tree.size();
+		if (offHeap != null) {
+			offHeap.close();
+		}
+		System.out.println(String.format("%s%s: heap %.0f MB, native %.0f MB, build %.1f s (%d gcs, %d ms), updates %.0f ops/s"
+				+ " (%d gcs, %d ms), queries %.0f ops/s, full gc %.0f ms", RESULT, impl, heap / 1e6, nativeBytes / 1e6,
+				build / 1e9, gcBefore[0] - gcBuild[0], gcBefore[1] - gcBuild[1], updates / (updateTime / 1e9), gcAfter[0] - gcBefore[0],
+				gcAfter[1] - gcBefore[1], queries / (queryTime / 1e9), fullGc / 1e6));
+	}
+
+	/**
+	 * runs an implementation in a fresh JVM and prints its result line.
+	 */
+	static void fork(String impl, int n, double seconds) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + "/bin/java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(MeasurmentsOffHeap.class.getName());
+		command.add("--run");
+		command.add(impl);
+		command.add(Integer.toString(n));
+		command.add(Double.toString(seconds));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			System.out.println(line.startsWith(RESULT) ? line.substring(RESULT.length()) : "  " + line);
+		}
+		if (process.waitFor() != 0) {
+			System.out.println(impl + ": exited with " + process.exitValue());
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals("--run")) {
+			run(args[1], Integer.parseInt(args[2]), Double.parseDouble(args[3]));
+			return;
+		}
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+		System.out.println("n = " + n + ", max heap " + Runtime.getRuntime().maxMemory() / 1000000 + " MB");
+		for (String impl : IMPLS) {
+			fork(impl, n, seconds);
+		}
+	}
+
+}
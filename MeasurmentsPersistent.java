@@ -0,0 +1,87 @@
+/**
+ * measures what a point-in-time view of a tree costs: a PersistentAVLTree
+ * snapshot, which shares all nodes with the live tree, against a full copy of an
+ * AVLTree, which is what a report job had to take before.
+ * <p>
+ * usage: java MeasurmentsPersistent [size] [versions]
+ */
+public class MeasurmentsPersistent {
+
+	/**
+	 * builds a tree with n random keys, then keeps a snapshot before each of the
+	 * given number of random updates, and reports the heap each retained version
+	 * takes beyond the live tree.
+	 */
+	public static void memoryPerVersion(int n, int versions) {
+		int[] keys = MeasurmentsCompact.shuffledKeys(2 * n);
+		PersistentAVLTree tree = new PersistentAVLTree();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		long before = MeasurmentsCompact.usedHeap();
+		PersistentAVLTree[] snapshots = new PersistentAVLTree[versions];
+		for (int v = 0; v < versions; v++) {
+			snapshots[v] = tree.snapshot();
+			if ((v & 1) == 0) {
+				tree.insert(keys[n + v], true);
+			} else {
+				tree.delete(keys[v]);
+			}
+		}
+		long after = MeasurmentsCompact.usedHeap();
+		System.out.println("PersistentAVLTree bytes per retained version: " + (after - before) / versions
+				+ " (n " + tree.size() + ", versions " + snapshots.length + ", keys " + keys.length + ")");
+
+		int[] copyKeys = tree.keysToArray();
+		boolean[] copyValues = tree.infoToArray();
+		before = MeasurmentsCompact.usedHeap();
+		AVLTree copy = AVLTree.fromSorted(copyKeys, copyValues);
+		after = MeasurmentsCompact.usedHeap();
+		// the printed sizes keep everything allocated before reachable until after the measurement.
+		System.out.println("AVLTree bytes per full copy: " + (after - before) + " (n " + copy.size() + ", from "
+				+ copyKeys.length + " keys and " + copyValues.length + " values, while holding " + tree.size()
+				+ " keys in " + snapshots.length + " versions, of " + keys.length + " shuffled keys)");
+	}
+
+	/**
+	 * measures the average time in nano seconds to take a view of a tree with n
+	 * keys: a snapshot of a PersistentAVLTree, and a copy of an AVLTree through
+	 * keysToArray, infoToArray and fromSorted. also reports the cost of path
+	 * copying, as the average insert time of both trees.
+	 */
+	public static void viewTime(int n, int repeats) {
+		int[] keys = MeasurmentsCompact.shuffledKeys(n);
+		PersistentAVLTree persistent = new PersistentAVLTree();
+		AVLTree tree = new AVLTree();
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			persistent.insert(keys[i], (i & 1) == 0);
+		}
+		long t1 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		long t2 = System.nanoTime();
+		System.out.println("insert, PersistentAVLTree: " + (t1 - t0) / n + ", AVLTree: " + (t2 - t1) / n);
+		long sink = 0;
+		t0 = System.nanoTime();
+		for (int r = 0; r < repeats; r++) {
+			sink += persistent.snapshot().size();
+		}
+		t1 = System.nanoTime();
+		for (int r = 0; r < repeats; r++) {
+			sink += AVLTree.fromSorted(tree.keysToArray(), tree.infoToArray()).size();
+		}
+		t2 = System.nanoTime();
+		System.out.println("view, PersistentAVLTree snapshot: " + (t1 - t0) / repeats + ", AVLTree copy: "
+				+ (t2 - t1) / repeats + " (" + sink + ")");
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int versions = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		memoryPerVersion(n, versions);
+		viewTime(n, 10);
+	}
+
+}
@@ -25,10 +25,12 @@ public class MeasurmentsQ2 {
 	 */
 	public static int[] eqSeq(int n) {
 		int[] arr = new int[n];
-		AVLTree avl = new AVLTree();
-		for (int i = 1; i < n + 1; i++) {
-			avl.insert(i, true);
+		int[] keys = new int[n];
+		boolean[] values = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i + 1;
 		}
+		AVLTree avl = AVLTree.fromSorted(keys, values);
 		arr[0] = avl.getRoot().getKey();
 		AVLTree.AVLNode[] a = new AVLTree.AVLNode[1];
 		a[0] = avl.getRoot();
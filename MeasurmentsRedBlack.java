@@ -0,0 +1,148 @@
+import java.util.Random;
+
+/**
+ * compares an AVLTree with a RedBlackTree on mixes of insertions, deletions and
+ * searches. each tree starts with n random keys out of 0,...,2n-1, and then
+ * runs the same n operations: an insertion takes a key that is not in the tree,
+ * a deletion a key that is, and a search any key of the range, so every update
+ * changes the tree. for each mix it prints the average time in nanoseconds per
+ * operation, and from a run with TreeMetrics, the rotations, the rebalancing
+ * operations (the sum of the results of insert and delete) and the length of
+ * the rebalancing climb per update.
+ * <p>
+ * usage: java MeasurmentsRedBlack [n] [repeats]
+ */
+public class MeasurmentsRedBlack {
+	final static String[] MIXES = { "insert-heavy", "delete-heavy", "read-heavy" };
+	final static int[][] PERCENTS = { { 60, 20, 20 }, { 25, 50, 25 }, { 5, 5, 90 } }; // insert, delete, search.
+	final static String[] TREES = { "AVLTree", "RedBlackTree" };
+	final static int INSERT = 0;
+	final static int DELETE = 1;
+	final static int SEARCH = 2;
+	static volatile long sink;
+
+	/**
+	 * returns the operations of a mix as pairs of type and key, chosen by
+	 * following the set of keys in the tree from the given initial keys.
+	 */
+	static int[] operations(int[] initial, int range, int count, int[] percents, long seed) {
+		Random random = new Random(seed);
+		int[] keys = new int[range]; // the keys in the tree, followed by the others.
+		int[] position = new int[range];
+		for (int k = 0; k < range; k++) {
+			keys[k] = k;
+			position[k] = k;
+		}
+		int present = 0;
+		for (int k : initial) {
+			swap(keys, position, position[k], present++);
+		}
+		int[] ops = new int[2 * count];
+		for (int j = 0; j < count; j++) {
+			int roll = random.nextInt(100);
+			int type = roll < percents[INSERT] ? INSERT : roll < percents[INSERT] + percents[DELETE] ? DELETE : SEARCH;
+			if (type == INSERT && present == range) {
+				type = DELETE;
+			} else if (type == DELETE && present == 0) {
+				type = INSERT;
+			}
+			int key;
+			if (type == INSERT) {
+				key = keys[present + random.nextInt(range - present)];
+				swap(keys, position, position[key], present++);
+			} else if (type == DELETE) {
+				key = keys[random.nextInt(present)];
+				swap(keys, position, position[key], --present);
+			} else {
+				key = random.nextInt(range);
+			}
+			ops[2 * j] = type;
+			ops[2 * j + 1] = key;
+		}
+		return ops;
+	}
+
+	private static void swap(int[] keys, int[] position, int i, int j) {
+		int key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		position[keys[i]] = i;
+		position[keys[j]] = j;
+	}
+
+	static TreeAdapter create(String name, TreeMetrics metrics) {
+		if (name.equals("AVLTree")) {
+			AVLTree tree = new AVLTree();
+			tree.setMetrics(metrics);
+			return TreeAdapter.of(tree);
+		}
+		RedBlackTree tree = new RedBlackTree();
+		tree.setMetrics(metrics);
+		return TreeAdapter.of(tree);
+	}
+
+	/**
+	 * builds the tree of the initial keys, and runs the operations on it.
+	 *
+	 * @return the time in nanoseconds of the operations, and the sum of the results
+	 *         of the updates.
+	 */
+	static long[] run(String name, TreeMetrics metrics, int[] initial, int[] ops) {
+		TreeAdapter tree = create(name, metrics);
+		for (int i = 0; i < initial.length; i++) {
+			tree.insert(initial[i], (i & 1) == 0);
+		}
+		if (metrics != null) {
+			metrics.reset();
+		}
+		long res = 0;
+		long rebalancing = 0;
+		long before = System.nanoTime();
+		for (int j = 0; j < ops.length; j += 2) {
+			int key = ops[j + 1];
+			if (ops[j] == INSERT) {
+				rebalancing += tree.insert(key, (key & 1) == 0);
+			} else if (ops[j] == DELETE) {
+				rebalancing += tree.delete(key);
+			} else {
+				Boolean found = tree.search(key);
+				res += found != null && found ? 1 : 0;
+			}
+		}
+		long time = System.nanoTime() - before;
+		sink += res;
+		return new long[] { time, rebalancing };
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int[] initial = new int[n];
+		System.arraycopy(MeasurmentsCompact.shuffledKeys(2 * n), 0, initial, 0, n);
+		System.out.println("n = " + n + ", " + n + " operations per mix");
+		for (int m = 0; m < MIXES.length; m++) {
+			int[] ops = operations(initial, 2 * n, n, PERCENTS[m], m);
+			int updates = 0;
+			for (int j = 0; j < ops.length; j += 2) {
+				updates += ops[j] == SEARCH ? 0 : 1;
+			}
+			for (String name : TREES) { // calibration run.
+				run(name, null, initial, ops);
+			}
+			for (String name : TREES) {
+				double time = 0;
+				for (int r = 0; r < repeats; r++) {
+					time += (double) run(name, null, initial, ops)[0] / n / repeats;
+				}
+				TreeMetrics metrics = new TreeMetrics();
+				long rebalancing = run(name, metrics, initial, ops)[1];
+				long rotations = metrics.getSingleRotations() + 2 * metrics.getDoubleRotations();
+				System.out.println(String.format(
+						"%-13s %-12s %.1f ns/op, per update: %.3f rotations, %.2f rebalancing operations, climb %.2f",
+						MIXES[m] + ":", name, time, (double) rotations / updates, (double) rebalancing / updates,
+						metrics.getMeanClimbLength()));
+			}
+		}
+	}
+
+}
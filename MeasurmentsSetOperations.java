@@ -0,0 +1,129 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * measures the parallel set operations of AVLTree (union, intersection and
+ * difference) on 1, 2, 4, ... threads up to the number of available
+ * processors, and compares the union with the way it was done before: a dump
+ * of one tree through keysToArray and infoToArray, a copy of the other one, and
+ * an insertion of every dumped key on a single thread.
+ * <p>
+ * the first tree holds n keys and the second one m keys, half of which are also
+ * in the first tree.
+ * <p>
+ * usage: java MeasurmentsSetOperations [n] [m] [repeats]
+ */
+public class MeasurmentsSetOperations {
+	final static String[] OPERATIONS = { "union", "intersection", "difference" };
+
+	/**
+	 * @return a tree with keys 0, 2, 4, ..., 2(n-1).
+	 */
+	static AVLTree evenTree(int n) {
+		int[] keys = new int[n];
+		boolean[] values = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = 2 * i;
+			values[i] = (i & 2) == 0;
+		}
+		return AVLTree.fromSorted(keys, values);
+	}
+
+	/**
+	 * @return a tree with m keys spread evenly over the keys of evenTree(n), where
+	 *         every second key is odd and so not in evenTree(n).
+	 */
+	static AVLTree spreadTree(int n, int m) {
+		int[] keys = new int[m];
+		boolean[] values = new boolean[m];
+		long step = Math.max(1, (2L * n) / m);
+		for (int i = 0; i < m; i++) {
+			keys[i] = (int) ((i * step) & ~1L) + (i & 1);
+			values[i] = (i & 1) == 0;
+		}
+		return AVLTree.fromSorted(keys, values);
+	}
+
+	static AVLTree apply(String operation, AVLTree t1, AVLTree t2, ForkJoinPool pool) {
+		switch (operation) {
+		case "union":
+			return AVLTree.union(t1, t2, pool);
+		case "intersection":
+			return AVLTree.intersection(t1, t2, pool);
+		case "difference":
+			return AVLTree.difference(t1, t2, pool);
+		default:
+			throw new IllegalArgumentException("unknown operation: " + operation);
+		}
+	}
+
+	/**
+	 * measures the average time in milliseconds of an operation on fresh trees in
+	 * a pool with the given number of threads. building the trees is not timed.
+	 */
+	public static double time(String operation, int threads, int n, int m, int repeats) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long total = 0;
+		long sink = 0;
+		for (int r = 0; r < repeats; r++) {
+			AVLTree t1 = evenTree(n);
+			AVLTree t2 = spreadTree(n, m);
+			long before = System.nanoTime();
+			sink += apply(operation, t1, t2, pool).size();
+			total += System.nanoTime() - before;
+		}
+		pool.shutdown();
+		return sink < 0 ? -1 : total / 1e6 / repeats;
+	}
+
+	/**
+	 * measures the average time in milliseconds of a union by re-insertion on a
+	 * single thread: the second tree is dumped, the first one is copied, and every
+	 * dumped key is inserted into the copy.
+	 */
+	public static double reinsertTime(int n, int m, int repeats) {
+		long total = 0;
+		long sink = 0;
+		for (int r = 0; r < repeats; r++) {
+			AVLTree t1 = evenTree(n);
+			AVLTree t2 = spreadTree(n, m);
+			long before = System.nanoTime();
+			AVLTree result = AVLTree.fromSorted(t1.keysToArray(), t1.infoToArray());
+			int[] keys = t2.keysToArray();
+			boolean[] values = t2.infoToArray();
+			for (int i = 0; i < keys.length; i++) {
+				result.insert(keys[i], values[i]);
+			}
+			sink += result.size();
+			total += System.nanoTime() - before;
+		}
+		return sink < 0 ? -1 : total / 1e6 / repeats;
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int m = args.length > 1 ? Integer.parseInt(args[1]) : n;
+		int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (String operation : OPERATIONS) { // calibration run.
+			time(operation, cores, n, m, 1);
+		}
+		reinsertTime(n, m, 1);
+		System.out.println("ms per operation (speedup over 1 thread), n = " + n + ", m = " + m + ", " + cores
+				+ " available processors");
+		System.out.println(String.format("union by re-insertion, 1 thread: %.1f", reinsertTime(n, m, repeats)));
+		double[] single = new double[OPERATIONS.length];
+		for (int threads = 1; threads <= cores; threads = threads < cores && 2 * threads > cores ? cores
+				: 2 * threads) {
+			StringBuilder line = new StringBuilder("threads " + threads + ":");
+			for (int i = 0; i < OPERATIONS.length; i++) {
+				double ms = time(OPERATIONS[i], threads, n, m, repeats);
+				if (threads == 1) {
+					single[i] = ms;
+				}
+				line.append(String.format(" %s %.1f (%.2fx)", OPERATIONS[i], ms, single[i] / ms));
+			}
+			System.out.println(line);
+		}
+	}
+
+}
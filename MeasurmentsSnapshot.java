@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * checks that an AVLTree snapshot is read back as the same tree, and measures
+ * the time to write and read a snapshot against the time to rebuild the tree by
+ * replaying its insertions, for growing tree sizes.
+ * <p>
+ * usage: java MeasurmentsSnapshot [maxSize] [repeats]
+ */
+public class MeasurmentsSnapshot {
+
+	/**
+	 * writes a snapshot of a tree with n random keys and random info, reads it
+	 * back, and compares keysToArray, infoToArray, size, min, max and prefixXor of
+	 * every key and of the keys between them.
+	 *
+	 * @return null if the trees are the same, otherwise a description of the
+	 *         first difference.
+	 */
+	public static String roundTrip(Path file, int n) throws IOException {
+		int[] keys = MeasurmentsCompact.shuffledKeys(n);
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < n; i++) {
+			tree.insert(2 * keys[i] - n, (keys[i] % 3) != 0);
+		}
+		tree.writeSnapshot(file);
+		AVLTree copy = AVLTree.readSnapshot(file);
+		if (!Arrays.equals(tree.keysToArray(), copy.keysToArray())) {
+			return "keysToArray() differs";
+		}
+		if (!Arrays.equals(tree.infoToArray(), copy.infoToArray())) {
+			return "infoToArray() differs";
+		}
+		if (tree.size() != copy.size() || tree.min() != copy.min() || tree.max() != copy.max()) {
+			return "size(), min() or max() differs";
+		}
+		for (int k = -n - 1; k <= n + 1; k++) {
+			if (tree.prefixXor(k) != copy.prefixXor(k)) {
+				return "prefixXor(" + k + ") differs";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * prints the average time in milliseconds to write a snapshot of a tree with n
+	 * random keys, to read it, and to rebuild the tree by inserting its keys in
+	 * their original order.
+	 */
+	public static void loadTime(Path file, int n, int repeats) throws IOException {
+		int[] keys = MeasurmentsCompact.shuffledKeys(n);
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < n; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		long write = 0;
+		long read = 0;
+		long replay = 0;
+		long sink = 0;
+		for (int r = 0; r < repeats; r++) {
+			long t0 = System.nanoTime();
+			tree.writeSnapshot(file);
+			long t1 = System.nanoTime();
+			sink += AVLTree.readSnapshot(file).size();
+			long t2 = System.nanoTime();
+			AVLTree replayed = new AVLTree();
+			for (int i = 0; i < n; i++) {
+				replayed.insert(keys[i], (i & 1) == 0);
+			}
+			long t3 = System.nanoTime();
+			sink += replayed.size();
+			write += t1 - t0;
+			read += t2 - t1;
+			replay += t3 - t2;
+		}
+		System.out.println(String.format("n %d: write %.1f, read %.1f, replay inserts %.1f ms (%d bytes, %d)", n,
+				write / 1e6 / repeats, read / 1e6 / repeats, replay / 1e6 / repeats, Files.size(file), sink));
+	}
+
+	public static void main(String[] args) throws IOException {
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		Path file = Files.createTempFile("avltree", ".snapshot");
+		try {
+			for (int n : new int[] { 0, 1, 63, 64, 65, 1000, 100000 }) {
+				String failure = roundTrip(file, n);
+				if (failure != null) {
+					System.out.println("round trip of " + n + " items: FAILED - " + failure);
+					return;
+				}
+			}
+			System.out.println("round trip: ok");
+			loadTime(file, Math.min(maxSize, 100000), 1); // calibration run.
+			for (int n = 10000; n <= maxSize; n *= 10) {
+				loadTime(file, n, repeats);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
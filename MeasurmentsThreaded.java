@@ -0,0 +1,98 @@
+/**
+ * compares an AVLTree with the same tree in threaded mode, for n random keys:
+ * the time to build it, the time per item of full scans (a loop of successor
+ * calls, succPrefixXor of the maximum, forEach and a Cursor), and the time per
+ * operation of delete-heavy workloads (deleting all the keys in random order,
+ * deleting the minimum until the tree is empty, and a sliding window that
+ * inserts a new maximum and deletes the minimum). all times are averages in
+ * nanoseconds.
+ * <p>
+ * usage: java MeasurmentsThreaded [n] [repeats]
+ */
+public class MeasurmentsThreaded {
+	final static String[] MEASURES = { "build", "successor scan", "succPrefixXor", "forEach", "cursor",
+			"random deletes", "delete min", "sliding window" };
+	static volatile long sink;
+
+	static AVLTree build(int[] keys, boolean threaded) {
+		AVLTree tree = new AVLTree();
+		tree.setThreaded(threaded);
+		for (int i = 0; i < keys.length; i++) {
+			tree.insert(keys[i], (i & 1) == 0);
+		}
+		return tree;
+	}
+
+	/**
+	 * @return the time in nanoseconds per item or operation of the named measure,
+	 *         on a fresh tree of the given keys.
+	 */
+	static double measure(String name, int[] keys, boolean threaded) {
+		int n = keys.length;
+		long before = System.nanoTime();
+		AVLTree tree = build(keys, threaded);
+		if (name.equals("build")) {
+			return (double) (System.nanoTime() - before) / n;
+		}
+		long res = 0;
+		before = System.nanoTime();
+		if (name.equals("successor scan")) {
+			for (AVLTree.AVLNode node = tree.getTreeMin(); node != null; node = tree.successor(node)) {
+				res += node.getKey();
+			}
+		} else if (name.equals("succPrefixXor")) {
+			res += tree.succPrefixXor(n) ? 1 : 0;
+		} else if (name.equals("forEach")) {
+			long[] sum = new long[1];
+			tree.forEach((k, i) -> sum[0] += k);
+			res += sum[0];
+		} else if (name.equals("cursor")) {
+			AVLTree.Cursor cursor = tree.cursor();
+			while (cursor.next()) {
+				res += cursor.key();
+			}
+		} else if (name.equals("random deletes")) {
+			for (int i = n - 1; i >= 0; i--) {
+				res += tree.delete(keys[i]);
+			}
+		} else if (name.equals("delete min")) {
+			while (!tree.empty()) {
+				res += tree.delete(tree.getTreeMin().getKey());
+			}
+		} else { // sliding window: the size stays n.
+			for (int j = 0; j < n; j++) {
+				res += tree.insert(n + j, (j & 1) == 0);
+				res += tree.delete(j);
+			}
+		}
+		long time = System.nanoTime() - before;
+		sink += res;
+		return (double) time / (name.equals("sliding window") ? 2 * n : n);
+	}
+
+	static double average(String name, int[] keys, boolean threaded, int repeats) {
+		double total = 0;
+		for (int r = 0; r < repeats; r++) {
+			total += measure(name, keys, threaded);
+		}
+		return total / repeats;
+	}
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int[] keys = MeasurmentsCompact.shuffledKeys(n);
+		for (String name : MEASURES) { // calibration run.
+			measure(name, keys, false);
+			measure(name, keys, true);
+		}
+		System.out.println("ns per item or operation, n = " + n);
+		for (String name : MEASURES) {
+			double plain = average(name, keys, false, repeats);
+			double threaded = average(name, keys, true, repeats);
+			System.out.println(String.format("%-15s plain %.1f, threaded %.1f (%.2fx)", name + ":", plain, threaded,
+					plain / threaded));
+		}
+	}
+
+}
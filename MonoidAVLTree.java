@@ -0,0 +1,738 @@
+/**
+ * public class MonoidAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and long values, where
+ * every node keeps the aggregate of the values in its subtree under a
+ * caller-supplied LongMonoid (e.g. sum, max or xor). The aggregate is kept
+ * through insertions, deletions and rotations, and gives prefix and range folds
+ * in O(log n). Values are folded in increasing key order, so the monoid does not
+ * have to be commutative.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class MonoidAVLTree {
+	final public LongMonoid monoid;
+	final public Node VIRTUAL;
+	public Node root;
+	public Node min;
+	public Node max;
+	public int size;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public int ILLEGAL_BF = 2;
+
+	/**
+	 * This constructor creates an empty MonoidAVLTree which aggregates values with
+	 * the given monoid.
+	 *
+	 * @param monoid
+	 *
+	 *               time complexity: O(1)
+	 */
+	public MonoidAVLTree(LongMonoid monoid) {
+		this.monoid = monoid;
+		this.VIRTUAL = new Node();
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == EMPTY;
+	}
+
+	/**
+	 * public boolean contains(int k)
+	 * <p>
+	 * returns true if and only if an item with key k is in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean contains(int k) {
+		Node node = searchNode(k);
+		return node != null && k == node.getKey();
+	}
+
+	/**
+	 * public long getOrDefault(int k, long defaultValue)
+	 * <p>
+	 * returns the value of the item with key k if it exists in the tree,
+	 * otherwise returns defaultValue.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public long getOrDefault(int k, long defaultValue) {
+		Node node = searchNode(k);
+		if (node != null && k == node.getKey()) {
+			return node.getValue();
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent (null if the tree is empty).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public Node searchNode(int k) {
+		Node prev = null;
+		Node curr = this.root;
+		while (curr.isRealNode()) {
+			if (k == curr.getKey()) {
+				return curr;
+			}
+			prev = curr;
+			curr = k < curr.getKey() ? curr.getLeft() : curr.getRight();
+		}
+		return prev;
+	}
+
+	/**
+	 * links two nodes as parent and its left or right child.
+	 *
+	 * @pre child.isRealNode() == true
+	 * @param parent
+	 * @param child
+	 *
+	 *               time complexity: O(1)
+	 */
+	private void setEdge(Node parent, Node child) {
+		child.setParent(parent);
+		if (parent.isRealNode()) {
+			if (child.getKey() < parent.getKey()) {
+				parent.setLeft(child);
+			} else {
+				parent.setRight(child);
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, long v)
+	 * <p>
+	 * inserts an item with key k and value v to the tree. returns the number of
+	 * nodes which require rebalancing operations (i.e. promotions or rotations),
+	 * including the newly-created node. returns -1 if an item with key k already
+	 * exists in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, long v) {
+		int count = 1; // 1 stands for the node we inserted.
+		if (size() == 0) { // tree is empty
+			Node newNode = new Node(k, v);
+			this.root = newNode;
+			this.size++;
+			this.min = newNode;
+			this.max = newNode;
+			return count;
+		}
+		Node parent = searchNode(k);
+		if (k == parent.getKey()) { // k already in tree.
+			return INVALID;
+		}
+		Node newNode = new Node(k, v);
+		setEdge(parent, newNode);
+		if (k < this.min.getKey()) { // new minimum in the tree.
+			this.min = newNode;
+		} else if (k > this.max.getKey()) { // new max in the tree.
+			this.max = newNode;
+		}
+		this.size++;
+		count += rebalanceTree(parent);
+		return count;
+	}
+
+	/**
+	 * public boolean update(int k, long v)
+	 * <p>
+	 * replaces the value of the item with key k by v, and recomputes the
+	 * aggregates on its path to the root. returns false if k is not in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean update(int k, long v) {
+		Node node = searchNode(k);
+		if (node == null || k != node.getKey()) {
+			return false;
+		}
+		node.value = v;
+		for (; node.isRealNode(); node = node.getParent()) {
+			node.setAggregate();
+		}
+		return true;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there. returns the number
+	 * of nodes which required rebalancing operations (i.e. demotions or
+	 * rotations). returns -1 if an item with key k was not found in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		if (size() == 0) { // tree is empty
+			return INVALID;
+		}
+		Node node = searchNode(k);
+		if (k != node.getKey()) { // k not in tree.
+			return INVALID;
+		}
+		if (node == this.min) {
+			Node succ = successor(node);
+			this.min = succ == null ? VIRTUAL : succ;
+		}
+		if (node == this.max) {
+			Node pred = predecessor(node);
+			this.max = pred == null ? VIRTUAL : pred;
+		}
+		Node curr = deleteNode(node);
+		this.size--;
+		return rebalanceTree(curr);
+	}
+
+	/**
+	 * deletes a node from the tree in one of three cases: (1) node is a leaf. (2)
+	 * node has one child. (3) node has two children.
+	 *
+	 * @param node
+	 * @return curr node from which to start rebalancing the tree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private Node deleteNode(Node node) {
+		Node curr;
+		if (!node.getLeft().isRealNode() && !node.getRight().isRealNode()) { // node is a leaf.
+			curr = node.getParent();
+			deleteLeaf(node);
+		} else if (node.getLeft().isRealNode() && node.getRight().isRealNode()) { // node has two children.
+			Node succ = successor(node);
+			curr = succ.getParent() == node ? succ : succ.getParent();
+			deleteByReplacement(node);
+		} else { // node has one child.
+			curr = node.getLeft().isRealNode() ? node.getLeft() : node.getRight();
+			deleteByBypass(node);
+		}
+		return curr;
+	}
+
+	/**
+	 * deletes leaf node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteLeaf(Node node) {
+		if (node == this.root) {
+			this.root = VIRTUAL;
+			return;
+		}
+		if (node == node.getParent().getLeft()) {
+			node.getParent().setLeft(VIRTUAL);
+		} else {
+			node.getParent().setRight(VIRTUAL);
+		}
+		node.setParent(VIRTUAL);
+	}
+
+	/**
+	 * deletes node with two children, by replacing it with its successor.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private void deleteByReplacement(Node node) {
+		Node succ = successor(node);
+		deleteNode(succ);
+		if (node.getRight().isRealNode()) {
+			setEdge(succ, node.getRight());
+		}
+		setEdge(succ, node.getLeft());
+		if (node == this.root) {
+			this.root = succ;
+			succ.setParent(VIRTUAL);
+		} else {
+			setEdge(node.getParent(), succ);
+		}
+		node.setParent(VIRTUAL);
+		node.setLeft(VIRTUAL);
+		node.setRight(VIRTUAL);
+		succ.maintainFields();
+	}
+
+	/**
+	 * deletes node with one child, by bypassing it.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteByBypass(Node node) {
+		Node child = node.getLeft().isRealNode() ? node.getLeft() : node.getRight();
+		if (node == this.root) {
+			this.root = child;
+			child.setParent(VIRTUAL);
+		} else {
+			setEdge(node.getParent(), child);
+		}
+		node.setLeft(VIRTUAL);
+		node.setRight(VIRTUAL);
+		node.setParent(VIRTUAL);
+	}
+
+	/**
+	 * rebalances the tree into a legal AVL tree. maintains nodes' fields.
+	 *
+	 * @param node
+	 * @return number of nodes which require rebalancing operations (i.e. promotions
+	 *         or rotations).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int rebalanceTree(Node node) {
+		int count = 0;
+		while (node.isRealNode()) {
+			int prevHeight = node.getHeight();
+			node.maintainFields();
+			boolean heightChanged = prevHeight != node.getHeight();
+			boolean legalBF = Math.abs(node.getBalanceFactor()) < ILLEGAL_BF;
+			if (heightChanged || !legalBF) {
+				count++;
+				if (!legalBF) {
+					rotate(node);
+				}
+			}
+			node = node.getParent();
+		}
+		return count;
+	}
+
+	/**
+	 * rebalances a node whose balance factor is illegal, specifically BF = 2 or -2.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotate(Node node) {
+		if (node.getBalanceFactor() == ILLEGAL_BF) {
+			if (node.getLeft().getBalanceFactor() == -1) {
+				rotateLeft(node.getLeft());
+			}
+			rotateRight(node);
+		} else if (node.getBalanceFactor() == (-1) * ILLEGAL_BF) {
+			if (node.getRight().getBalanceFactor() == 1) {
+				rotateRight(node.getRight());
+			}
+			rotateLeft(node);
+		}
+	}
+
+	/**
+	 * performs a left rotation on a node. the node's fields are maintained; its
+	 * new parent is maintained by the caller.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateLeft(Node node) {
+		Node x = node.getRight();
+		node.setRight(x.getLeft());
+		x.setParent(node.getParent());
+		if (x.getLeft().isRealNode()) {
+			x.getLeft().setParent(node);
+		}
+		if (!node.getParent().isRealNode()) {
+			this.root = x;
+		} else if (node == node.getParent().getLeft()) {
+			node.getParent().setLeft(x);
+		} else {
+			node.getParent().setRight(x);
+		}
+		x.setLeft(node);
+		node.setParent(x);
+		node.maintainFields();
+	}
+
+	/**
+	 * performs a right rotation on a node. the node's fields are maintained; its
+	 * new parent is maintained by the caller.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateRight(Node node) {
+		Node x = node.getLeft();
+		node.setLeft(x.getRight());
+		x.setParent(node.getParent());
+		if (x.getRight().isRealNode()) {
+			x.getRight().setParent(node);
+		}
+		if (!node.getParent().isRealNode()) {
+			this.root = x;
+		} else if (node == node.getParent().getLeft()) {
+			node.getParent().setLeft(x);
+		} else {
+			node.getParent().setRight(x);
+		}
+		x.setRight(node);
+		node.setParent(x);
+		node.maintainFields();
+	}
+
+	/**
+	 * public long aggregate()
+	 * <p>
+	 * returns the fold of all the values in the tree, or the identity if the tree
+	 * is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public long aggregate() {
+		return this.root.getAggregate();
+	}
+
+	/**
+	 * public long prefixFold(int k)
+	 * <p>
+	 * returns the fold of the values of the items whose keys are smaller or equal
+	 * to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public long prefixFold(int k) {
+		return prefixFold(this.root, k);
+	}
+
+	/**
+	 * public long rangeFold(int lo, int hi)
+	 * <p>
+	 * returns the fold of the values of the items whose keys are between lo and hi
+	 * (inclusive), or the identity if there are none. lo and hi do not have to be
+	 * keys in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public long rangeFold(int lo, int hi) {
+		if (lo > hi) {
+			return monoid.identity();
+		}
+		Node split = this.root;
+		while (split.isRealNode()) { // find the highest node inside [lo, hi].
+			if (hi < split.getKey()) {
+				split = split.getLeft();
+			} else if (lo > split.getKey()) {
+				split = split.getRight();
+			} else {
+				break;
+			}
+		}
+		if (!split.isRealNode()) {
+			return monoid.identity();
+		}
+		long left = suffixFold(split.getLeft(), lo);
+		long right = prefixFold(split.getRight(), hi);
+		return monoid.combine(monoid.combine(left, split.getValue()), right);
+	}
+
+	/**
+	 * @param node
+	 * @param k
+	 * @return the fold of the values in node's subtree whose keys are smaller or
+	 *         equal to k.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private long prefixFold(Node node, int k) {
+		long acc = monoid.identity();
+		while (node.isRealNode()) {
+			if (k < node.getKey()) {
+				node = node.getLeft();
+			} else {
+				acc = monoid.combine(acc, monoid.combine(node.getLeft().getAggregate(), node.getValue()));
+				if (k == node.getKey()) {
+					break;
+				}
+				node = node.getRight();
+			}
+		}
+		return acc;
+	}
+
+	/**
+	 * @param node
+	 * @param k
+	 * @return the fold of the values in node's subtree whose keys are greater or
+	 *         equal to k.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private long suffixFold(Node node, int k) {
+		long acc = monoid.identity();
+		while (node.isRealNode()) {
+			if (k > node.getKey()) {
+				node = node.getRight();
+			} else {
+				acc = monoid.combine(monoid.combine(node.getValue(), node.getRight().getAggregate()), acc);
+				if (k == node.getKey()) {
+					break;
+				}
+				node = node.getLeft();
+			}
+		}
+		return acc;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		for (Node node = this.min; node != null && node.isRealNode(); node = successor(node)) {
+			arr[idx++] = node.getKey();
+		}
+		return arr;
+	}
+
+	/**
+	 * public long[] valuesToArray()
+	 * <p>
+	 * Returns an array which contains all values in the tree, sorted by their
+	 * respective keys.
+	 *
+	 * time complexity: O(n)
+	 */
+	public long[] valuesToArray() {
+		long[] arr = new long[size()];
+		int idx = 0;
+		for (Node node = this.min; node != null && node.isRealNode(); node = successor(node)) {
+			arr[idx++] = node.getValue();
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the root node, or virtual node if the tree is empty.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public Node getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * @return node with the smallest key in the tree, or virtual node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public Node getTreeMin() {
+		return this.min;
+	}
+
+	/**
+	 * @return node with the largest key in the tree, or virtual node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public Node getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * @param node
+	 * @return the successor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public Node successor(Node node) {
+		if (node.getRight().isRealNode()) {
+			node = node.getRight();
+			while (node.getLeft().isRealNode()) {
+				node = node.getLeft();
+			}
+			return node;
+		}
+		Node succ = node.getParent();
+		while (succ.isRealNode() && node == succ.getRight()) {
+			node = succ;
+			succ = node.getParent();
+		}
+		return succ.isRealNode() ? succ : null;
+	}
+
+	/**
+	 * @param node
+	 * @return the predecessor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public Node predecessor(Node node) {
+		if (node.getLeft().isRealNode()) {
+			node = node.getLeft();
+			while (node.getRight().isRealNode()) {
+				node = node.getRight();
+			}
+			return node;
+		}
+		Node pred = node.getParent();
+		while (pred.isRealNode() && node == pred.getLeft()) {
+			node = pred;
+			pred = node.getParent();
+		}
+		return pred.isRealNode() ? pred : null;
+	}
+
+	/**
+	 * public class Node
+	 * <p>
+	 * This class represents a node in the MonoidAVLTree.
+	 * <p>
+	 */
+	public class Node {
+		public int key;
+		public long value;
+		public int height;
+		public long aggregate;
+		public boolean isRealNode;
+		public Node parent;
+		public Node left;
+		public Node right;
+
+		/**
+		 * this constructor initiates a real leaf node with key and value.
+		 *
+		 * time complexity: O(1)
+		 */
+		public Node(int key, long value) {
+			this.key = key;
+			this.value = value;
+			this.height = 0;
+			this.aggregate = value;
+			this.isRealNode = true;
+			this.parent = VIRTUAL;
+			this.left = VIRTUAL;
+			this.right = VIRTUAL;
+		}
+
+		/**
+		 * this constructor initiates a virtual node, whose aggregate is the identity.
+		 *
+		 * time complexity: O(1)
+		 */
+		public Node() {
+			this.key = INVALID;
+			this.height = INVALID;
+			this.aggregate = monoid.identity();
+			this.isRealNode = false;
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public long getValue() {
+			return this.value;
+		}
+
+		public Node getLeft() {
+			return this.left;
+		}
+
+		public void setLeft(Node node) {
+			this.left = node;
+		}
+
+		public Node getRight() {
+			return this.right;
+		}
+
+		public void setRight(Node node) {
+			this.right = node;
+		}
+
+		public Node getParent() {
+			return this.parent;
+		}
+
+		public void setParent(Node node) {
+			this.parent = node;
+		}
+
+		public boolean isRealNode() {
+			return this.isRealNode;
+		}
+
+		public int getHeight() {
+			return this.height;
+		}
+
+		public int getBalanceFactor() {
+			return getLeft().getHeight() - getRight().getHeight();
+		}
+
+		/**
+		 * @return the fold of the values in this node's subtree.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public long getAggregate() {
+			return this.aggregate;
+		}
+
+		/**
+		 * sets the aggregate of this node's subtree from its children's aggregates.
+		 *
+		 * time complexity: O(1)
+		 */
+		public void setAggregate() {
+			this.aggregate = monoid.combine(monoid.combine(getLeft().getAggregate(), this.value),
+					getRight().getAggregate());
+		}
+
+		/**
+		 * maintains this node's fields.
+		 *
+		 * time complexity: O(1)
+		 */
+		public void maintainFields() {
+			this.height = 1 + Math.max(getLeft().getHeight(), getRight().getHeight());
+			setAggregate();
+		}
+
+	}
+
+}
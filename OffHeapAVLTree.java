@@ -0,0 +1,989 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * public class OffHeapAVLTree
+ * <p>
+ * This class represents an AVLTree with integer keys and boolean values, whose
+ * nodes are stored outside the Java heap, so that a tree of any size adds
+ * almost nothing for the garbage collector to trace. A node is a fixed-width
+ * record of NODE_BYTES bytes (key, left, right and parent links, true count,
+ * height and value) in a direct ByteBuffer. Like in CompactAVLTree, a node is
+ * an index, and VIRTUAL (-1) stands for the virtual node.
+ * <p>
+ * Memory is taken from the operating system in slabs of SLAB_NODES records, one
+ * slab at a time, so the tree grows without copying. The records of deleted
+ * nodes are kept in a free list and reused by later insertions. close()
+ * returns all the slabs at once. after it, the methods that read or update
+ * nodes throw IllegalStateException, while size(), empty(), nativeBytes(),
+ * getRoot(), getTreeMin() and getTreeMax() report an empty tree.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class OffHeapAVLTree implements IntBooleanTree, AutoCloseable {
+	final public int VIRTUAL = -1;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public int ILLEGAL_BF = 2;
+	final public static int NODE_BYTES = 24;
+	final public static int SLAB_SHIFT = 16;
+	final public static int SLAB_NODES = 1 << SLAB_SHIFT;
+	private static final int SLAB_MASK = SLAB_NODES - 1;
+	// offsets of the fields in a record. the two bytes after VALUE pad the record
+	// to a multiple of 8, so that no int field crosses a word.
+	private static final int KEY = 0;
+	private static final int LEFT = 4;
+	private static final int RIGHT = 8;
+	private static final int PARENT = 12;
+	private static final int TRUE_COUNT = 16;
+	private static final int HEIGHT = 20;
+	private static final int VALUE = 21;
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	public int root;
+	public int min;
+	public int max;
+	public int size;
+	private ByteBuffer[] slabs;
+	private int slabCount;
+	private int freeList;
+	private int used;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try { // Java 9 and later free a direct buffer through Unsafe.invokeCleaner.
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			unsafe = theUnsafe.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	/**
+	 * This constructor creates an empty OffHeapAVLTree. No memory is taken until
+	 * the first insertion.
+	 *
+	 * time complexity: O(1)
+	 */
+	public OffHeapAVLTree() {
+		this.slabs = new ByteBuffer[4];
+		this.slabCount = 0;
+		this.freeList = VIRTUAL;
+		this.used = EMPTY;
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * returns the memory of all the nodes to the operating system. later calls
+	 * that read or update nodes (search, insert, delete, min, max, prefixXor,
+	 * succPrefixXor, the array methods, forEach, the node accessors, successor,
+	 * predecessor and findMinimum/MaximumOfSubtree) throw IllegalStateException;
+	 * size(), empty(), nativeBytes(), getRoot(), getTreeMin() and getTreeMax()
+	 * report an empty tree. closing a closed tree does nothing.
+	 *
+	 * time complexity: O(n / SLAB_NODES)
+	 */
+	@Override
+	public void close() {
+		if (slabs == null) {
+			return;
+		}
+		for (int s = 0; s < slabCount; s++) {
+			free(slabs[s]);
+			slabs[s] = null;
+		}
+		slabs = null;
+		slabCount = 0;
+		root = VIRTUAL;
+		min = VIRTUAL;
+		max = VIRTUAL;
+		size = EMPTY;
+	}
+
+	/**
+	 * frees the native memory of a direct buffer right away, through
+	 * Unsafe.invokeCleaner on Java 9 and later or through the buffer's cleaner on
+	 * Java 8. if neither can be reached, the memory is freed when the buffer is
+	 * garbage collected.
+	 */
+	private static void free(ByteBuffer slab) {
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, slab);
+				return;
+			}
+			Method cleaner = slab.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object c = cleaner.invoke(slab);
+			if (c != null) {
+				c.getClass().getMethod("clean").invoke(c);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left to the garbage collector.
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if the tree was closed.
+	 */
+	private void checkOpen() {
+		if (slabs == null) {
+			throw new IllegalStateException("tree is closed");
+		}
+	}
+
+	private ByteBuffer slab(int node) {
+		return slabs[node >>> SLAB_SHIFT];
+	}
+
+	private static int offset(int node) {
+		return (node & SLAB_MASK) * NODE_BYTES;
+	}
+
+	private int getInt(int node, int field) {
+		return slabs[node >>> SLAB_SHIFT].getInt(offset(node) + field);
+	}
+
+	private void setInt(int node, int field, int value) {
+		slabs[node >>> SLAB_SHIFT].putInt(offset(node) + field, value);
+	}
+
+	private int lefts(int node) {
+		return getInt(node, LEFT);
+	}
+
+	private int rights(int node) {
+		return getInt(node, RIGHT);
+	}
+
+	private int parents(int node) {
+		return getInt(node, PARENT);
+	}
+
+	private int keys(int node) {
+		return getInt(node, KEY);
+	}
+
+	private boolean getBit(int node) {
+		return slab(node).get(offset(node) + VALUE) != 0;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return size() == EMPTY;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		int node = searchNode(k);
+		if (node != VIRTUAL && k == keys(node)) {
+			return getBit(node);
+		}
+		return null;
+	}
+
+	/**
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, return the node
+	 *         that would be k's parent (VIRTUAL if the tree is empty).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int searchNode(int k) {
+		checkOpen();
+		int prev = VIRTUAL;
+		int curr = this.root;
+		while (curr != VIRTUAL) {
+			int key = keys(curr);
+			if (k == key) {
+				return curr;
+			}
+			prev = curr;
+			curr = k < key ? lefts(curr) : rights(curr);
+		}
+		return prev;
+	}
+
+	/**
+	 * takes a free record for a new leaf node, adding a slab if needed.
+	 *
+	 * @param k
+	 * @param i
+	 * @return the new node.
+	 *
+	 *         time complexity: O(1) amortized
+	 */
+	private int allocate(int k, boolean i) {
+		int node;
+		if (freeList != VIRTUAL) {
+			node = freeList;
+			freeList = lefts(node);
+		} else {
+			if (used == slabCount << SLAB_SHIFT) {
+				addSlab();
+			}
+			node = used++;
+		}
+		ByteBuffer slab = slab(node);
+		int offset = offset(node);
+		slab.putInt(offset + KEY, k);
+		slab.putInt(offset + LEFT, VIRTUAL);
+		slab.putInt(offset + RIGHT, VIRTUAL);
+		slab.putInt(offset + PARENT, VIRTUAL);
+		slab.putInt(offset + TRUE_COUNT, i ? 1 : 0);
+		slab.put(offset + HEIGHT, (byte) 0);
+		slab.put(offset + VALUE, (byte) (i ? 1 : 0));
+		return node;
+	}
+
+	/**
+	 * returns a detached node's record to the free list. the free list is chained
+	 * through the left links.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void release(int node) {
+		setInt(node, LEFT, freeList);
+		setInt(node, RIGHT, VIRTUAL);
+		setInt(node, PARENT, VIRTUAL);
+		freeList = node;
+	}
+
+	/**
+	 * allocates another slab of SLAB_NODES records.
+	 *
+	 * @throws IllegalStateException if the tree already holds the largest number
+	 *                               of nodes an int index can address.
+	 *
+	 *                               time complexity: O(SLAB_NODES)
+	 */
+	private void addSlab() {
+		if (slabCount == Integer.MAX_VALUE >>> SLAB_SHIFT) {
+			throw new IllegalStateException("tree is full");
+		}
+		if (slabCount == slabs.length) {
+			slabs = Arrays.copyOf(slabs, slabs.length << 1);
+		}
+		slabs[slabCount++] = ByteBuffer.allocateDirect(SLAB_NODES * NODE_BYTES).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * links two nodes as parent and its left or right child.
+	 *
+	 * @pre child != VIRTUAL
+	 * @param parent
+	 * @param child
+	 *
+	 *               time complexity: O(1)
+	 */
+	private void setEdge(int parent, int child) {
+		setInt(child, PARENT, parent);
+		if (parent != VIRTUAL) {
+			if (keys(child) < keys(parent)) {
+				setInt(parent, LEFT, child);
+			} else {
+				setInt(parent, RIGHT, child);
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree. the tree remains valid
+	 * (keep its invariants). returns the number of nodes which require rebalancing
+	 * operations (i.e. promotions or rotations). This always includes the
+	 * newly-created node. returns -1 if an item with key k already exists in the
+	 * tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, boolean i) {
+		checkOpen();
+		int count = 1; // 1 stands for the node we inserted.
+		if (size() == 0) { // tree is empty
+			int newNode = allocate(k, i);
+			this.root = newNode;
+			this.size++;
+			this.min = newNode;
+			this.max = newNode;
+			return count;
+		}
+		int parent = searchNode(k);
+		if (k == keys(parent)) { // k already in tree.
+			return INVALID;
+		}
+		int newNode = allocate(k, i);
+		setEdge(parent, newNode);
+		if (k < keys(min)) { // new minimum in the tree.
+			this.min = newNode;
+		} else if (k > keys(max)) { // new max in the tree.
+			this.max = newNode;
+		}
+		this.size++;
+		count += rebalanceTree(parent);
+		return count;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * remains valid (keep its invariants). returns the number of nodes which
+	 * required rebalancing operations (i.e. demotions or rotations). returns -1 if
+	 * an item with key k was not found in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		checkOpen();
+		if (size() == 0) { // tree is empty
+			return INVALID;
+		}
+		int node = searchNode(k);
+		if (k != keys(node)) { // k not in tree.
+			return INVALID;
+		}
+		if (node == min) {
+			this.min = successor(node);
+		}
+		if (node == max) {
+			this.max = predecessor(node);
+		}
+		int curr = deleteNode(node);
+		release(node);
+		this.size--;
+		return rebalanceTree(curr);
+	}
+
+	/**
+	 * deletes a node from the tree in one of three cases: (1) node is a leaf. (2)
+	 * node has one child. (3) node has two children.
+	 *
+	 * @param node
+	 * @return curr node from which to start rebalancing the tree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int deleteNode(int node) {
+		int curr;
+		int left = lefts(node);
+		int right = rights(node);
+		if (left == VIRTUAL && right == VIRTUAL) { // node is a leaf.
+			curr = parents(node);
+			deleteLeaf(node);
+		} else if (left != VIRTUAL && right != VIRTUAL) { // node has two children.
+			int succ = successor(node);
+			curr = parents(succ) == node ? succ : parents(succ);
+			deleteByReplacement(node, succ);
+		} else { // node has one child.
+			curr = left != VIRTUAL ? left : right;
+			deleteByBypass(node);
+		}
+		return curr;
+	}
+
+	/**
+	 * deletes leaf node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteLeaf(int node) {
+		if (node == root) {
+			this.root = VIRTUAL;
+			return;
+		}
+		int parent = parents(node);
+		if (node == lefts(parent)) {
+			setInt(parent, LEFT, VIRTUAL);
+		} else {
+			setInt(parent, RIGHT, VIRTUAL);
+		}
+		setInt(node, PARENT, VIRTUAL);
+	}
+
+	/**
+	 * deletes node with two children, by replacing it with its successor.
+	 *
+	 * @param node
+	 * @param succ - the successor of node.
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private void deleteByReplacement(int node, int succ) {
+		deleteNode(succ);
+		if (rights(node) != VIRTUAL) {
+			setEdge(succ, rights(node));
+		}
+		setEdge(succ, lefts(node));
+		if (node == root) {
+			this.root = succ;
+			setInt(succ, PARENT, VIRTUAL);
+		} else {
+			setEdge(parents(node), succ);
+		}
+		setInt(node, PARENT, VIRTUAL);
+		setInt(node, LEFT, VIRTUAL);
+		setInt(node, RIGHT, VIRTUAL);
+		maintainFields(succ);
+	}
+
+	/**
+	 * deletes node with one child, by bypassing it.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void deleteByBypass(int node) {
+		int child = lefts(node) != VIRTUAL ? lefts(node) : rights(node);
+		if (node == root) {
+			this.root = child;
+			setInt(child, PARENT, VIRTUAL);
+		} else {
+			setEdge(parents(node), child);
+		}
+		setInt(node, LEFT, VIRTUAL);
+		setInt(node, RIGHT, VIRTUAL);
+		setInt(node, PARENT, VIRTUAL);
+	}
+
+	/**
+	 * rebalances the tree into a legal AVL tree. maintains nodes' fields.
+	 *
+	 * @param node
+	 * @return number of nodes which require rebalancing operations (i.e. promotions
+	 *         or rotations).
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private int rebalanceTree(int node) {
+		int count = 0;
+		while (node != VIRTUAL) {
+			int prevHeight = getHeight(node);
+			maintainFields(node);
+			boolean heightChanged = prevHeight != getHeight(node);
+			boolean legalBF = Math.abs(getBalanceFactor(node)) < ILLEGAL_BF;
+			if (heightChanged || !legalBF) {
+				count++;
+				if (!legalBF) {
+					rotate(node);
+				}
+			}
+			node = parents(node);
+		}
+		return count;
+	}
+
+	/**
+	 * rebalances a node whose balance factor is illegal, specifically BF = 2 or -2.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotate(int node) {
+		int balanceFactor = getBalanceFactor(node);
+		if (balanceFactor == ILLEGAL_BF) {
+			if (getBalanceFactor(lefts(node)) == -1) {
+				rotateLeft(lefts(node));
+			}
+			rotateRight(node);
+		} else if (balanceFactor == (-1) * ILLEGAL_BF) {
+			if (getBalanceFactor(rights(node)) == 1) {
+				rotateRight(rights(node));
+			}
+			rotateLeft(node);
+		}
+	}
+
+	/**
+	 * performs a left rotation on a node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateLeft(int node) {
+		int x = rights(node);
+		int parent = parents(node);
+		int inner = lefts(x);
+		setInt(node, RIGHT, inner);
+		setInt(x, PARENT, parent);
+		if (inner != VIRTUAL) {
+			setInt(inner, PARENT, node);
+		}
+		if (parent == VIRTUAL) {
+			this.root = x;
+		} else if (node == lefts(parent)) {
+			setInt(parent, LEFT, x);
+		} else {
+			setInt(parent, RIGHT, x);
+		}
+		setInt(x, LEFT, node);
+		setInt(node, PARENT, x);
+		maintainFields(node);
+	}
+
+	/**
+	 * performs a right rotation on a node.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateRight(int node) {
+		int x = lefts(node);
+		int parent = parents(node);
+		int inner = rights(x);
+		setInt(node, LEFT, inner);
+		setInt(x, PARENT, parent);
+		if (inner != VIRTUAL) {
+			setInt(inner, PARENT, node);
+		}
+		if (parent == VIRTUAL) {
+			this.root = x;
+		} else if (node == lefts(parent)) {
+			setInt(parent, LEFT, x);
+		} else {
+			setInt(parent, RIGHT, x);
+		}
+		setInt(x, RIGHT, node);
+		setInt(node, PARENT, x);
+		maintainFields(node);
+	}
+
+	/**
+	 * maintains the height and true count of a node from its children.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void maintainFields(int node) {
+		int left = lefts(node);
+		int right = rights(node);
+		ByteBuffer slab = slab(node);
+		int offset = offset(node);
+		slab.put(offset + HEIGHT, (byte) (1 + Math.max(getHeight(left), getHeight(right))));
+		slab.putInt(offset + TRUE_COUNT,
+				getTrueCount(left) + getTrueCount(right) + slab.get(offset + VALUE));
+	}
+
+	/**
+	 * @param node
+	 * @return the height of the node, -1 for the virtual node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getHeight(int node) {
+		checkOpen();
+		return node == VIRTUAL ? -1 : slab(node).get(offset(node) + HEIGHT);
+	}
+
+	/**
+	 * @param node
+	 * @return the balance factor (BF) of the node.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getBalanceFactor(int node) {
+		checkOpen();
+		return getHeight(lefts(node)) - getHeight(rights(node));
+	}
+
+	/**
+	 * @param node
+	 * @return the number of nodes with value true in this node's subtree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTrueCount(int node) {
+		checkOpen();
+		return node == VIRTUAL ? 0 : getInt(node, TRUE_COUNT);
+	}
+
+	/**
+	 * @param node
+	 * @return node's key.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getKey(int node) {
+		checkOpen();
+		return keys(node);
+	}
+
+	/**
+	 * @param node
+	 * @return node's value (info). for virtual node return null.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public Boolean getValue(int node) {
+		checkOpen();
+		return node == VIRTUAL ? null : getBit(node);
+	}
+
+	/**
+	 * @param node
+	 * @return left child, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getLeft(int node) {
+		checkOpen();
+		return lefts(node);
+	}
+
+	/**
+	 * @param node
+	 * @return right child, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getRight(int node) {
+		checkOpen();
+		return rights(node);
+	}
+
+	/**
+	 * @param node
+	 * @return parent, or VIRTUAL for the root.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getParent(int node) {
+		checkOpen();
+		return parents(node);
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		checkOpen();
+		return empty() ? null : getBit(min);
+	}
+
+	/**
+	 * @return node with the smallest key in the tree, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTreeMin() {
+		return this.min;
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		checkOpen();
+		return empty() ? null : getBit(max);
+	}
+
+	/**
+	 * @return node with the largest key in the tree, or VIRTUAL.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public int getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * @pre node != VIRTUAL
+	 * @param node
+	 * @return node with the smallest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int findMinimumOfSubtree(int node) {
+		checkOpen();
+		for (int left = lefts(node); left != VIRTUAL; left = lefts(node)) {
+			node = left;
+		}
+		return node;
+	}
+
+	/**
+	 * @pre node != VIRTUAL
+	 * @param node
+	 * @return node with the largest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int findMaximumOfSubtree(int node) {
+		checkOpen();
+		for (int right = rights(node); right != VIRTUAL; right = rights(node)) {
+			node = right;
+		}
+		return node;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		forEach(new IntBooleanConsumer() {
+			int idx = 0;
+
+			public void accept(int key, boolean value) {
+				arr[idx++] = key;
+			}
+		});
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		forEach(new IntBooleanConsumer() {
+			int idx = 0;
+
+			public void accept(int key, boolean value) {
+				arr[idx++] = value;
+			}
+		});
+		return arr;
+	}
+
+	/**
+	 * public long[] infoToBitmap()
+	 * <p>
+	 * Returns the info in the tree, sorted by their respective keys, packed as a
+	 * bitmap: the info of the j-th smallest key is bit j % 64 of word j / 64, and
+	 * the bits after the last item are 0.
+	 *
+	 * time complexity: O(n)
+	 */
+	public long[] infoToBitmap() {
+		long[] bitmap = new long[(size() + 63) >>> 6];
+		forEach(new IntBooleanConsumer() {
+			int idx = 0;
+
+			public void accept(int key, boolean value) {
+				if (value) {
+					bitmap[idx >>> 6] |= 1L << idx;
+				}
+				idx++;
+			}
+		});
+		return bitmap;
+	}
+
+	/**
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * passes the key and info of every item in the tree to action, in increasing
+	 * order of keys.
+	 *
+	 * time complexity: O(n)
+	 */
+	public void forEach(IntBooleanConsumer action) {
+		checkOpen();
+		// in-order traversal with an explicit stack of the path, no higher than the
+		// tree.
+		int[] stack = new int[getHeight(root) + 1];
+		int depth = 0;
+		int node = root;
+		while (node != VIRTUAL || depth > 0) {
+			if (node != VIRTUAL) {
+				stack[depth++] = node;
+				node = lefts(node);
+			} else {
+				node = stack[--depth];
+				action.accept(keys(node), getBit(node));
+				node = rights(node);
+			}
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public long nativeBytes()
+	 * <p>
+	 * Returns the number of bytes of native memory taken by the slabs, 0 after
+	 * close().
+	 *
+	 * time complexity: O(1)
+	 */
+	public long nativeBytes() {
+		return (long) slabCount * SLAB_NODES * NODE_BYTES;
+	}
+
+	/**
+	 * public int getRoot()
+	 * <p>
+	 * Returns the root node, or VIRTUAL if the tree is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * public int successor
+	 *
+	 * given a node 'node' in the tree, return the successor of 'node' in the tree
+	 * (or VIRTUAL if successor doesn't exist)
+	 *
+	 * @param node - the node whose successor should be returned
+	 * @return the successor of 'node' if exists, VIRTUAL otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int successor(int node) {
+		checkOpen();
+		if (rights(node) != VIRTUAL) {
+			return findMinimumOfSubtree(rights(node));
+		}
+		int succ = parents(node);
+		while (succ != VIRTUAL && node == rights(succ)) {
+			node = succ;
+			succ = parents(node);
+		}
+		return succ;
+	}
+
+	/**
+	 * public int predecessor
+	 *
+	 * given a node 'node' in the tree, return the predecessor of 'node' in the tree
+	 * (or VIRTUAL if predecessor doesn't exist)
+	 *
+	 * @param node - the node whose predecessor should be returned
+	 * @return the predecessor of 'node' if exists, VIRTUAL otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public int predecessor(int node) {
+		checkOpen();
+		if (lefts(node) != VIRTUAL) {
+			return findMaximumOfSubtree(lefts(node));
+		}
+		int pred = parents(node);
+		while (pred != VIRTUAL && node == lefts(pred)) {
+			node = pred;
+			pred = parents(node);
+		}
+		return pred;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		checkOpen();
+		int totalCount = 0;
+		int curr = this.root;
+		while (curr != VIRTUAL) {
+			int key = keys(curr);
+			if (k < key) {
+				curr = lefts(curr);
+			} else {
+				totalCount += getTrueCount(lefts(curr)) + (getBit(curr) ? 1 : 0);
+				if (k == key) {
+					break;
+				}
+				curr = rights(curr);
+			}
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * However, the implementation of succPrefixXor is the following: starting from
+	 * the minimum-key node, iteratively call successor until you reach the node of
+	 * key k. Return the xor of all visited nodes.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		checkOpen();
+		int totalCount = 0;
+		int curr = getTreeMin();
+		while (curr != VIRTUAL && keys(curr) <= k) {
+			totalCount += getBit(curr) ? 1 : 0;
+			curr = successor(curr);
+		}
+		return totalCount % 2 != 0;
+	}
+
+}
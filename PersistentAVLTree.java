@@ -0,0 +1,554 @@
+/**
+ * public class PersistentAVLTree
+ * <p>
+ * This class represents an AVL tree whose nodes are never changed once they are
+ * created. insert and delete copy only the nodes on the search path (path
+ * copying) and link the copies to the untouched subtrees, so every earlier
+ * root remains a complete, unchanged version of the tree. The tree object
+ * holds its current root version; snapshot() returns a new tree holding the
+ * same root, in O(1) time, and both trees can then be changed independently.
+ * <p>
+ * Nodes have no parent pointers, because a node is shared by many versions.
+ * successor and predecessor therefore descend from the root, and in-order
+ * traversals keep a stack of the path.
+ * <p>
+ * Updates are synchronized on the tree. Lookups read the current root once and
+ * take no locks, so a long traversal sees one consistent version while other
+ * threads keep updating the tree.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class PersistentAVLTree implements IntBooleanTree {
+	private volatile Node root; // null if the tree is empty.
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+	final public int ILLEGAL_BF = 2;
+
+	/**
+	 * This constructor creates an empty PersistentAVLTree.
+	 */
+	public PersistentAVLTree() {
+	}
+
+	private PersistentAVLTree(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * public PersistentAVLTree snapshot()
+	 * <p>
+	 * returns a tree which holds the current version of this tree. changes to
+	 * either tree are not seen by the other.
+	 *
+	 * time complexity: O(1)
+	 */
+	public PersistentAVLTree snapshot() {
+		return new PersistentAVLTree(root);
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return root == null;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		Node curr = root;
+		while (curr != null) {
+			if (k == curr.key) {
+				return curr.value;
+			}
+			curr = k < curr.key ? curr.left : curr.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public synchronized int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree, by creating a new root
+	 * version which shares all subtrees off the search path with the previous one.
+	 * returns the number of nodes which require rebalancing operations (i.e.
+	 * promotions or rotations), including the newly-created node, counted as in
+	 * AVLTree.insert. returns -1 if an item with key k already exists in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public synchronized int insert(int k, boolean i) {
+		int[] count = new int[1];
+		Node newRoot = insert(root, k, i, count);
+		if (newRoot == null) {
+			return INVALID;
+		}
+		root = newRoot;
+		return count[0];
+	}
+
+	/**
+	 * returns a copy of node's subtree which also holds k, or null if k is already
+	 * there.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private Node insert(Node node, int k, boolean i, int[] count) {
+		if (node == null) {
+			count[0]++; // the new node.
+			return new Node(k, i, null, null);
+		}
+		if (k == node.key) {
+			return null;
+		}
+		Node left = node.left;
+		Node right = node.right;
+		if (k < node.key) {
+			left = insert(left, k, i, count);
+			if (left == null) {
+				return null;
+			}
+		} else {
+			right = insert(right, k, i, count);
+			if (right == null) {
+				return null;
+			}
+		}
+		return balance(node.key, node.value, node.height, left, right, count);
+	}
+
+	/**
+	 * public synchronized int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there, by creating a new
+	 * root version which shares all subtrees off the search path with the previous
+	 * one. returns the number of nodes which required rebalancing operations (i.e.
+	 * demotions or rotations), counted as in AVLTree.delete. returns -1 if an item
+	 * with key k was not found in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public synchronized int delete(int k) {
+		if (search(k) == null) {
+			return INVALID;
+		}
+		int[] count = new int[1];
+		root = delete(root, k, count);
+		return count[0];
+	}
+
+	/**
+	 * returns a copy of node's subtree without k, which must be in it.
+	 *
+	 * @param node
+	 *
+	 *             time complexity: O(log n)
+	 */
+	private Node delete(Node node, int k, int[] count) {
+		if (k < node.key) {
+			return balance(node.key, node.value, node.height, delete(node.left, k, count), node.right, count);
+		}
+		if (k > node.key) {
+			return balance(node.key, node.value, node.height, node.left, delete(node.right, k, count), count);
+		}
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		Node succ = node.right; // replace node by its successor.
+		while (succ.left != null) {
+			succ = succ.left;
+		}
+		Node right = delete(node.right, succ.key, count);
+		// AVLTree recomputes a successor that was node's right child before its climb,
+		// so only a rotation counts it.
+		int oldHeight = succ == node.right ? 1 + Math.max(height(node.left), height(right)) : node.height;
+		return balance(succ.key, succ.value, oldHeight, node.left, right, count);
+	}
+
+	/**
+	 * returns a new node with the given key, value and children, rotated if its
+	 * balance factor is illegal. counts like the climb of AVLTree: the node if its
+	 * height differs from oldHeight, the height of the node it replaces, or it was
+	 * rotated, and after a rotation also the new root of the subtree if its height
+	 * changed.
+	 *
+	 *         time complexity: O(1)
+	 */
+	private Node balance(int key, boolean value, int oldHeight, Node left, Node right, int[] count) {
+		int bf = height(left) - height(right);
+		Node top = null; // the node that a rotation moves to the root of the subtree.
+		Node result;
+		if (bf == ILLEGAL_BF) {
+			top = left;
+			if (height(left.left) < height(left.right)) {
+				top = left.right;
+				left = rotateLeft(left.left, left.key, left.value, left.right);
+			}
+			result = rotateRight(left, key, value, right);
+		} else if (bf == -ILLEGAL_BF) {
+			top = right;
+			if (height(right.right) < height(right.left)) {
+				top = right.left;
+				right = rotateRight(right.left, right.key, right.value, right.right);
+			}
+			result = rotateLeft(left, key, value, right);
+		} else {
+			result = new Node(key, value, left, right);
+		}
+		if (result.height != oldHeight || top != null) {
+			count[0]++;
+		}
+		if (top != null && result.height != top.height) {
+			count[0]++;
+		}
+		return result;
+	}
+
+	/**
+	 * returns the right rotation of a node with the given key, value and children.
+	 *
+	 *         time complexity: O(1)
+	 */
+	private static Node rotateRight(Node left, int key, boolean value, Node right) {
+		return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+	}
+
+	/**
+	 * returns the left rotation of a node with the given key, value and children.
+	 *
+	 *         time complexity: O(1)
+	 */
+	private static Node rotateLeft(Node left, int key, boolean value, Node right) {
+		return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+	}
+
+	private static int height(Node node) {
+		return node == null ? -1 : node.height;
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int trueCount(Node node) {
+		return node == null ? 0 : node.trueCount;
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean min() {
+		Node node = getTreeMin();
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * public Node getTreeMin()
+	 * <p>
+	 * Returns the node with the smallest key, or null if the tree is empty
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Node getTreeMin() {
+		Node curr = root;
+		if (curr == null) {
+			return null;
+		}
+		while (curr.left != null) {
+			curr = curr.left;
+		}
+		return curr;
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean max() {
+		Node node = getTreeMax();
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * public Node getTreeMax()
+	 * <p>
+	 * Returns the node with the largest key, or null if the tree is empty
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Node getTreeMax() {
+		Node curr = root;
+		if (curr == null) {
+			return null;
+		}
+		while (curr.right != null) {
+			curr = curr.right;
+		}
+		return curr;
+	}
+
+	/**
+	 * public Node successor(Node node)
+	 * <p>
+	 * Returns the node with the smallest key greater than node's key, or null if
+	 * there is none. node's key does not have to be in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Node successor(Node node) {
+		int k = node.key;
+		Node succ = null;
+		Node curr = root;
+		while (curr != null) {
+			if (k < curr.key) {
+				succ = curr;
+				curr = curr.left;
+			} else {
+				curr = curr.right;
+			}
+		}
+		return succ;
+	}
+
+	/**
+	 * public Node predecessor(Node node)
+	 * <p>
+	 * Returns the node with the largest key smaller than node's key, or null if
+	 * there is none. node's key does not have to be in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Node predecessor(Node node) {
+		int k = node.key;
+		Node pred = null;
+		Node curr = root;
+		while (curr != null) {
+			if (k > curr.key) {
+				pred = curr;
+				curr = curr.right;
+			} else {
+				curr = curr.left;
+			}
+		}
+		return pred;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		Node version = root;
+		int[] arr = new int[size(version)];
+		InOrder it = new InOrder(version);
+		for (int idx = 0; idx < arr.length; idx++) {
+			arr[idx] = it.next().key;
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		Node version = root;
+		boolean[] arr = new boolean[size(version)];
+		InOrder it = new InOrder(version);
+		for (int idx = 0; idx < arr.length; idx++) {
+			arr[idx] = it.next().value;
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	/**
+	 * public Node getRoot()
+	 * <p>
+	 * Returns the root of the current version, or null if the tree is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		int totalCount = 0;
+		Node curr = root;
+		while (curr != null) {
+			if (k < curr.key) {
+				curr = curr.left;
+			} else {
+				totalCount += trueCount(curr.left) + (curr.value ? 1 : 0);
+				if (k == curr.key) {
+					break;
+				}
+				curr = curr.right;
+			}
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * starting from the minimum-key node, it visits the nodes in order until it
+	 * passes k, and returns the xor of all visited nodes. the path stack makes
+	 * every step O(1) amortized.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		int totalCount = 0;
+		InOrder it = new InOrder(root);
+		Node curr = it.next();
+		while (curr != null && curr.key <= k) {
+			totalCount += curr.value ? 1 : 0;
+			curr = it.next();
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * an in-order traversal of one version, which keeps the path from the root to
+	 * the next node on a stack instead of using parent pointers.
+	 */
+	private static class InOrder {
+		private Node[] stack;
+		private int top;
+
+		InOrder(Node root) {
+			stack = new Node[Math.max(1, height(root) + 1)];
+			pushLeftSpine(root);
+		}
+
+		private void pushLeftSpine(Node node) {
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+		}
+
+		/**
+		 * @return the next node in order, or null after the last one.
+		 */
+		Node next() {
+			if (top == 0) {
+				return null;
+			}
+			Node node = stack[--top];
+			pushLeftSpine(node.right);
+			return node;
+		}
+	}
+
+	/**
+	 * public static class Node
+	 * <p>
+	 * This class represents an immutable node of the tree, which may be shared by
+	 * many versions. The height of a leaf is 0.
+	 * <p>
+	 */
+	public static class Node {
+		final int key;
+		final boolean value;
+		final int height;
+		final int trueCount;
+		final int size;
+		final Node left;
+		final Node right;
+
+		Node(int key, boolean value, Node left, Node right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.height = 1 + Math.max(PersistentAVLTree.height(left), PersistentAVLTree.height(right));
+			this.trueCount = PersistentAVLTree.trueCount(left) + PersistentAVLTree.trueCount(right) + (value ? 1 : 0);
+			this.size = PersistentAVLTree.size(left) + PersistentAVLTree.size(right) + 1;
+		}
+
+		public int getKey() {
+			return key;
+		}
+
+		public Boolean getValue() {
+			return value;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getTrueCount() {
+			return trueCount;
+		}
+
+		public int getSubtreeSize() {
+			return size;
+		}
+
+		public Node getLeft() {
+			return left;
+		}
+
+		public Node getRight() {
+			return right;
+		}
+	}
+
+}
@@ -0,0 +1,883 @@
+/**
+ * public class RedBlackTree
+ * <p>
+ * This class represents a red-black tree with integer keys and boolean values,
+ * with the operations of AVLTree. Every node is red or black, the root and the
+ * virtual leaves are black, a red node has no red child, and every path from a
+ * node down to a virtual leaf passes through the same number of black nodes, so
+ * the height is at most 2 log(n + 1). The balance is looser than in an AVL
+ * tree, and in exchange an insertion does at most 2 rotations and a deletion at
+ * most 3; the rest of the rebalancing only changes colors, and takes O(1)
+ * amortized.
+ * <p>
+ * Every node keeps the number of true values in its subtree. An update adds
+ * its value along the path to the root, and a rotation recomputes the counts of
+ * the two nodes it moves, so prefixXor takes O(log n).
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class RedBlackTree implements IntBooleanTree {
+	final public RBNode VIRTUAL = new RBNode();
+	public RBNode root;
+	public RBNode min;
+	public RBNode max;
+	public int size;
+	private TreeMetrics metrics = null;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+
+	/**
+	 * This constructor creates an empty RedBlackTree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public RedBlackTree() {
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return this.size == EMPTY;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 *
+	 * time complexity: O(log n)
+	 */
+	public Boolean search(int k) {
+		if (metrics != null) {
+			metrics.recordSearch();
+		}
+		if (empty()) {
+			return null;
+		}
+		RBNode node = searchNode(k);
+		return k == node.getKey() ? node.getValue() : null;
+	}
+
+	/**
+	 * @pre empty() == false
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, the node that
+	 *         would be k's parent.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public RBNode searchNode(int k) {
+		RBNode prev = VIRTUAL;
+		RBNode curr = this.root;
+		int depth = 0;
+		while (curr.isRealNode()) {
+			depth++;
+			if (k == curr.getKey()) {
+				break;
+			}
+			prev = curr;
+			curr = k < curr.getKey() ? curr.getLeft() : curr.getRight();
+		}
+		if (metrics != null) {
+			metrics.recordSearchDepth(depth);
+		}
+		return curr.isRealNode() ? curr : prev;
+	}
+
+	/**
+	 * public void setMetrics(TreeMetrics metrics)
+	 * <p>
+	 * makes the tree record its operations, search depths, rotations and
+	 * rebalancing climbs into the given metrics, or stops it with null, the
+	 * default. the climb of an update is the number of nodes its rebalancing
+	 * moves up through.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void setMetrics(TreeMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * public TreeMetrics getMetrics()
+	 * <p>
+	 * returns the metrics the tree records into, or null if there are none.
+	 *
+	 * time complexity: O(1)
+	 */
+	public TreeMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree. the tree remains valid
+	 * (keep its invariants). returns the number of rebalancing operations, that is
+	 * the number of nodes whose color changed plus the number of rotations (at
+	 * most 2). the new node is red and its coloring is not counted, unless it is
+	 * the root and turns black. returns -1 if an item with key k already exists in
+	 * the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int insert(int k, boolean i) {
+		if (metrics != null) {
+			metrics.recordInserts(1);
+		}
+		RBNode parent = empty() ? VIRTUAL : searchNode(k);
+		if (parent.isRealNode() && k == parent.getKey()) { // k already in tree.
+			return INVALID;
+		}
+		RBNode newNode = new RBNode(k, i);
+		newNode.setParent(parent);
+		if (!parent.isRealNode()) {
+			setRoot(newNode);
+			setTreeMin(newNode);
+			setTreeMax(newNode);
+		} else {
+			if (k < parent.getKey()) {
+				parent.setLeft(newNode);
+			} else {
+				parent.setRight(newNode);
+			}
+			if (k < getTreeMin().getKey()) { // new minimum in the tree.
+				setTreeMin(newNode);
+			} else if (k > getTreeMax().getKey()) { // new max in the tree.
+				setTreeMax(newNode);
+			}
+		}
+		if (i) {
+			for (RBNode node = parent; node.isRealNode(); node = node.getParent()) {
+				node.trueCount++;
+			}
+		}
+		this.size++;
+		return rebalanceAfterInsert(newNode);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there; the tree remains
+	 * valid (keep its invariants). a node with two children is replaced by its
+	 * successor, which is moved to its place, so the other nodes keep their items.
+	 * returns the number of rebalancing operations, that is the number of nodes
+	 * whose color changed plus the number of rotations (at most 3). returns -1 if
+	 * an item with key k was not found in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public int delete(int k) {
+		if (metrics != null) {
+			metrics.recordDeletes(1);
+		}
+		if (empty()) {
+			return INVALID;
+		}
+		RBNode node = searchNode(k);
+		if (k != node.getKey()) { // k not in tree.
+			return INVALID;
+		}
+		if (node == getTreeMin()) {
+			setTreeMin(nextNode(node));
+		}
+		if (node == getTreeMax()) {
+			setTreeMax(prevNode(node));
+		}
+		RBNode child; // the node that takes the place of the removed black node.
+		RBNode parent; // child's parent, even if child is virtual.
+		boolean removedRed;
+		if (!node.getLeft().isRealNode() || !node.getRight().isRealNode()) {
+			child = node.getLeft().isRealNode() ? node.getLeft() : node.getRight();
+			parent = node.getParent();
+			removedRed = node.isRed();
+			replace(node, child);
+		} else {
+			RBNode succ = findMinimumOfSubtree(node.getRight());
+			child = succ.getRight();
+			removedRed = succ.isRed();
+			if (succ.getParent() == node) {
+				parent = succ;
+			} else {
+				parent = succ.getParent();
+				replace(succ, child);
+				succ.setRight(node.getRight());
+				succ.getRight().setParent(succ);
+			}
+			replace(node, succ);
+			succ.setLeft(node.getLeft());
+			succ.getLeft().setParent(succ);
+			succ.setRed(node.isRed());
+		}
+		for (RBNode curr = parent; curr.isRealNode(); curr = curr.getParent()) {
+			curr.setTrueCount();
+		}
+		this.size--;
+		return removedRed ? 0 : rebalanceAfterDelete(child, parent);
+	}
+
+	/**
+	 * puts child in the place of node, under node's parent.
+	 *
+	 * @param node
+	 * @param child - a child of node, or a virtual node.
+	 *
+	 *              time complexity: O(1)
+	 */
+	private void replace(RBNode node, RBNode child) {
+		RBNode parent = node.getParent();
+		if (child.isRealNode()) {
+			child.setParent(parent);
+		}
+		if (!parent.isRealNode()) {
+			setRoot(child);
+		} else if (node == parent.getLeft()) {
+			parent.setLeft(child);
+		} else {
+			parent.setRight(child);
+		}
+	}
+
+	/**
+	 * restores the invariants after the insertion of a red leaf: while node and its
+	 * parent are both red, a red uncle is recolored with the parent and the
+	 * grandparent, and the check moves up to the grandparent. a black uncle ends
+	 * it with one rotation, or two if node is an inner grandchild.
+	 *
+	 * @param node - the new leaf.
+	 * @return the number of nodes whose color changed plus the number of rotations.
+	 *
+	 *         time complexity: O(log n), and O(1) amortized.
+	 */
+	private int rebalanceAfterInsert(RBNode node) {
+		int count = 0;
+		int length = 0;
+		while (node.getParent().isRed()) {
+			length++;
+			RBNode parent = node.getParent();
+			RBNode grandparent = parent.getParent(); // real, since a red node is not the root.
+			RBNode uncle = parent == grandparent.getLeft() ? grandparent.getRight() : grandparent.getLeft();
+			if (uncle.isRed()) {
+				count += recolor(parent, false) + recolor(uncle, false) + recolor(grandparent, true);
+				node = grandparent;
+				continue;
+			}
+			boolean doubleRotation = (node == parent.getLeft()) != (parent == grandparent.getLeft());
+			if (doubleRotation) {
+				rotateUp(node);
+				parent = node;
+				count++;
+			}
+			rotateUp(parent);
+			count += 1 + recolor(parent, false) + recolor(grandparent, true);
+			if (metrics != null) {
+				metrics.recordRotation(doubleRotation);
+			}
+			break;
+		}
+		count += recolor(getRoot(), false);
+		if (metrics != null) {
+			metrics.recordClimb(length);
+		}
+		return count;
+	}
+
+	/**
+	 * restores the invariants after the removal of a black node: node is short
+	 * of one black node on its paths. a red node is colored black. otherwise, if
+	 * its sibling and the sibling's children are black, the sibling is colored red
+	 * and the shortage moves up to the parent. a red sibling is first rotated
+	 * above the parent, and a red child of the sibling ends it with one or two
+	 * more rotations.
+	 *
+	 * @param node   - the node in the place of the removed node, may be virtual.
+	 * @param parent - node's parent.
+	 * @return the number of nodes whose color changed plus the number of rotations.
+	 *
+	 *         time complexity: O(log n), and O(1) amortized.
+	 */
+	private int rebalanceAfterDelete(RBNode node, RBNode parent) {
+		int count = 0;
+		int length = 0;
+		while (node != getRoot() && !node.isRed()) {
+			length++;
+			boolean left = node == parent.getLeft();
+			RBNode sibling = left ? parent.getRight() : parent.getLeft(); // real, since node is short.
+			if (sibling.isRed()) {
+				rotateUp(sibling);
+				count += 1 + recolor(sibling, false) + recolor(parent, true);
+				if (metrics != null) {
+					metrics.recordRotation(false);
+				}
+				sibling = left ? parent.getRight() : parent.getLeft();
+			}
+			RBNode outer = left ? sibling.getRight() : sibling.getLeft();
+			RBNode inner = left ? sibling.getLeft() : sibling.getRight();
+			if (!outer.isRed() && !inner.isRed()) {
+				count += recolor(sibling, true);
+				node = parent;
+				parent = node.getParent();
+				continue;
+			}
+			boolean doubleRotation = !outer.isRed();
+			if (doubleRotation) {
+				rotateUp(inner);
+				count += 1 + recolor(inner, false) + recolor(sibling, true);
+				outer = sibling;
+				sibling = inner;
+			}
+			rotateUp(sibling);
+			count += 1 + recolor(sibling, parent.isRed()) + recolor(parent, false) + recolor(outer, false);
+			if (metrics != null) {
+				metrics.recordRotation(doubleRotation);
+			}
+			node = getRoot();
+			break;
+		}
+		count += recolor(node, false);
+		if (metrics != null) {
+			metrics.recordClimb(length);
+		}
+		return count;
+	}
+
+	/**
+	 * colors a node red or black.
+	 *
+	 * @param node
+	 * @param red
+	 * @return 1 if the color of node changed, 0 otherwise.
+	 *
+	 *         time complexity: O(1)
+	 */
+	private int recolor(RBNode node, boolean red) {
+		if (node.isRed() == red) {
+			return 0;
+		}
+		node.setRed(red);
+		return 1;
+	}
+
+	/**
+	 * rotates node above its parent, and recomputes the true counts of both.
+	 *
+	 * @pre node.getParent().isRealNode() == true
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateUp(RBNode node) {
+		RBNode parent = node.getParent();
+		RBNode grandparent = parent.getParent();
+		if (node == parent.getLeft()) {
+			parent.setLeft(node.getRight());
+			if (node.getRight().isRealNode()) {
+				node.getRight().setParent(parent);
+			}
+			node.setRight(parent);
+		} else {
+			parent.setRight(node.getLeft());
+			if (node.getLeft().isRealNode()) {
+				node.getLeft().setParent(parent);
+			}
+			node.setLeft(parent);
+		}
+		parent.setParent(node);
+		node.setParent(grandparent);
+		if (!grandparent.isRealNode()) {
+			setRoot(node);
+		} else if (grandparent.getLeft() == parent) {
+			grandparent.setLeft(node);
+		} else {
+			grandparent.setRight(node);
+		}
+		parent.setTrueCount();
+		node.setTrueCount();
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		return empty() ? null : getTreeMin().getValue();
+	}
+
+	/**
+	 * @pre node.isRealNode() == true
+	 * @param node
+	 * @return the node with the smallest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public RBNode findMinimumOfSubtree(RBNode node) {
+		while (node.getLeft().isRealNode()) {
+			node = node.getLeft();
+		}
+		return node;
+	}
+
+	/**
+	 * sets the item with the smallest key in the tree.
+	 *
+	 * @param min
+	 *
+	 *            time complexity: O(1)
+	 */
+	private void setTreeMin(RBNode min) {
+		this.min = min;
+	}
+
+	/**
+	 * @return item with the smallest key in the tree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public RBNode getTreeMin() {
+		return this.min;
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		return empty() ? null : getTreeMax().getValue();
+	}
+
+	/**
+	 * @pre node.isRealNode() == true
+	 * @param node
+	 * @return the node with the largest key in the given node's subtree.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public RBNode findMaximumOfSubtree(RBNode node) {
+		while (node.getRight().isRealNode()) {
+			node = node.getRight();
+		}
+		return node;
+	}
+
+	/**
+	 * sets the item with the largest key in the tree.
+	 *
+	 * @param max
+	 *
+	 *            time complexity: O(1)
+	 */
+	private void setTreeMax(RBNode max) {
+		this.max = max;
+	}
+
+	/**
+	 * @return item with the largest key in the tree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public RBNode getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		for (RBNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.key;
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		int idx = 0;
+		for (RBNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.value;
+		}
+		return arr;
+	}
+
+	/**
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * performs the given action on the key and info of every item in the tree, in
+	 * increasing order of keys.
+	 *
+	 * time complexity: O(n)
+	 */
+	public void forEach(IntBooleanConsumer action) {
+		for (RBNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			action.accept(node.key, node.value);
+		}
+	}
+
+	/**
+	 * @param node
+	 * @return the node that follows the given node in increasing order of keys, or
+	 *         a virtual node if it has the largest key. a walk over all the nodes
+	 *         crosses every edge twice, so a step takes O(1) amortized.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private RBNode nextNode(RBNode node) {
+		if (node.getRight().isRealNode()) {
+			return findMinimumOfSubtree(node.getRight());
+		}
+		RBNode next = node.getParent();
+		while (next.isRealNode() && node == next.getRight()) {
+			node = next;
+			next = node.getParent();
+		}
+		return next;
+	}
+
+	/**
+	 * @param node
+	 * @return the node that precedes the given node in increasing order of keys,
+	 *         or a virtual node if it has the smallest key.
+	 *
+	 *         time complexity: O(log n)
+	 */
+	private RBNode prevNode(RBNode node) {
+		if (node.getLeft().isRealNode()) {
+			return findMaximumOfSubtree(node.getLeft());
+		}
+		RBNode prev = node.getParent();
+		while (prev.isRealNode() && node == prev.getLeft()) {
+			node = prev;
+			prev = node.getParent();
+		}
+		return prev;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public RBNode getRoot()
+	 * <p>
+	 * Returns the root node, or virtual node if the tree is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public RBNode getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * sets the root of the tree.
+	 *
+	 * @param root
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void setRoot(RBNode root) {
+		this.root = root;
+		if (root.isRealNode()) {
+			root.setParent(VIRTUAL);
+		}
+	}
+
+	/**
+	 * public RBNode successor
+	 *
+	 * given a node 'node' in the tree, return the successor of 'node' in the tree
+	 * (or null if successor doesn't exist)
+	 *
+	 * @param node - the node whose successor should be returned
+	 * @return the successor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public RBNode successor(RBNode node) {
+		RBNode succ = nextNode(node);
+		return succ.isRealNode() ? succ : null;
+	}
+
+	/**
+	 * public RBNode predecessor
+	 *
+	 * given a node 'node' in the tree, return the predecessor of 'node' in the tree
+	 * (or null if predecessor doesn't exist)
+	 *
+	 * @param node - the node whose predecessor should be returned
+	 * @return the predecessor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(log n)
+	 */
+	public RBNode predecessor(RBNode node) {
+		RBNode pred = prevNode(node);
+		return pred.isRealNode() ? pred : null;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree.
+	 *
+	 * time complexity: O(log n)
+	 */
+	public boolean prefixXor(int k) {
+		int totalCount = 0;
+		RBNode curr = getRoot();
+		while (curr.isRealNode()) {
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				totalCount += curr.getLeft().getTrueCount() + (curr.value ? 1 : 0);
+				if (k == curr.getKey()) {
+					break;
+				}
+				curr = curr.getRight();
+			}
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * However, the implementation of succPrefixXor is the following: starting from
+	 * the minimum-key node, iteratively call successor until you reach the node of
+	 * key k. Return the xor of all visited nodes.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		int totalCount = 0;
+		RBNode curr = getTreeMin();
+		while (curr != null && curr.isRealNode() && curr.getKey() <= k) {
+			totalCount += curr.getValue() ? 1 : 0;
+			curr = successor(curr);
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public class RBNode
+	 * <p>
+	 * This class represents a node in the red-black tree, with its color and the
+	 * number of true values in its subtree. The virtual node is black.
+	 * <p>
+	 */
+	public class RBNode {
+		public int key;
+		public boolean value;
+		public int trueCount;
+		public boolean red;
+		public boolean isRealNode;
+		public RBNode parent;
+		public RBNode left;
+		public RBNode right;
+
+		/**
+		 * this constructor initiates a red real node with key and value. node is
+		 * initiated with virtual parent and children.
+		 *
+		 * @param key
+		 * @param value
+		 *
+		 *              time complexity: O(1)
+		 */
+		public RBNode(int key, boolean value) {
+			this.key = key;
+			this.value = value;
+			this.parent = VIRTUAL;
+			this.left = VIRTUAL;
+			this.right = VIRTUAL;
+			this.trueCount = value ? 1 : 0;
+			this.red = true;
+			this.isRealNode = true;
+		}
+
+		/**
+		 * this constructor initiates a virtual node, which is black.
+		 *
+		 * time complexity: O(1)
+		 */
+		public RBNode() {
+			this.key = INVALID;
+			this.value = false;
+			this.parent = null;
+			this.left = null;
+			this.right = null;
+			this.trueCount = 0;
+			this.red = false;
+			this.isRealNode = false;
+		}
+
+		/**
+		 * @return node's key.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public int getKey() {
+			return this.key;
+		}
+
+		/**
+		 * @return node's value (info). for virtual node return null.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public Boolean getValue() {
+			return this.isRealNode() ? this.value : null;
+		}
+
+		/**
+		 * sets left child.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setLeft(RBNode node) {
+			this.left = node;
+		}
+
+		/**
+		 * @return left child. if called for virtual node, return value is ignored.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public RBNode getLeft() {
+			return this.left;
+		}
+
+		/**
+		 * sets right child.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setRight(RBNode node) {
+			this.right = node;
+		}
+
+		/**
+		 * @return right child. if called for virtual node, return value is ignored.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public RBNode getRight() {
+			return this.right;
+		}
+
+		/**
+		 * sets parent.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setParent(RBNode node) {
+			this.parent = node;
+		}
+
+		/**
+		 * @return parent if there is one, virtual otherwise
+		 *
+		 *         time complexity: O(1).
+		 */
+		public RBNode getParent() {
+			return this.parent;
+		}
+
+		/**
+		 * sets node's color: red if red is true, black otherwise.
+		 *
+		 * @param red
+		 *
+		 *            time complexity: O(1)
+		 */
+		public void setRed(boolean red) {
+			this.red = red;
+		}
+
+		/**
+		 * @return true if node is red, false if it is black.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public boolean isRed() {
+			return this.red;
+		}
+
+		/**
+		 * @return true if this is a non-virtual node, false otherwise.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public boolean isRealNode() {
+			return this.isRealNode;
+		}
+
+		/**
+		 * sets the number of nodes with value true in this node's subtree from its
+		 * children.
+		 *
+		 * time complexity: O(1)
+		 */
+		public void setTrueCount() {
+			this.trueCount = getLeft().getTrueCount() + getRight().getTrueCount() + (this.value ? 1 : 0);
+		}
+
+		/**
+		 * @return the number of nodes with value true in this node's subtree.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public int getTrueCount() {
+			return this.trueCount;
+		}
+	}
+
+}
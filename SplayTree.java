@@ -0,0 +1,909 @@
+import java.util.NoSuchElementException;
+
+/**
+ * public class SplayTree
+ * <p>
+ * This class represents a splay tree with integer keys and boolean values, with
+ * the operations of BSTree. Every search, insertion, deletion and prefixXor
+ * splays the node it reaches to the root, with the zig, zig-zig and zig-zag
+ * rotations of Sleator and Tarjan, so keys that are accessed often stay near
+ * the root. A sequence of m operations takes O(m log n) time, and a key
+ * accessed with frequency p takes O(log(1/p)) amortized. Since lookups change
+ * the tree, it must not be read by several threads at once.
+ * <p>
+ * Every node keeps the number of true values in its subtree, which the
+ * rotations recompute, so prefixXor takes O(log n) amortized as well. The
+ * minimum and maximum are kept in the tree, so min() and max() take O(1).
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class SplayTree implements IntBooleanTree {
+	final public SplayNode VIRTUAL = new SplayNode();
+	public SplayNode root;
+	public SplayNode min;
+	public SplayNode max;
+	public int size;
+	private TreeMetrics metrics = null;
+	final public int EMPTY = 0;
+	final public int INVALID = -1;
+
+	/**
+	 * This constructor creates an empty SplayTree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public SplayTree() {
+		this.root = VIRTUAL;
+		this.min = VIRTUAL;
+		this.max = VIRTUAL;
+		this.size = EMPTY;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public boolean empty() {
+		return this.size == EMPTY;
+	}
+
+	/**
+	 * public Boolean search(int k)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null. the node with key k, or the last node on the search path if
+	 * there is none, is splayed to the root.
+	 *
+	 * time complexity: O(log n) amortized
+	 */
+	public Boolean search(int k) {
+		if (metrics != null) {
+			metrics.recordSearch();
+		}
+		if (empty()) {
+			return null;
+		}
+		SplayNode node = descend(k);
+		splayToRoot(node);
+		return k == node.getKey() ? node.getValue() : null;
+	}
+
+	/**
+	 * public SplayNode searchNode(int k)
+	 * <p>
+	 * returns the node with key k if k is in the tree. otherwise, returns the node
+	 * that would be k's parent, or null if the tree is empty. unlike search, it
+	 * does not splay.
+	 *
+	 * time complexity: O(h), h being the height of the tree
+	 */
+	public SplayNode searchNode(int k) {
+		return empty() ? null : descend(k);
+	}
+
+	/**
+	 * @pre empty() == false
+	 * @param k
+	 * @return the node with key k if k is in the tree. otherwise, the node that
+	 *         would be k's parent. the number of nodes visited is recorded as the
+	 *         search depth.
+	 *
+	 *         time complexity: O(h), h being the height of the tree
+	 */
+	private SplayNode descend(int k) {
+		SplayNode prev = VIRTUAL;
+		SplayNode curr = this.root;
+		int depth = 0;
+		while (curr.isRealNode()) {
+			depth++;
+			if (k == curr.getKey()) {
+				break;
+			}
+			prev = curr;
+			curr = k < curr.getKey() ? curr.getLeft() : curr.getRight();
+		}
+		if (metrics != null) {
+			metrics.recordSearchDepth(depth);
+		}
+		return curr.isRealNode() ? curr : prev;
+	}
+
+	/**
+	 * public void setMetrics(TreeMetrics metrics)
+	 * <p>
+	 * makes the tree record its operations, search depths and rotations into the
+	 * given metrics, or stops it with null, the default. a zig is recorded as a
+	 * single rotation and a zig-zig or zig-zag as a double rotation, and the
+	 * number of splay steps as the length of the climb.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void setMetrics(TreeMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * public TreeMetrics getMetrics()
+	 * <p>
+	 * returns the metrics the tree records into, or null if there are none.
+	 *
+	 * time complexity: O(1)
+	 */
+	public TreeMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * public int insert(int k, boolean i)
+	 * <p>
+	 * inserts an item with key k and info i to the tree, and splays it to the
+	 * root. returns the number of rotations of the splay. returns -1 if an item
+	 * with key k already exists in the tree; that item is splayed to the root.
+	 *
+	 * time complexity: O(log n) amortized
+	 */
+	public int insert(int k, boolean i) {
+		if (metrics != null) {
+			metrics.recordInserts(1);
+		}
+		SplayNode newNode = new SplayNode(k, i);
+		if (empty()) {
+			setRoot(newNode);
+			setTreeMin(newNode);
+			setTreeMax(newNode);
+			this.size++;
+			return 0;
+		}
+		SplayNode parent = descend(k);
+		if (k == parent.getKey()) { // k already in tree.
+			splayToRoot(parent);
+			return INVALID;
+		}
+		newNode.setParent(parent);
+		if (k < parent.getKey()) {
+			parent.setLeft(newNode);
+		} else {
+			parent.setRight(newNode);
+		}
+		if (k < getTreeMin().getKey()) { // new minimum in the tree.
+			setTreeMin(newNode);
+		} else if (k > getTreeMax().getKey()) { // new max in the tree.
+			setTreeMax(newNode);
+		}
+		this.size++;
+		return splayToRoot(newNode);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there. the node is
+	 * splayed to the root and removed, and its two subtrees are joined: the
+	 * smallest node of the right subtree is splayed to its root and takes the left
+	 * subtree as its left child. if there is no right subtree, the largest node of
+	 * the left subtree is splayed to its root instead. either way the node that
+	 * is splayed is the new minimum or maximum if the deleted node was one.
+	 * returns the number of rotations. returns -1 if an item with key k was not
+	 * found in the tree; the last node on the search path is then splayed.
+	 *
+	 * time complexity: O(log n) amortized
+	 */
+	public int delete(int k) {
+		if (metrics != null) {
+			metrics.recordDeletes(1);
+		}
+		if (empty()) {
+			return INVALID;
+		}
+		SplayNode node = descend(k);
+		if (k != node.getKey()) { // k not in tree.
+			splayToRoot(node);
+			return INVALID;
+		}
+		int rotations = splayToRoot(node);
+		SplayNode left = detach(node.getLeft());
+		SplayNode right = detach(node.getRight());
+		node.setLeft(VIRTUAL);
+		node.setRight(VIRTUAL);
+		this.size--;
+		if (!right.isRealNode()) { // node was the maximum.
+			if (!left.isRealNode()) {
+				setRoot(VIRTUAL);
+				setTreeMin(VIRTUAL);
+				setTreeMax(VIRTUAL);
+				return rotations;
+			}
+			SplayNode newMax = findMaximumOfSubtree(left);
+			rotations += splayToRoot(newMax);
+			setTreeMax(newMax);
+			return rotations;
+		}
+		SplayNode joint = findMinimumOfSubtree(right);
+		rotations += splayToRoot(joint);
+		joint.setLeft(left);
+		if (left.isRealNode()) {
+			left.setParent(joint);
+		}
+		joint.setTrueCount();
+		if (node == getTreeMin()) {
+			setTreeMin(joint);
+		}
+		return rotations;
+	}
+
+	/**
+	 * gives node a virtual parent, so that it is the root of a subtree of its own.
+	 *
+	 * @param node
+	 * @return node
+	 *
+	 *         time complexity: O(1)
+	 */
+	private SplayNode detach(SplayNode node) {
+		if (node.isRealNode()) {
+			node.setParent(VIRTUAL);
+		}
+		return node;
+	}
+
+	/**
+	 * splays node to the root of its subtree, and makes it the root of the tree.
+	 *
+	 * @param node
+	 * @return the number of rotations.
+	 *
+	 *         time complexity: O(depth of node)
+	 */
+	private int splayToRoot(SplayNode node) {
+		int rotations = splay(node);
+		setRoot(node);
+		return rotations;
+	}
+
+	/**
+	 * moves a node up to the root of its subtree with splay steps: a zig if its
+	 * parent is the root, a zig-zig (the parent rotated first) if node and its
+	 * parent are children on the same side, and a zig-zag (node rotated twice)
+	 * otherwise.
+	 *
+	 * @param node
+	 * @return the number of rotations.
+	 *
+	 *         time complexity: O(depth of node)
+	 */
+	private int splay(SplayNode node) {
+		int rotations = 0;
+		int steps = 0;
+		while (node.getParent().isRealNode()) {
+			SplayNode parent = node.getParent();
+			SplayNode grandparent = parent.getParent();
+			if (!grandparent.isRealNode()) { // zig.
+				rotateUp(node);
+				rotations++;
+			} else if ((node == parent.getLeft()) == (parent == grandparent.getLeft())) { // zig-zig.
+				rotateUp(parent);
+				rotateUp(node);
+				rotations += 2;
+			} else { // zig-zag.
+				rotateUp(node);
+				rotateUp(node);
+				rotations += 2;
+			}
+			steps++;
+			if (metrics != null) {
+				metrics.recordRotation(grandparent.isRealNode());
+			}
+		}
+		if (metrics != null) {
+			metrics.recordClimb(steps);
+		}
+		return rotations;
+	}
+
+	/**
+	 * rotates node above its parent, and recomputes the true counts of both. the
+	 * true counts of the nodes above them are not read, so a splay corrects the
+	 * counts of the ancestors of a new leaf as it rotates them below it.
+	 *
+	 * @pre node.getParent().isRealNode() == true
+	 * @param node
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void rotateUp(SplayNode node) {
+		SplayNode parent = node.getParent();
+		SplayNode grandparent = parent.getParent();
+		if (node == parent.getLeft()) {
+			parent.setLeft(node.getRight());
+			if (node.getRight().isRealNode()) {
+				node.getRight().setParent(parent);
+			}
+			node.setRight(parent);
+		} else {
+			parent.setRight(node.getLeft());
+			if (node.getLeft().isRealNode()) {
+				node.getLeft().setParent(parent);
+			}
+			node.setLeft(parent);
+		}
+		parent.setParent(node);
+		node.setParent(grandparent);
+		if (grandparent.isRealNode()) {
+			if (grandparent.getLeft() == parent) {
+				grandparent.setLeft(node);
+			} else {
+				grandparent.setRight(node);
+			}
+		}
+		parent.setTrueCount();
+		node.setTrueCount();
+	}
+
+	/**
+	 * public Boolean min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean min() {
+		return empty() ? null : getTreeMin().getValue();
+	}
+
+	/**
+	 * @pre node.isRealNode() == true
+	 * @param node
+	 * @return the node with the smallest key in the given node's subtree.
+	 *
+	 *         time complexity: O(h), h being the height of the subtree
+	 */
+	public SplayNode findMinimumOfSubtree(SplayNode node) {
+		while (node.getLeft().isRealNode()) {
+			node = node.getLeft();
+		}
+		return node;
+	}
+
+	/**
+	 * sets the item with the smallest key in the tree.
+	 *
+	 * @param min
+	 *
+	 *            time complexity: O(1)
+	 */
+	private void setTreeMin(SplayNode min) {
+		this.min = min;
+	}
+
+	/**
+	 * @return item with the smallest key in the tree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public SplayNode getTreeMin() {
+		return this.min;
+	}
+
+	/**
+	 * public Boolean max()
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 *
+	 * time complexity: O(1)
+	 */
+	public Boolean max() {
+		return empty() ? null : getTreeMax().getValue();
+	}
+
+	/**
+	 * @pre node.isRealNode() == true
+	 * @param node
+	 * @return the node with the largest key in the given node's subtree.
+	 *
+	 *         time complexity: O(h), h being the height of the subtree
+	 */
+	public SplayNode findMaximumOfSubtree(SplayNode node) {
+		while (node.getRight().isRealNode()) {
+			node = node.getRight();
+		}
+		return node;
+	}
+
+	/**
+	 * sets the item with the largest key in the tree.
+	 *
+	 * @param max
+	 *
+	 *            time complexity: O(1)
+	 */
+	private void setTreeMax(SplayNode max) {
+		this.max = max;
+	}
+
+	/**
+	 * @return item with the largest key in the tree.
+	 *
+	 *         time complexity: O(1)
+	 */
+	public SplayNode getTreeMax() {
+		return this.max;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty. the walk does not splay.
+	 *
+	 * time complexity: O(n)
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int idx = 0;
+		for (SplayNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.key;
+		}
+		return arr;
+	}
+
+	/**
+	 * public boolean[] infoToArray()
+	 * <p>
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. the walk does not
+	 * splay.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean[] infoToArray() {
+		boolean[] arr = new boolean[size()];
+		int idx = 0;
+		for (SplayNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			arr[idx++] = node.value;
+		}
+		return arr;
+	}
+
+	/**
+	 * public void forEach(IntBooleanConsumer action)
+	 * <p>
+	 * performs the given action on the key and info of every item in the tree, in
+	 * increasing order of keys. the tree is walked through the parent links, so
+	 * even a tree as deep as its size needs no recursion, and it does not splay.
+	 *
+	 * time complexity: O(n)
+	 */
+	public void forEach(IntBooleanConsumer action) {
+		for (SplayNode node = getTreeMin(); node.isRealNode(); node = nextNode(node)) {
+			action.accept(node.key, node.value);
+		}
+	}
+
+	/**
+	 * public Cursor cursor()
+	 * <p>
+	 * returns a new cursor over the items of the tree, placed before the first
+	 * item.
+	 *
+	 * time complexity: O(1)
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * @param node
+	 * @return the node that follows the given node in increasing order of keys, or
+	 *         a virtual node if it has the largest key. a walk over all the nodes
+	 *         crosses every edge twice, so a step takes O(1) amortized.
+	 *
+	 *         time complexity: O(h), h being the height of the tree
+	 */
+	private SplayNode nextNode(SplayNode node) {
+		SplayNode next = node.right;
+		if (next.isRealNode()) {
+			while (next.left.isRealNode()) {
+				next = next.left;
+			}
+			return next;
+		}
+		next = node.parent;
+		while (next.isRealNode() && node == next.right) {
+			node = next;
+			next = node.parent;
+		}
+		return next;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * Returns the number of nodes in the tree.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * public SplayNode getRoot()
+	 * <p>
+	 * Returns the root node, or virtual node if the tree is empty.
+	 *
+	 * time complexity: O(1)
+	 */
+	public SplayNode getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * sets the root of the tree.
+	 *
+	 * @param root
+	 *
+	 *             time complexity: O(1)
+	 */
+	private void setRoot(SplayNode root) {
+		this.root = root;
+	}
+
+	/**
+	 * public SplayNode successor
+	 *
+	 * given a node 'node' in the tree, return the successor of 'node' in the tree
+	 * (or null if successor doesn't exist). it does not splay.
+	 *
+	 * @param node - the node whose successor should be returned
+	 * @return the successor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(h), h being the height of the tree
+	 */
+	public SplayNode successor(SplayNode node) {
+		SplayNode succ = nextNode(node);
+		return succ.isRealNode() ? succ : null;
+	}
+
+	/**
+	 * public SplayNode predecessor
+	 *
+	 * given a node 'node' in the tree, return the predecessor of 'node' in the tree
+	 * (or null if predecessor doesn't exist). it does not splay.
+	 *
+	 * @param node - the node whose predecessor should be returned
+	 * @return the predecessor of 'node' if exists, null otherwise
+	 *
+	 *         time complexity: O(h), h being the height of the tree
+	 */
+	public SplayNode predecessor(SplayNode node) {
+		if (node.getLeft().isRealNode()) {
+			return findMaximumOfSubtree(node.getLeft());
+		}
+		SplayNode pred = node.getParent();
+		while (pred.isRealNode() && node == pred.getLeft()) {
+			node = pred;
+			pred = node.getParent();
+		}
+		return pred.isRealNode() ? pred : null;
+	}
+
+	/**
+	 * public boolean prefixXor(int k)
+	 *
+	 * Given an argument k, calculate the xor of the values of nodes whose keys are
+	 * smaller or equal to k. k does not have to be a key in the tree. the search
+	 * for k adds up the true counts to its left on the way down, and the last node
+	 * on its path is splayed to the root.
+	 *
+	 * time complexity: O(log n) amortized
+	 */
+	public boolean prefixXor(int k) {
+		if (empty()) {
+			return false;
+		}
+		int totalCount = 0;
+		SplayNode last = VIRTUAL;
+		SplayNode curr = getRoot();
+		while (curr.isRealNode()) {
+			last = curr;
+			if (k < curr.getKey()) {
+				curr = curr.getLeft();
+			} else {
+				totalCount += curr.getLeft().getTrueCount() + (curr.value ? 1 : 0);
+				if (k == curr.getKey()) {
+					break;
+				}
+				curr = curr.getRight();
+			}
+		}
+		splayToRoot(last);
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public boolean succPrefixXor(int k)
+	 *
+	 * This function is identical to prefixXor(int k) in terms of input/output.
+	 * However, the implementation of succPrefixXor is the following: starting from
+	 * the minimum-key node, iteratively call successor until you reach the node of
+	 * key k. Return the xor of all visited nodes. it does not splay.
+	 *
+	 * time complexity: O(n)
+	 */
+	public boolean succPrefixXor(int k) {
+		int totalCount = 0;
+		SplayNode curr = getTreeMin();
+		while (curr != null && curr.isRealNode() && curr.getKey() <= k) {
+			totalCount += curr.getValue() ? 1 : 0;
+			curr = successor(curr);
+		}
+		return totalCount % 2 != 0;
+	}
+
+	/**
+	 * public class Cursor
+	 * <p>
+	 * This class represents a position among the items of the tree, in increasing
+	 * order of keys. A new cursor is before the first item: next() moves it to the
+	 * following item, and seek(k) to the first item whose key is k or greater.
+	 * key() and value() read the item at the cursor. Moving a cursor does not
+	 * splay. After the tree changes, including a search, a cursor must be moved
+	 * with seek(k) or reset() before it is used again.
+	 * <p>
+	 */
+	public class Cursor {
+		private SplayNode node; // null before the first item, virtual after the last.
+
+		/**
+		 * places the cursor before the first item.
+		 *
+		 * time complexity: O(1)
+		 */
+		public void reset() {
+			this.node = null;
+		}
+
+		/**
+		 * moves the cursor to the item with the smallest key which is greater or
+		 * equal to k.
+		 *
+		 * @param k
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item.
+		 *
+		 *         time complexity: O(h), h being the height of the tree
+		 */
+		public boolean seek(int k) {
+			SplayNode ceiling = VIRTUAL;
+			SplayNode curr = getRoot();
+			while (curr.isRealNode() && k != curr.key) {
+				if (k < curr.key) {
+					ceiling = curr;
+					curr = curr.left;
+				} else {
+					curr = curr.right;
+				}
+			}
+			this.node = curr.isRealNode() ? curr : ceiling;
+			return node.isRealNode();
+		}
+
+		/**
+		 * moves the cursor to the next item.
+		 *
+		 * @return true if there is such an item, false if the cursor is after the
+		 *         last item.
+		 *
+		 *         time complexity: O(1) amortized over a scan
+		 */
+		public boolean next() {
+			if (node == null) {
+				node = getTreeMin();
+			} else if (node.isRealNode()) {
+				node = nextNode(node);
+			}
+			return node.isRealNode();
+		}
+
+		/**
+		 * @return true if the cursor is at an item.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public boolean hasItem() {
+			return node != null && node.isRealNode();
+		}
+
+		/**
+		 * @return the key of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item.
+		 *
+		 *                                time complexity: O(1)
+		 */
+		public int key() {
+			return item().key;
+		}
+
+		/**
+		 * @return the info of the item at the cursor.
+		 * @throws NoSuchElementException if the cursor is not at an item.
+		 *
+		 *                                time complexity: O(1)
+		 */
+		public boolean value() {
+			return item().value;
+		}
+
+		private SplayNode item() {
+			if (!hasItem()) {
+				throw new NoSuchElementException("cursor is not at an item");
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * public class SplayNode
+	 * <p>
+	 * This class represents a node in the splay tree. Unlike an AVL node it keeps
+	 * no height or balance factor, only the number of true values in its subtree.
+	 * <p>
+	 */
+	public class SplayNode {
+		public int key;
+		public boolean value;
+		public int trueCount;
+		public boolean isRealNode;
+		public SplayNode parent;
+		public SplayNode left;
+		public SplayNode right;
+
+		/**
+		 * this constructor initiates a real node with key and value. node is initiated
+		 * with virtual parent and children.
+		 *
+		 * @param key
+		 * @param value
+		 *
+		 *              time complexity: O(1)
+		 */
+		public SplayNode(int key, boolean value) {
+			this.key = key;
+			this.value = value;
+			this.parent = VIRTUAL;
+			this.left = VIRTUAL;
+			this.right = VIRTUAL;
+			this.trueCount = value ? 1 : 0;
+			this.isRealNode = true;
+		}
+
+		/**
+		 * this constructor initiates a virtual node.
+		 *
+		 * time complexity: O(1)
+		 */
+		public SplayNode() {
+			this.key = INVALID;
+			this.value = false;
+			this.parent = null;
+			this.left = null;
+			this.right = null;
+			this.trueCount = 0;
+			this.isRealNode = false;
+		}
+
+		/**
+		 * @return node's key.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public int getKey() {
+			return this.key;
+		}
+
+		/**
+		 * @return node's value (info). for virtual node return null.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public Boolean getValue() {
+			return this.isRealNode() ? this.value : null;
+		}
+
+		/**
+		 * sets left child.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setLeft(SplayNode node) {
+			this.left = node;
+		}
+
+		/**
+		 * @return left child. if called for virtual node, return value is ignored.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public SplayNode getLeft() {
+			return this.left;
+		}
+
+		/**
+		 * sets right child.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setRight(SplayNode node) {
+			this.right = node;
+		}
+
+		/**
+		 * @return right child. if called for virtual node, return value is ignored.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public SplayNode getRight() {
+			return this.right;
+		}
+
+		/**
+		 * sets parent.
+		 *
+		 * @param node
+		 *
+		 *             time complexity: O(1)
+		 */
+		public void setParent(SplayNode node) {
+			this.parent = node;
+		}
+
+		/**
+		 * @return parent if there is one, virtual otherwise
+		 *
+		 *         time complexity: O(1).
+		 */
+		public SplayNode getParent() {
+			return this.parent;
+		}
+
+		/**
+		 * @return true if this is a non-virtual node, false otherwise.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public boolean isRealNode() {
+			return this.isRealNode;
+		}
+
+		/**
+		 * sets the number of nodes with value true in this node's subtree from its
+		 * children.
+		 *
+		 * time complexity: O(1)
+		 */
+		public void setTrueCount() {
+			this.trueCount = getLeft().getTrueCount() + getRight().getTrueCount() + (this.value ? 1 : 0);
+		}
+
+		/**
+		 * @return the number of nodes with value true in this node's subtree.
+		 *
+		 *         time complexity: O(1)
+		 */
+		public int getTrueCount() {
+			return this.trueCount;
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * public class TraceRecorder
+ * <p>
+ * This class writes the operations applied to a tree into a binary trace file,
+ * which TraceReplay runs through any tree implementation. A tree records into
+ * a recorder only after setTrace(recorder) is called on it. The recorder is
+ * not thread-safe, like the tree it records, so ConcurrentAVLTree does not
+ * accept a traced tree.
+ * <p>
+ * The file starts with MAGIC and VERSION as little-endian ints, followed by one
+ * record per operation: a byte with the operation in its low 3 bits and the
+ * info of an insertion in bit 3, and then the difference of the key from the
+ * key of the previous record, zigzag-encoded as a varint of 7 bits per byte.
+ * Keys that are close to each other take 2 bytes per operation.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class TraceRecorder implements Closeable {
+	final public static int MAGIC = 0x45435254; // "TRCE" in little-endian order.
+	final public static int VERSION = 1;
+	final public static int INSERT = 0;
+	final public static int DELETE = 1;
+	final public static int SEARCH = 2;
+	final public static int PREFIX_XOR = 3;
+	final public static int SUCC_PREFIX_XOR = 4;
+	final public static int OPERATION_MASK = 0x7;
+	final public static int VALUE_BIT = 0x8;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_RECORD_SIZE = 1 + 5;
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int lastKey = 0;
+	private long count = 0;
+	private boolean closed = false;
+
+	/**
+	 * This constructor creates the trace file at the given path, or replaces it,
+	 * and writes its header.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 *
+	 *                     time complexity: O(1)
+	 */
+	public TraceRecorder(Path path) throws IOException {
+		this.out = Files.newOutputStream(path);
+		writeInt(MAGIC);
+		writeInt(VERSION);
+	}
+
+	/**
+	 * public void recordInsert(int k, boolean i)
+	 * <p>
+	 * records an insertion of key k with info i.
+	 *
+	 * @throws UncheckedIOException if the trace cannot be written.
+	 *
+	 *                              time complexity: O(1)
+	 */
+	public void recordInsert(int k, boolean i) {
+		record(INSERT | (i ? VALUE_BIT : 0), k);
+	}
+
+	/**
+	 * public void recordDelete(int k)
+	 * <p>
+	 * records a deletion of key k.
+	 *
+	 * @throws UncheckedIOException if the trace cannot be written.
+	 *
+	 *                              time complexity: O(1)
+	 */
+	public void recordDelete(int k) {
+		record(DELETE, k);
+	}
+
+	/**
+	 * public void recordSearch(int k)
+	 * <p>
+	 * records a search of key k.
+	 *
+	 * @throws UncheckedIOException if the trace cannot be written.
+	 *
+	 *                              time complexity: O(1)
+	 */
+	public void recordSearch(int k) {
+		record(SEARCH, k);
+	}
+
+	/**
+	 * public void recordPrefixXor(int k)
+	 * <p>
+	 * records a prefixXor of key k.
+	 *
+	 * @throws UncheckedIOException if the trace cannot be written.
+	 *
+	 *                              time complexity: O(1)
+	 */
+	public void recordPrefixXor(int k) {
+		record(PREFIX_XOR, k);
+	}
+
+	/**
+	 * public void recordSuccPrefixXor(int k)
+	 * <p>
+	 * records a succPrefixXor of key k.
+	 *
+	 * @throws UncheckedIOException if the trace cannot be written.
+	 *
+	 *                              time complexity: O(1)
+	 */
+	public void recordSuccPrefixXor(int k) {
+		record(SUCC_PREFIX_XOR, k);
+	}
+
+	/**
+	 * public long count()
+	 * <p>
+	 * returns the number of operations recorded.
+	 *
+	 * time complexity: O(1)
+	 */
+	public long count() {
+		return this.count;
+	}
+
+	/**
+	 * public void flush()
+	 * <p>
+	 * writes the buffered records to the file.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void flush() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+		out.flush();
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * writes the buffered records and closes the file. a closed recorder must not
+	 * record any more.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * appends a record of the given operation byte and key to the buffer.
+	 *
+	 * @throws IllegalStateException if the recorder is closed.
+	 * @throws UncheckedIOException  if a full buffer cannot be written.
+	 *
+	 *                               time complexity: O(1)
+	 */
+	private void record(int operation, int k) {
+		if (closed) {
+			throw new IllegalStateException("trace is closed");
+		}
+		if (position > BUFFER_SIZE - MAX_RECORD_SIZE) {
+			try {
+				out.write(buffer, 0, position);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = 0;
+		}
+		buffer[position++] = (byte) operation;
+		int delta = k - lastKey; // wraps around, and so does the sum in the reader.
+		int zigzag = (delta << 1) ^ (delta >> 31);
+		while ((zigzag & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		buffer[position++] = (byte) zigzag;
+		lastKey = k;
+		count++;
+	}
+
+	private void writeInt(int value) {
+		for (int j = 0; j < Integer.BYTES; j++) {
+			buffer[position++] = (byte) (value >>> (8 * j));
+		}
+	}
+
+}
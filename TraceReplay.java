@@ -0,0 +1,363 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * public class TraceReplay
+ * <p>
+ * This class holds the operations of a trace written by TraceRecorder, and runs
+ * them through trees of any implementation. The trace is decoded into memory
+ * once, so a replay times only the trees. A replay that checks its results
+ * keeps one outcome per operation: whether an insertion or deletion changed
+ * the tree, the info found by a search, or the result of a prefixXor. The
+ * outcomes of different implementations must be identical, even though their
+ * insert and delete return different counts of rebalancing operations.
+ * <p>
+ * usage: java TraceReplay &lt;trace&gt; [--impls AVLTree,BSTree] [--repeats 5]
+ * <p>
+ * runs the trace through every implementation, prints its throughput and the
+ * latency percentiles of every operation type, and checks that all the
+ * implementations have the same outcomes and end with the same keys. the
+ * latencies include a call to System.nanoTime per operation. with --record
+ * &lt;n&gt; the trace is first written from an AVLTree, with n random
+ * insertions followed by n operations of MeasurmentsRedBlack's delete-heavy
+ * mix, whose searches alternate with prefixXor.
+ *
+ * @author Sharon Tadmor
+ */
+
+public class TraceReplay {
+	final public static String[] OPERATIONS = { "insert", "delete", "search", "prefixXor", "succPrefixXor" };
+	final public static double[] PERCENTILES = { 50, 99, 99.9 };
+	private final byte[] operations;
+	private final int[] keys;
+	private static volatile long sink;
+
+	/**
+	 * This constructor creates a replay of the given operations, encoded like the
+	 * first byte of a record of TraceRecorder.
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length.
+	 *
+	 *                                  time complexity: O(1)
+	 */
+	public TraceReplay(byte[] operations, int[] keys) {
+		if (operations.length != keys.length) {
+			throw new IllegalArgumentException("operations and keys differ in length");
+		}
+		this.operations = operations;
+		this.keys = keys;
+	}
+
+	/**
+	 * public static TraceReplay read(Path path)
+	 * <p>
+	 * reads the trace file at the given path.
+	 *
+	 * @throws IOException if the file cannot be read, is not a trace of this
+	 *                     version, or has a truncated or corrupt record.
+	 *
+	 *                     time complexity: O(m), m being the number of operations
+	 */
+	public static TraceReplay read(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+			if (readInt(in) != TraceRecorder.MAGIC) {
+				throw new IOException("not a trace file: " + path);
+			}
+			int version = readInt(in);
+			if (version != TraceRecorder.VERSION) {
+				throw new IOException("unsupported trace version " + version);
+			}
+			byte[] operations = new byte[1 << 10];
+			int[] keys = new int[1 << 10];
+			int count = 0;
+			int key = 0;
+			int operation;
+			while ((operation = in.read()) != -1) {
+				if ((operation & ~(TraceRecorder.OPERATION_MASK | TraceRecorder.VALUE_BIT)) != 0
+						|| (operation & TraceRecorder.OPERATION_MASK) > TraceRecorder.SUCC_PREFIX_XOR) {
+					throw new IOException("corrupt record " + count);
+				}
+				int zigzag = 0;
+				int b;
+				int shift = 0;
+				do {
+					b = in.read();
+					if (b == -1) {
+						throw new EOFException("truncated record " + count);
+					}
+					if (shift > 28) {
+						throw new IOException("corrupt record " + count);
+					}
+					zigzag |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				key += (zigzag >>> 1) ^ -(zigzag & 1);
+				if (count == keys.length) {
+					if (count == Integer.MAX_VALUE - 8) {
+						throw new IOException("trace has too many operations");
+					}
+					int capacity = (int) Math.min(2L * count, Integer.MAX_VALUE - 8);
+					operations = Arrays.copyOf(operations, capacity);
+					keys = Arrays.copyOf(keys, capacity);
+				}
+				operations[count] = (byte) operation;
+				keys[count] = key;
+				count++;
+			}
+			return new TraceReplay(Arrays.copyOf(operations, count), Arrays.copyOf(keys, count));
+		}
+	}
+
+	private static int readInt(InputStream in) throws IOException {
+		int value = 0;
+		for (int j = 0; j < Integer.BYTES; j++) {
+			int b = in.read();
+			if (b == -1) {
+				throw new EOFException("truncated trace header");
+			}
+			value |= b << (8 * j);
+		}
+		return value;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * returns the number of operations in the trace.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * public int operation(int j)
+	 * <p>
+	 * returns the type of operation j, one of the operation constants of
+	 * TraceRecorder.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int operation(int j) {
+		return operations[j] & TraceRecorder.OPERATION_MASK;
+	}
+
+	/**
+	 * public int key(int j)
+	 * <p>
+	 * returns the key of operation j.
+	 *
+	 * time complexity: O(1)
+	 */
+	public int key(int j) {
+		return keys[j];
+	}
+
+	/**
+	 * public long replay(TreeAdapter tree)
+	 * <p>
+	 * runs the trace through the given tree, and returns the time it took in
+	 * nanoseconds.
+	 *
+	 * time complexity: O(m) operations of the tree, m being the size of the trace
+	 */
+	public long replay(TreeAdapter tree) {
+		long res = 0;
+		long before = System.nanoTime();
+		for (int j = 0; j < keys.length; j++) {
+			res += apply(tree, operations[j], keys[j]);
+		}
+		long time = System.nanoTime() - before;
+		sink += res;
+		return time;
+	}
+
+	/**
+	 * public void replay(TreeAdapter tree, byte[] outcomes, int[] latencies)
+	 * <p>
+	 * runs the trace through the given tree, and keeps the outcome and the time in
+	 * nanoseconds of every operation. an outcome is 1 for an insertion or deletion
+	 * that changed the tree and 0 otherwise, 0 for a search that found nothing, 1
+	 * for false and 2 for true, and 1 for a true prefixXor and 0 for a false one.
+	 *
+	 * @throws IllegalArgumentException if an array is shorter than the trace.
+	 *
+	 *                                  time complexity: O(m) operations of the
+	 *                                  tree, m being the size of the trace
+	 */
+	public void replay(TreeAdapter tree, byte[] outcomes, int[] latencies) {
+		if (outcomes.length < keys.length || latencies.length < keys.length) {
+			throw new IllegalArgumentException("arrays are shorter than the trace");
+		}
+		long before = System.nanoTime();
+		for (int j = 0; j < keys.length; j++) {
+			outcomes[j] = (byte) apply(tree, operations[j], keys[j]);
+			long after = System.nanoTime();
+			latencies[j] = (int) Math.min(after - before, Integer.MAX_VALUE);
+			before = after;
+		}
+	}
+
+	private static int apply(TreeAdapter tree, byte operation, int k) {
+		switch (operation & TraceRecorder.OPERATION_MASK) {
+		case TraceRecorder.INSERT:
+			return tree.insert(k, (operation & TraceRecorder.VALUE_BIT) != 0) == -1 ? 0 : 1;
+		case TraceRecorder.DELETE:
+			return tree.delete(k) == -1 ? 0 : 1;
+		case TraceRecorder.SEARCH:
+			Boolean found = tree.search(k);
+			return found == null ? 0 : found ? 2 : 1;
+		case TraceRecorder.PREFIX_XOR:
+			return tree.prefixXor(k) ? 1 : 0;
+		default:
+			return tree.succPrefixXor(k) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * writes a trace of n random insertions into an AVLTree, followed by n
+	 * operations of MeasurmentsRedBlack's delete-heavy mix.
+	 */
+	static void record(Path path, int n) throws IOException {
+		int[] initial = new int[n];
+		System.arraycopy(MeasurmentsCompact.shuffledKeys(2 * n), 0, initial, 0, n);
+		int[] ops = MeasurmentsRedBlack.operations(initial, 2 * n, n, MeasurmentsRedBlack.PERCENTS[1], 1);
+		AVLTree tree = new AVLTree();
+		try (TraceRecorder trace = new TraceRecorder(path)) {
+			tree.setTrace(trace);
+			for (int i = 0; i < n; i++) {
+				tree.insert(initial[i], (i & 1) == 0);
+			}
+			for (int j = 0; j < ops.length; j += 2) {
+				int key = ops[j + 1];
+				if (ops[j] == MeasurmentsRedBlack.INSERT) {
+					tree.insert(key, (key & 1) == 0);
+				} else if (ops[j] == MeasurmentsRedBlack.DELETE) {
+					tree.delete(key);
+				} else if ((j & 2) == 0) {
+					tree.search(key);
+				} else {
+					tree.prefixXor(key);
+				}
+			}
+			tree.setTrace(null);
+			System.out.println("recorded " + trace.count() + " operations, " + Files.size(path) + " bytes");
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path path = null;
+		String[] impls = { "AVLTree", "BSTree" };
+		int repeats = 5;
+		int record = 0;
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+			case "--impls":
+				impls = args[++j].split(",");
+				break;
+			case "--repeats":
+				repeats = Integer.parseInt(args[++j]);
+				break;
+			case "--record":
+				record = Integer.parseInt(args[++j]);
+				break;
+			default:
+				path = Paths.get(args[j]);
+			}
+		}
+		if (path == null) {
+			System.err.println("usage: java TraceReplay <trace> [--impls AVLTree,BSTree] [--repeats 5] [--record n]");
+			System.exit(2);
+		}
+		for (String name : impls) {
+			if (TreeAdapter.create(name) == null) {
+				throw new IllegalArgumentException("unknown implementation: " + name);
+			}
+		}
+		if (record > 0) {
+			record(path, record);
+		}
+		TraceReplay trace = read(path);
+		int m = trace.size();
+		System.out.println(m + " operations");
+		byte[] expected = null;
+		int[] expectedKeys = null;
+		boolean identical = true;
+		for (String name : impls) {
+			byte[] outcomes = new byte[m];
+			int[] latencies = new int[m];
+			TreeAdapter tree = TreeAdapter.create(name);
+			trace.replay(tree, outcomes, latencies);
+			int[] finalKeys = tree.keysToArray();
+			trace.replay(TreeAdapter.create(name)); // calibration run.
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < repeats; r++) {
+				best = Math.min(best, trace.replay(TreeAdapter.create(name)));
+			}
+			System.out.println(String.format("%s: %.0f ops/s, %.1f ns/op", name, m * 1e9 / best, (double) best / m));
+			printLatencies(trace, latencies);
+			if (expected == null) {
+				expected = outcomes;
+				expectedKeys = finalKeys;
+				continue;
+			}
+			int mismatches = 0;
+			for (int j = 0; j < m; j++) {
+				if (outcomes[j] != expected[j]) {
+					if (mismatches == 0) {
+						System.out.println(String.format("  first mismatch with %s at operation %d: %s(%d) gave %d, not %d",
+								impls[0], j, OPERATIONS[trace.operation(j)], trace.key(j), outcomes[j], expected[j]));
+					}
+					mismatches++;
+				}
+			}
+			boolean sameKeys = Arrays.equals(finalKeys, expectedKeys);
+			System.out.println("  " + (mismatches == 0 && sameKeys ? "results identical to " + impls[0]
+					: mismatches + " outcomes differ from " + impls[0] + (sameKeys ? "" : ", and the final keys differ")));
+			identical &= mismatches == 0 && sameKeys;
+		}
+		if (!identical) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * prints the number of operations and the latency percentiles of every
+	 * operation type in the trace.
+	 */
+	static void printLatencies(TraceReplay trace, int[] latencies) {
+		int[] counts = new int[OPERATIONS.length];
+		for (int j = 0; j < trace.size(); j++) {
+			counts[trace.operation(j)]++;
+		}
+		for (int type = 0; type < OPERATIONS.length; type++) {
+			if (counts[type] == 0) {
+				continue;
+			}
+			int[] sorted = new int[counts[type]];
+			int idx = 0;
+			for (int j = 0; j < trace.size(); j++) {
+				if (trace.operation(j) == type) {
+					sorted[idx++] = latencies[j];
+				}
+			}
+			Arrays.sort(sorted);
+			StringBuilder line = new StringBuilder(String.format("  %-13s %9d ops, ns:", OPERATIONS[type], counts[type]));
+			for (double percentile : PERCENTILES) {
+				String label = percentile == (int) percentile ? String.valueOf((int) percentile) : String.valueOf(percentile);
+				line.append(String.format(" p%s %d", label,
+						sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1]));
+			}
+			line.append(" max " + sorted[sorted.length - 1]);
+			System.out.println(line);
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * public interface TreeAdapter
+ * <p>
+ * This interface gives the measurement drivers a single view of the different
+ * tree implementations, with a name for their reports. The trees implement
+ * IntBooleanTree, so one adapter serves all of them; only FineGrainedAVLTree,
+ * whose updates return booleans, has an adapter of its own. Every
+ * implementation keeps its own return contract for insert and delete.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public interface TreeAdapter extends IntBooleanTree {
+
+	/**
+	 * @return the name of the adapted implementation.
+	 */
+	String name();
+
+	/**
+	 * @return the names accepted by create(String).
+	 */
+	static String[] names() {
+		return new String[] { "AVLTree", "BSTree", "CompactAVLTree", "PersistentAVLTree", "OffHeapAVLTree",
+				"BPlusTree", "SplayTree", "RedBlackTree" };
+	}
+
+	/**
+	 * creates an empty tree of the implementation with the given name.
+	 *
+	 * @param name
+	 * @return the adapted tree, or null if the name is unknown.
+	 */
+	static TreeAdapter create(String name) {
+		switch (name) {
+		case "AVLTree":
+			return of(new AVLTree());
+		case "BSTree":
+			return of(new BSTree());
+		case "CompactAVLTree":
+			return of(new CompactAVLTree());
+		case "PersistentAVLTree":
+			return of(new PersistentAVLTree());
+		case "OffHeapAVLTree":
+			return of(new OffHeapAVLTree());
+		case "BPlusTree":
+			return of(new BPlusTree());
+		case "SplayTree":
+			return of(new SplayTree());
+		case "RedBlackTree":
+			return of(new RedBlackTree());
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * adapts a tree, named after its class.
+	 *
+	 * @param tree
+	 * @return the adapted tree.
+	 */
+	static TreeAdapter of(final IntBooleanTree tree) {
+		final String name = tree.getClass().getSimpleName();
+		return new TreeAdapter() {
+			public String name() {
+				return name;
+			}
+
+			public int insert(int k, boolean i) {
+				return tree.insert(k, i);
+			}
+
+			public int delete(int k) {
+				return tree.delete(k);
+			}
+
+			public Boolean search(int k) {
+				return tree.search(k);
+			}
+
+			public boolean prefixXor(int k) {
+				return tree.prefixXor(k);
+			}
+
+			public boolean succPrefixXor(int k) {
+				return tree.succPrefixXor(k);
+			}
+
+			public int[] keysToArray() {
+				return tree.keysToArray();
+			}
+
+			public int size() {
+				return tree.size();
+			}
+		};
+	}
+
+	/**
+	 * adapts a FineGrainedAVLTree: insert and delete return 0 on success and -1
+	 * otherwise. the tree keeps no trueCount, so prefixXor and succPrefixXor are
+	 * not supported.
+	 */
+	static TreeAdapter of(final FineGrainedAVLTree tree) {
+		return new TreeAdapter() {
+			public String name() {
+				return "FineGrainedAVLTree";
+			}
+
+			public int insert(int k, boolean i) {
+				return tree.insert(k, i) ? 0 : tree.INVALID;
+			}
+
+			public int delete(int k) {
+				return tree.delete(k) ? 0 : tree.INVALID;
+			}
+
+			public Boolean search(int k) {
+				return tree.search(k);
+			}
+
+			public boolean prefixXor(int k) {
+				throw new UnsupportedOperationException("FineGrainedAVLTree.prefixXor");
+			}
+
+			public boolean succPrefixXor(int k) {
+				throw new UnsupportedOperationException("FineGrainedAVLTree.succPrefixXor");
+			}
+
+			public int[] keysToArray() {
+				return tree.keysToArray();
+			}
+
+			public int size() {
+				return tree.size();
+			}
+		};
+	}
+
+	/**
+	 * wraps an adapter so that every call holds the adapter's monitor, like
+	 * Collections.synchronizedMap.
+	 *
+	 * @param adapter
+	 * @return the synchronized adapter.
+	 */
+	static TreeAdapter synchronizedAdapter(final TreeAdapter adapter) {
+		return new TreeAdapter() {
+			public String name() {
+				return "synchronized " + adapter.name();
+			}
+
+			public synchronized int insert(int k, boolean i) {
+				return adapter.insert(k, i);
+			}
+
+			public synchronized int delete(int k) {
+				return adapter.delete(k);
+			}
+
+			public synchronized Boolean search(int k) {
+				return adapter.search(k);
+			}
+
+			public synchronized boolean prefixXor(int k) {
+				return adapter.prefixXor(k);
+			}
+
+			public synchronized boolean succPrefixXor(int k) {
+				return adapter.succPrefixXor(k);
+			}
+
+			public synchronized int[] keysToArray() {
+				return adapter.keysToArray();
+			}
+
+			public synchronized int size() {
+				return adapter.size();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,233 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * public class TreeMetrics
+ * <p>
+ * This class represents counters of the operations of AVLTree and BSTree: the
+ * operations per type, the single and double rotations, a histogram of the
+ * lengths of the rebalancing climbs (the number of nodes whose heights and
+ * balance factors a climb recomputed), and a histogram of the search depths
+ * (the number of nodes a search descends through). A tree records into its
+ * metrics only after setMetrics(metrics) is called on it; without metrics it
+ * skips every record call after a null check.
+ * <p>
+ * The counters are LongAdders, which spread the updates of concurrent threads
+ * over cells of their own, so one TreeMetrics may be shared by several trees
+ * and threads. register(name) exposes the counters as a JMX MBean.
+ * <p>
+ *
+ * @author Sharon Tadmor
+ */
+
+public class TreeMetrics implements TreeMetricsMBean {
+	final public static int HISTOGRAM_BUCKETS = 64;
+	final public static String DOMAIN = "DataStructures";
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder deletes = new LongAdder();
+	private final LongAdder singleRotations = new LongAdder();
+	private final LongAdder doubleRotations = new LongAdder();
+	private final LongAdder[] climbLengths = newHistogram();
+	private final LongAdder climbLengthSum = new LongAdder();
+	private final LongAdder[] searchDepths = newHistogram();
+	private final LongAdder searchDepthSum = new LongAdder();
+	private final LongAccumulator maxSearchDepth = new LongAccumulator(Math::max, 0);
+	private ObjectName objectName;
+
+	private static LongAdder[] newHistogram() {
+		LongAdder[] histogram = new LongAdder[HISTOGRAM_BUCKETS];
+		for (int j = 0; j < HISTOGRAM_BUCKETS; j++) {
+			histogram[j] = new LongAdder();
+		}
+		return histogram;
+	}
+
+	private static long[] sum(LongAdder[] histogram) {
+		long[] counts = new long[histogram.length];
+		for (int j = 0; j < histogram.length; j++) {
+			counts[j] = histogram[j].sum();
+		}
+		return counts;
+	}
+
+	private static double mean(LongAdder total, LongAdder[] histogram) {
+		long count = 0;
+		for (LongAdder bucket : histogram) {
+			count += bucket.sum();
+		}
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+
+	/**
+	 * public void recordSearch()
+	 * <p>
+	 * counts a search.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordSearch() {
+		searches.increment();
+	}
+
+	/**
+	 * public void recordInserts(int count)
+	 * <p>
+	 * counts the given number of insertions.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordInserts(int count) {
+		inserts.add(count);
+	}
+
+	/**
+	 * public void recordDeletes(int count)
+	 * <p>
+	 * counts the given number of deletions.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordDeletes(int count) {
+		deletes.add(count);
+	}
+
+	/**
+	 * public void recordRotation(boolean doubleRotation)
+	 * <p>
+	 * counts a single or a double rotation.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordRotation(boolean doubleRotation) {
+		(doubleRotation ? doubleRotations : singleRotations).increment();
+	}
+
+	/**
+	 * public void recordClimb(int length)
+	 * <p>
+	 * adds the length of a rebalancing climb to its histogram.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordClimb(int length) {
+		climbLengths[Math.min(length, HISTOGRAM_BUCKETS - 1)].increment();
+		climbLengthSum.add(length);
+	}
+
+	/**
+	 * public void recordSearchDepth(int depth)
+	 * <p>
+	 * adds the depth of a search to its histogram.
+	 *
+	 * time complexity: O(1)
+	 */
+	public void recordSearchDepth(int depth) {
+		searchDepths[Math.min(depth, HISTOGRAM_BUCKETS - 1)].increment();
+		searchDepthSum.add(depth);
+		maxSearchDepth.accumulate(depth);
+	}
+
+	public long getSearches() {
+		return searches.sum();
+	}
+
+	public long getInserts() {
+		return inserts.sum();
+	}
+
+	public long getDeletes() {
+		return deletes.sum();
+	}
+
+	public long getSingleRotations() {
+		return singleRotations.sum();
+	}
+
+	public long getDoubleRotations() {
+		return doubleRotations.sum();
+	}
+
+	public long[] getClimbLengthHistogram() {
+		return sum(climbLengths);
+	}
+
+	public double getMeanClimbLength() {
+		return mean(climbLengthSum, climbLengths);
+	}
+
+	public long[] getSearchDepthHistogram() {
+		return sum(searchDepths);
+	}
+
+	public double getMeanSearchDepth() {
+		return mean(searchDepthSum, searchDepths);
+	}
+
+	public long getMaxSearchDepth() {
+		return maxSearchDepth.get();
+	}
+
+	/**
+	 * public void reset()
+	 * <p>
+	 * sets all the counters to 0. updates that run at the same time may be lost
+	 * or kept.
+	 *
+	 * time complexity: O(HISTOGRAM_BUCKETS)
+	 */
+	public void reset() {
+		for (LongAdder adder : new LongAdder[] { searches, inserts, deletes, singleRotations, doubleRotations,
+				climbLengthSum, searchDepthSum }) {
+			adder.reset();
+		}
+		for (int j = 0; j < HISTOGRAM_BUCKETS; j++) {
+			climbLengths[j].reset();
+			searchDepths[j].reset();
+		}
+		maxSearchDepth.reset();
+	}
+
+	/**
+	 * public synchronized ObjectName register(String name)
+	 * <p>
+	 * registers the metrics in the platform MBean server under the name
+	 * DataStructures:type=TreeMetrics,name=<name>, and returns that name.
+	 *
+	 * @throws IllegalStateException if the metrics are already registered.
+	 * @throws JMException           if the name is not valid, or another MBean
+	 *                               has it.
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		if (objectName != null) {
+			throw new IllegalStateException("metrics are already registered as " + objectName);
+		}
+		ObjectName candidate = new ObjectName(DOMAIN + ":type=TreeMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+		objectName = candidate;
+		return objectName;
+	}
+
+	/**
+	 * public synchronized void unregister()
+	 * <p>
+	 * removes the metrics from the platform MBean server, if they are registered.
+	 *
+	 * @throws JMException if the server fails to remove them.
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			objectName = null;
+		}
+	}
+
+}
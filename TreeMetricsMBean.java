@@ -0,0 +1,71 @@
+/**
+ * public interface TreeMetricsMBean
+ * <p>
+ * This interface is the management interface of TreeMetrics, the attributes
+ * and operations a JMX client such as jconsole sees. The histograms are arrays
+ * whose entry j counts the values j, and whose last entry counts the values
+ * from HISTOGRAM_BUCKETS - 1 up.
+ *
+ * @author Sharon Tadmor
+ */
+
+public interface TreeMetricsMBean {
+
+	/**
+	 * @return the number of searches.
+	 */
+	long getSearches();
+
+	/**
+	 * @return the number of insertions, including the ones of keys that were
+	 *         already in the tree.
+	 */
+	long getInserts();
+
+	/**
+	 * @return the number of deletions, including the ones of keys that were not in
+	 *         the tree.
+	 */
+	long getDeletes();
+
+	/**
+	 * @return the number of single rotations.
+	 */
+	long getSingleRotations();
+
+	/**
+	 * @return the number of double rotations.
+	 */
+	long getDoubleRotations();
+
+	/**
+	 * @return the histogram of the lengths of the rebalancing climbs.
+	 */
+	long[] getClimbLengthHistogram();
+
+	/**
+	 * @return the average length of a rebalancing climb.
+	 */
+	double getMeanClimbLength();
+
+	/**
+	 * @return the histogram of the search depths.
+	 */
+	long[] getSearchDepthHistogram();
+
+	/**
+	 * @return the average search depth.
+	 */
+	double getMeanSearchDepth();
+
+	/**
+	 * @return the largest search depth.
+	 */
+	long getMaxSearchDepth();
+
+	/**
+	 * sets all the counters to 0.
+	 */
+	void reset();
+
+}